@@ -0,0 +1,226 @@
+package jmail;
+
+import jmail.util.CharacterClass;
+
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses RFC 5322 address lists, as found in the {@code To}, {@code Cc} and {@code Bcc}
+ * header fields. For example, the header value
+ * {@code "A, B" <a@x.com>, c@y.org (Team), group: d@z.net;} contains the three addresses
+ * {@code "A, B" <a@x.com>}, {@code c@y.org (Team)} and {@code d@z.net}.
+ *
+ * <p>The header is scanned once, and each address is validated in place by the same parser as
+ * {@link JMail#validate(String)}: members are never copied out of the header, and every
+ * {@link Email} refers to the header string it was found in.
+ *
+ * <p>Commas and colons only separate addresses outside of quoted strings, comments, angle
+ * brackets and domain literals. The members of a group ({@code name: a@b.com, c@d.com;}) are
+ * returned as ordinary addresses, and empty members are skipped. Text before a colon that is
+ * not a valid phrase, such as an address, is returned as a failure rather than as a group
+ * name.
+ */
+public final class AddressListParser {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private AddressListParser() {
+  }
+
+  /**
+   * Validate each address of the given address list, in order.
+   *
+   * @param header the address list to parse
+   * @return a lazy stream with one {@link EmailValidationResult} per address in the list
+   */
+  public static Stream<EmailValidationResult> validate(CharSequence header) {
+    if (header == null) return Stream.empty();
+
+    return StreamSupport.stream(new Members(header.toString()), false);
+  }
+
+  /**
+   * Parse the valid addresses of the given address list, in order. Invalid addresses are
+   * skipped.
+   *
+   * @param header the address list to parse
+   * @return a lazy stream of the valid {@link Email} addresses in the list
+   */
+  public static Stream<Email> tryParse(CharSequence header) {
+    return validate(header)
+        .map(EmailValidationResult::getEmail)
+        .filter(Optional::isPresent)
+        .map(Optional::get);
+  }
+
+  /**
+   * Walks the members of an address list, validating each one as it is reached.
+   */
+  private static final class Members extends Spliterators.AbstractSpliterator<EmailValidationResult> {
+    private final String header;
+
+    private int position;
+    private boolean inGroup;
+
+    Members(String header) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.header = header;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super EmailValidationResult> action) {
+      while (position < header.length()) {
+        int start = position;
+        int end = findEnd(start);
+
+        // Skip the separator, or keep going after the group name
+        position = end + 1;
+        boolean groupName = end < header.length() && header.charAt(end) == ':';
+
+        while (start < end && isWhitespace(header.charAt(start))) start++;
+        while (end > start && isWhitespace(header.charAt(end - 1))) end--;
+
+        if (groupName) {
+          if (isPhrase(start, end)) continue;
+
+          // An address before an unquoted colon is not a group name, and must not be dropped
+          action.accept(
+              EmailValidationResult.failure(FailureReason.DISALLOWED_UNQUOTED_CHARACTER));
+          return true;
+        }
+
+        if (hasContent(start, end)) {
+          action.accept(JMail.validateWindow(header, start, end));
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    /**
+     * Find the end of the member that starts at the given index: the next comma, group name
+     * colon or group end semicolon that is not quoted, escaped, commented or bracketed.
+     */
+    private int findEnd(int start) {
+      int commentDepth = 0;
+      boolean inQuotes = false;
+      boolean inAngleBrackets = false;
+      boolean inLiteral = false;
+
+      for (int i = start; i < header.length(); i++) {
+        char c = header.charAt(i);
+
+        if (c == '\\') {
+          i++;
+        } else if (inQuotes) {
+          if (c == '"') inQuotes = false;
+        } else if (commentDepth > 0) {
+          if (c == '(') commentDepth++;
+          else if (c == ')') commentDepth--;
+        } else if (c == '"') {
+          inQuotes = true;
+        } else if (c == '(') {
+          commentDepth = 1;
+        } else if (c == '[') {
+          inLiteral = true;
+        } else if (c == ']') {
+          inLiteral = false;
+        } else if (c == '<') {
+          inAngleBrackets = true;
+        } else if (c == '>') {
+          inAngleBrackets = false;
+        } else if (!inAngleBrackets && !inLiteral) {
+          if (c == ',') return i;
+          if (c == ':' && !inGroup) {
+            inGroup = true;
+            return i;
+          }
+          if (c == ';' && inGroup) {
+            inGroup = false;
+            return i;
+          }
+        }
+      }
+
+      return header.length();
+    }
+
+    /**
+     * Return true if the given window is an RFC 5322 phrase, as a group name must be: one or
+     * more atoms and quoted strings, with dots after the first word (obs-phrase), whitespace
+     * and comments between them.
+     */
+    private boolean isPhrase(int start, int end) {
+      boolean hasWord = false;
+      int commentDepth = 0;
+
+      for (int i = start; i < end; i++) {
+        char c = header.charAt(i);
+
+        if (commentDepth > 0) {
+          if (c == '\\') i++;
+          else if (c == '(') commentDepth++;
+          else if (c == ')') commentDepth--;
+        } else if (c == '(') {
+          commentDepth = 1;
+        } else if (c == '"') {
+          for (i++; i < end && header.charAt(i) != '"'; i++) {
+            if (header.charAt(i) == '\\') i++;
+          }
+          if (i >= end) return false;
+          hasWord = true;
+        } else if (c == '.') {
+          if (!hasWord) return false;
+        } else if (isAtext(c)) {
+          hasWord = true;
+        } else if (!isWhitespace(c)) {
+          return false;
+        }
+      }
+
+      return hasWord && commentDepth == 0;
+    }
+
+    /**
+     * Return true if the given window contains anything besides whitespace and comments.
+     */
+    private boolean hasContent(int start, int end) {
+      int commentDepth = 0;
+
+      for (int i = start; i < end; i++) {
+        char c = header.charAt(i);
+
+        if (commentDepth > 0) {
+          if (c == '\\') i++;
+          else if (c == '(') commentDepth++;
+          else if (c == ')') commentDepth--;
+        } else if (c == '(') {
+          commentDepth = 1;
+        } else if (!isWhitespace(c)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+  // Non-ASCII characters are allowed in atoms (RFC 6532), except the control pictures
+  private static boolean isAtext(char c) {
+    return c < 128
+        ? CharacterClass.is(c, CharacterClass.ATOM)
+        : !CharacterClass.isDisallowedUnquoted(c);
+  }
+
+  // Folded header lines may also continue with a tab
+  private static boolean isWhitespace(char c) {
+    return CharacterClass.isWhitespace(c) || c == '\t';
+  }
+}
@@ -0,0 +1,27 @@
+package jmail;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An {@link EmailValidationRule} that can decide without blocking the calling thread, for
+ * example by waiting on a non-blocking network client.
+ *
+ * <p>{@link EmailValidator#validateAsync(String)} composes the returned stage instead of
+ * running the rule on an executor. The synchronous methods of {@link EmailValidator} still
+ * call {@link #validate(Email)}, which waits for the stage by default.
+ */
+public interface AsyncEmailValidationRule extends EmailValidationRule {
+
+  /**
+   * Decide asynchronously whether the given email address passes this rule.
+   *
+   * @param email the email address to validate
+   * @return a stage that completes with true if the email address passes this rule
+   */
+  CompletionStage<Boolean> validateAsync(Email email);
+
+  @Override
+  default boolean validate(Email email) {
+    return validateAsync(email).toCompletableFuture().join();
+  }
+}
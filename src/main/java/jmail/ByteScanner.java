@@ -0,0 +1,78 @@
+package jmail;
+
+import jmail.util.CharacterClass;
+
+/**
+ * Finds character classes in runs of UTF-8 encoded bytes, so that callers can skip over the
+ * bytes that need no attention one block at a time instead of one character at a time.
+ *
+ * <p>This class is the scalar implementation. On Java 17 and later, the multi-release JAR also
+ * contains a {@code VectorByteScanner} that uses the incubating Vector API. It is used when the
+ * {@code jmail.scan.vector} system property is set to {@code true} and the
+ * {@code jdk.incubator.vector} module is available (for example with
+ * {@code --add-modules jdk.incubator.vector}). Both implementations return the same results.
+ */
+class ByteScanner {
+  private static final String VECTOR_SCANNER = "jmail.VectorByteScanner";
+
+  /**
+   * The implementation selected for this runtime.
+   */
+  static final ByteScanner INSTANCE = create();
+
+  /**
+   * Find the first byte in the given range that is not ASCII.
+   *
+   * @param bytes the bytes to scan
+   * @param from the index of the first byte to scan
+   * @param to the index after the last byte to scan
+   * @return the index of the first non-ASCII byte, or {@code to} if there is none
+   */
+  int indexOfNonAscii(byte[] bytes, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] < 0) return i;
+    }
+
+    return to;
+  }
+
+  /**
+   * Find the first byte in the given range that is not an ASCII atom character (see
+   * {@link CharacterClass#ATOM}). These are the bytes the parsers must look at one by one,
+   * such as {@code '@'}, {@code '.'}, quotes, comments, angle brackets, whitespace and
+   * non-ASCII bytes.
+   *
+   * @param bytes the bytes to scan
+   * @param from the index of the first byte to scan
+   * @param to the index after the last byte to scan
+   * @return the index of the first special byte, or {@code to} if there is none
+   */
+  int indexOfSpecial(byte[] bytes, int from, int to) {
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b < 0 || !CharacterClass.isAtom((char) b)) return i;
+    }
+
+    return to;
+  }
+
+  /**
+   * Return true if this implementation uses vector instructions.
+   *
+   * @return true if this implementation is vectorized
+   */
+  boolean isVectorized() {
+    return false;
+  }
+
+  private static ByteScanner create() {
+    if (!JmailProperties.vectorScanning()) return new ByteScanner();
+
+    try {
+      return (ByteScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Not running from the Java 17 layer, or the incubator module is not available
+      return new ByteScanner();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package jmail;
+
+/**
+ * Finds the extent of a comment within an email address. Comments are scanned by offset into
+ * the original input without copying or recursing, so each comment is examined exactly once
+ * and parsing stays linear in the length of the address.
+ */
+final class CommentScanner {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private CommentScanner() {
+  }
+
+  /**
+   * Find the end of the comment that starts at {@code start}, which must be the index of a
+   * {@code '('} character. Nested comments are allowed up to {@code maxDepth} levels deep,
+   * counting the outermost comment as the first level.
+   *
+   * @param s the input that contains the comment
+   * @param start the index of the opening parenthesis
+   * @param end the index at which to stop searching
+   * @param maxDepth the maximum allowed nesting depth
+   * @return the index just after the closing parenthesis, or {@code -1} if the comment is
+   *         not closed before {@code end} or is nested too deeply
+   */
+  static int findEnd(CharSequence s, int start, int end, int maxDepth) {
+    int depth = 0;
+    boolean previousBackslash = false;
+
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+
+      if (c == '(' && !previousBackslash) {
+        if (++depth > maxDepth) return -1;
+      } else if (c == ')' && !previousBackslash && --depth == 0) {
+        return i + 1;
+      }
+
+      // Unlike in quotes, a backslash always escapes the next character within a comment
+      previousBackslash = c == '\\';
+    }
+
+    return -1;
+  }
+}
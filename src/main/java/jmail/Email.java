@@ -1,5 +1,9 @@
 package jmail;
 
+import jmail.util.CharacterClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -7,65 +11,62 @@ import java.util.Objects;
 
 /**
  * Represents an email address.
+ *
+ * <p>An {@code Email} keeps the string it was parsed from along with the offsets of its parts,
+ * and derives each part on first use. Derived values are immutable, so caching them without
+ * synchronization is safe: a racing thread at worst derives the same value again.
  */
 public final class Email {
-  private final String localPart;
-  private final String localPartWithoutComments;
-  private final String localPartWithoutQuotes;
-  private final String domain;
-  private final String domainWithoutComments;
-  private final String fullSourceRoute;
-  private final String identifier;
-  private final List<String> domainParts;
-  private final List<String> comments;
+  // Layout of the offsets array. The header is followed by the start and end of each comment,
+  // then by the positions of the quotes that are kept in localPartWithoutQuotes.
+  private static final int IDENTIFIER_START = 0;
+  private static final int IDENTIFIER_END = 1;
+  private static final int SOURCE_ROUTE_START = 2;
+  private static final int LOCAL_PART_START = 3;
+  private static final int AT = 4;
+  private static final int IP_ADDRESS_START = 5;
+  private static final int END = 6;
+  private static final int COMMENT_COUNT = 7;
+  private static final int HEADER_LENGTH = 8;
+
+  private final String source;
+  private final int[] offsets;
   private final List<String> sourceRoutes;
   private final boolean isIpAddress;
   private final boolean containsWhitespace;
   private final boolean isAscii;
-  private final boolean hasIdentifier;
-  private final TopLevelDomain tld;
-
-  Email(String localPart, String localPartWithoutComments, String localPartWithoutQuotes,
-        String domain, String domainWithoutComments,
-        String fullSourceRoute, String identifier,
-        List<String> domainParts, List<String> comments, List<String> sourceRoutes,
-        boolean isIpAddress, boolean containsWhitespace, boolean isAscii) {
-    this.localPart = localPart;
-    this.localPartWithoutComments = localPartWithoutComments;
-    this.localPartWithoutQuotes = localPartWithoutQuotes;
-    this.domain = domain;
-    this.domainWithoutComments = domainWithoutComments;
-    this.fullSourceRoute = fullSourceRoute;
-    this.identifier = identifier;
-    this.domainParts = Collections.unmodifiableList(domainParts);
-    this.comments = Collections.unmodifiableList(comments);
+
+  private String localPart;
+  private String localPartWithoutComments;
+  private String localPartWithoutQuotes;
+  private String domain;
+  private String domainWithoutComments;
+  private String identifier;
+  private List<String> domainParts;
+  private List<String> comments;
+  private TopLevelDomain tld;
+
+  Email(String source, EmailParsingContext context, List<String> sourceRoutes) {
+    this.source = source;
     this.sourceRoutes = Collections.unmodifiableList(sourceRoutes);
-    this.isIpAddress = isIpAddress;
-    this.containsWhitespace = containsWhitespace;
-    this.isAscii = isAscii;
-    this.hasIdentifier = identifier != null && identifier.length() > 0;
-
-    this.tld = domainParts.size() > 1
-        ? TopLevelDomain.fromString(domainParts.get(domainParts.size() - 1))
-        : TopLevelDomain.NONE;
-  }
+    this.isIpAddress = context.isIpAddress;
+    this.containsWhitespace = context.containsWhiteSpace;
+    this.isAscii = context.isAscii;
 
-  Email(Email other, String identifier) {
-    this.localPart = other.localPart;
-    this.localPartWithoutComments = other.localPartWithoutComments;
-    this.localPartWithoutQuotes = other.localPartWithoutQuotes;
-    this.domain = other.domain;
-    this.domainWithoutComments = other.domainWithoutComments;
-    this.fullSourceRoute = other.fullSourceRoute;
-    this.identifier = identifier;
-    this.domainParts = other.domainParts;
-    this.comments = other.comments;
-    this.sourceRoutes = other.sourceRoutes;
-    this.isIpAddress = other.isIpAddress;
-    this.containsWhitespace = other.containsWhitespace;
-    this.isAscii = other.isAscii;
-    this.hasIdentifier = identifier != null && identifier.length() > 0;
-    this.tld = other.tld;
+    int[] offsets = new int[HEADER_LENGTH + context.commentOffsetCount + context.keptQuoteCount];
+    offsets[IDENTIFIER_START] = context.identifierStart;
+    offsets[IDENTIFIER_END] = context.identifierEnd;
+    offsets[SOURCE_ROUTE_START] = context.sourceRouteStart;
+    offsets[LOCAL_PART_START] = context.localPartStart;
+    offsets[AT] = context.atIndex;
+    offsets[IP_ADDRESS_START] = context.ipAddressStart;
+    offsets[END] = context.end;
+    offsets[COMMENT_COUNT] = context.commentOffsetCount / 2;
+    System.arraycopy(context.commentOffsets, 0, offsets, HEADER_LENGTH,
+        context.commentOffsetCount);
+    System.arraycopy(context.keptQuotes, 0, offsets,
+        HEADER_LENGTH + context.commentOffsetCount, context.keptQuoteCount);
+    this.offsets = offsets;
   }
 
   /**
@@ -88,6 +89,12 @@ public final class Email {
    * @return the local-part string
    */
   public String localPart() {
+    String localPart = this.localPart;
+    if (localPart == null) {
+      localPart = source.substring(offsets[LOCAL_PART_START], offsets[AT]);
+      this.localPart = localPart;
+    }
+
     return localPart;
   }
 
@@ -100,6 +107,12 @@ public final class Email {
    * @return the local-part string without comments
    */
   public String localPartWithoutComments() {
+    String localPartWithoutComments = this.localPartWithoutComments;
+    if (localPartWithoutComments == null) {
+      localPartWithoutComments = withoutComments(offsets[LOCAL_PART_START], offsets[AT]);
+      this.localPartWithoutComments = localPartWithoutComments;
+    }
+
     return localPartWithoutComments;
   }
 
@@ -110,6 +123,14 @@ public final class Email {
    * @return the domain string
    */
   public String domain() {
+    String domain = this.domain;
+    if (domain == null) {
+      domain = isIpAddress
+          ? source.substring(offsets[AT] + 1, offsets[IP_ADDRESS_START]) + domainWithoutComments()
+          : source.substring(offsets[AT] + 1, offsets[END]);
+      this.domain = domain;
+    }
+
     return domain;
   }
 
@@ -122,6 +143,14 @@ public final class Email {
    * @return the domain string without comments
    */
   public String domainWithoutComments() {
+    String domainWithoutComments = this.domainWithoutComments;
+    if (domainWithoutComments == null) {
+      domainWithoutComments = isIpAddress
+          ? source.substring(offsets[IP_ADDRESS_START] + 1, offsets[END] - 1)
+          : withoutComments(offsets[AT] + 1, offsets[END]);
+      this.domainWithoutComments = domainWithoutComments;
+    }
+
     return domainWithoutComments;
   }
 
@@ -132,6 +161,12 @@ public final class Email {
    * @return the identifier of the email or {@code null} if it does not have one
    */
   public String identifier() {
+    String identifier = this.identifier;
+    if (identifier == null && offsets[IDENTIFIER_START] >= 0) {
+      identifier = source.substring(offsets[IDENTIFIER_START], offsets[IDENTIFIER_END]);
+      this.identifier = identifier;
+    }
+
     return identifier;
   }
 
@@ -143,6 +178,14 @@ public final class Email {
    * @return the list of domain part strings
    */
   public List<String> domainParts() {
+    List<String> domainParts = this.domainParts;
+    if (domainParts == null) {
+      domainParts = isIpAddress
+          ? Collections.singletonList(domainWithoutComments())
+          : splitDomainParts(domainWithoutComments());
+      this.domainParts = domainParts;
+    }
+
     return domainParts;
   }
 
@@ -153,6 +196,19 @@ public final class Email {
    * @return the list of comment strings
    */
   public List<String> comments() {
+    List<String> comments = this.comments;
+    if (comments == null) {
+      String[] values = new String[offsets[COMMENT_COUNT]];
+      for (int i = 0; i < values.length; i++) {
+        int start = offsets[HEADER_LENGTH + 2 * i];
+        int end = offsets[HEADER_LENGTH + 2 * i + 1];
+        values[i] = source.substring(start + 1, end - 1);
+      }
+
+      comments = Collections.unmodifiableList(Arrays.asList(values));
+      this.comments = comments;
+    }
+
     return comments;
   }
 
@@ -215,7 +271,7 @@ public final class Email {
    * @return true if this email has en identifier, false otherwise
    */
   public boolean hasIdentifier() {
-    return hasIdentifier;
+    return offsets[IDENTIFIER_END] > offsets[IDENTIFIER_START];
   }
 
   /**
@@ -226,6 +282,15 @@ public final class Email {
    *         if the email does not have a top level domain
    */
   public TopLevelDomain topLevelDomain() {
+    TopLevelDomain tld = this.tld;
+    if (tld == null) {
+      List<String> domainParts = domainParts();
+      tld = domainParts.size() > 1
+          ? TopLevelDomain.fromString(domainParts.get(domainParts.size() - 1))
+          : TopLevelDomain.NONE;
+      this.tld = tld;
+    }
+
     return tld;
   }
 
@@ -266,12 +331,12 @@ public final class Email {
    */
   public String normalized(boolean stripQuotes, boolean lowerCase) {
     String domain = isIpAddress
-        ? "[" + this.domainWithoutComments + "]"
-        : this.domainWithoutComments;
+        ? "[" + domainWithoutComments() + "]"
+        : domainWithoutComments();
 
     String localPart = stripQuotes
-        ? localPartWithoutQuotes
-        : localPartWithoutComments;
+        ? localPartWithoutQuotes()
+        : localPartWithoutComments();
 
     localPart = lowerCase
             ? localPart.toLowerCase()
@@ -288,13 +353,13 @@ public final class Email {
    */
   @Override
   public String toString() {
-    String fixedDomain = isIpAddress ? "[" + domain + "]" : domain;
-    String fixedLocalPart = fullSourceRoute + localPart;
+    String fixedDomain = isIpAddress ? "[" + domain() + "]" : domain();
+    String fixedLocalPart = fullSourceRoute() + localPart();
 
     String addr = fixedLocalPart + "@" + fixedDomain;
 
-    return hasIdentifier
-        ? identifier + "<" + addr + ">"
+    return hasIdentifier()
+        ? identifier() + "<" + addr + ">"
         : addr;
   }
 
@@ -303,28 +368,106 @@ public final class Email {
     if (this == o) return true;
     if (!(o instanceof Email)) return false;
     Email email = (Email) o;
-    return Objects.equals(localPart, email.localPart)
-        && Objects.equals(localPartWithoutComments, email.localPartWithoutComments)
-        && Objects.equals(localPartWithoutQuotes, email.localPartWithoutQuotes)
-        && Objects.equals(domain, email.domain)
-        && Objects.equals(domainWithoutComments, email.domainWithoutComments)
-        && Objects.equals(fullSourceRoute, email.fullSourceRoute)
-        && Objects.equals(identifier, email.identifier)
-        && Objects.equals(domainParts, email.domainParts)
+    return Objects.equals(localPart(), email.localPart())
+        && Objects.equals(localPartWithoutComments(), email.localPartWithoutComments())
+        && Objects.equals(localPartWithoutQuotes(), email.localPartWithoutQuotes())
+        && Objects.equals(domain(), email.domain())
+        && Objects.equals(domainWithoutComments(), email.domainWithoutComments())
+        && Objects.equals(fullSourceRoute(), email.fullSourceRoute())
+        && Objects.equals(identifier(), email.identifier())
+        && Objects.equals(domainParts(), email.domainParts())
         && Objects.equals(sourceRoutes, email.sourceRoutes)
-        && Objects.equals(comments, email.comments)
+        && Objects.equals(comments(), email.comments())
         && Objects.equals(isIpAddress, email.isIpAddress)
         && Objects.equals(containsWhitespace, email.containsWhitespace)
         && Objects.equals(isAscii, email.isAscii)
-        && Objects.equals(hasIdentifier, email.hasIdentifier)
-        && Objects.equals(tld, email.tld);
+        && Objects.equals(hasIdentifier(), email.hasIdentifier())
+        && Objects.equals(topLevelDomain(), email.topLevelDomain());
   }
 
   @Override
   public int hashCode() {
     return Objects.hash(
-        localPart, localPartWithoutComments, localPartWithoutQuotes, domain, domainWithoutComments,
-        fullSourceRoute, identifier, domainParts, sourceRoutes, comments, isIpAddress,
-        containsWhitespace, isAscii, hasIdentifier, tld);
+        localPart(), localPartWithoutComments(), localPartWithoutQuotes(), domain(),
+        domainWithoutComments(), fullSourceRoute(), identifier(), domainParts(), sourceRoutes,
+        comments(), isIpAddress, containsWhitespace, isAscii, hasIdentifier(), topLevelDomain());
+  }
+
+  private String fullSourceRoute() {
+    return source.substring(offsets[SOURCE_ROUTE_START], offsets[LOCAL_PART_START]);
+  }
+
+  // Quotes are dropped from the local-part unless they belong to a quoted string that cannot
+  // be unquoted, whose quotes the parser recorded as kept
+  private String localPartWithoutQuotes() {
+    String localPartWithoutQuotes = this.localPartWithoutQuotes;
+    if (localPartWithoutQuotes == null) {
+      int start = offsets[LOCAL_PART_START];
+      int end = offsets[AT];
+      int comment = HEADER_LENGTH;
+      int keptQuote = HEADER_LENGTH + 2 * offsets[COMMENT_COUNT];
+
+      StringBuilder builder = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+        if (comment < HEADER_LENGTH + 2 * offsets[COMMENT_COUNT] && offsets[comment] == i) {
+          i = offsets[comment + 1] - 1;
+          comment += 2;
+          continue;
+        }
+
+        char c = source.charAt(i);
+        if (c == '"') {
+          if (keptQuote >= offsets.length || offsets[keptQuote] != i) continue;
+          keptQuote++;
+        }
+
+        builder.append(c);
+      }
+
+      localPartWithoutQuotes = builder.toString();
+      this.localPartWithoutQuotes = localPartWithoutQuotes;
+    }
+
+    return localPartWithoutQuotes;
+  }
+
+  private String withoutComments(int start, int end) {
+    StringBuilder builder = null;
+    int copied = start;
+
+    for (int i = 0, count = offsets[COMMENT_COUNT]; i < count; i++) {
+      int commentStart = offsets[HEADER_LENGTH + 2 * i];
+      int commentEnd = offsets[HEADER_LENGTH + 2 * i + 1];
+      if (commentStart < start || commentEnd > end) continue;
+
+      if (builder == null) builder = new StringBuilder(end - start);
+      builder.append(source, copied, commentStart);
+      copied = commentEnd;
+    }
+
+    if (builder == null) return source.substring(start, end);
+
+    return builder.append(source, copied, end).toString();
+  }
+
+  // The domain parts exclude whitespace, which is only allowed around the dots
+  private static List<String> splitDomainParts(String domain) {
+    List<String> parts = new ArrayList<>();
+    StringBuilder part = new StringBuilder();
+
+    for (int i = 0, size = domain.length(); i < size; i++) {
+      char c = domain.charAt(i);
+
+      if (c == '.') {
+        parts.add(part.toString());
+        part.setLength(0);
+      } else if (!CharacterClass.isWhitespace(c)) {
+        part.append(c);
+      }
+    }
+
+    parts.add(part.toString());
+
+    return Collections.unmodifiableList(Arrays.asList(parts.toArray(new String[0])));
   }
 }
@@ -0,0 +1,362 @@
+package jmail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Finds duplicate email addresses by their {@link Email#normalized()} form, using a fixed amount
+ * of memory per address regardless of its length.
+ *
+ * <p>Instead of the normalized strings, the deduplicator keeps a 128-bit fingerprint (MurmurHash3)
+ * of each one in an open-addressing hash table outside of the Java heap, either in direct byte
+ * buffers or in a memory-mapped file. Each entry takes 16 bytes, so 100 million addresses need
+ * about 2 to 4 GB of off-heap memory. Two different addresses are only mistaken for duplicates if
+ * their fingerprints collide, which is negligible at any practical scale.
+ *
+ * <p>The table is split into independently locked segments, so any number of threads can add
+ * addresses at once, for example from a parallel stream:
+ *
+ * <pre>{@code
+ * try (EmailDeduplicator deduplicator = EmailDeduplicator.offHeap(100_000_000)) {
+ *   validator.validateAll(addresses.parallelStream())
+ *       .map(EmailValidationResult::getEmail)
+ *       .filter(Optional::isPresent)
+ *       .map(Optional::get)
+ *       .filter(deduplicator::add)
+ *       .forEach(unique -> ...);
+ * }
+ * }</pre>
+ */
+public final class EmailDeduplicator implements AutoCloseable {
+  private static final int SEGMENT_BITS = 6;
+  private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+  private static final int ENTRY_SIZE = 16;
+  private static final int MIN_SEGMENT_SLOTS = 16;
+  private static final int MAX_SEGMENT_SLOTS = 1 << 26;
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+  private final Storage storage;
+
+  private EmailDeduplicator(Storage storage, long expectedAddresses) {
+    this.storage = storage;
+
+    // Sized so that the expected number of addresses fills the table to at most half
+    long perSegment = Math.max(MIN_SEGMENT_SLOTS, 2 * expectedAddresses / SEGMENT_COUNT);
+    int slots = (int) Math.min(MAX_SEGMENT_SLOTS, Long.highestOneBit(perSegment - 1) << 1);
+
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment(storage, slots);
+    }
+  }
+
+  /**
+   * Create a deduplicator that keeps its table in direct byte buffers. The table grows as
+   * needed, but sizing it for the expected number of addresses avoids rehashing.
+   *
+   * @param expectedAddresses the number of distinct addresses expected
+   * @return the new deduplicator
+   */
+  public static EmailDeduplicator offHeap(long expectedAddresses) {
+    return new EmailDeduplicator(new DirectStorage(), expectedAddresses);
+  }
+
+  /**
+   * Create a deduplicator that keeps its table in the given file, mapped into memory. The file
+   * is created (or truncated), grows with the table, and is deleted when the deduplicator is
+   * closed.
+   *
+   * @param file the file to keep the table in
+   * @param expectedAddresses the number of distinct addresses expected
+   * @return the new deduplicator
+   * @throws IOException if the file cannot be created or mapped
+   */
+  public static EmailDeduplicator mapped(Path file, long expectedAddresses) throws IOException {
+    MappedStorage storage = new MappedStorage(file);
+
+    try {
+      return new EmailDeduplicator(storage, expectedAddresses);
+    } catch (UncheckedIOException e) {
+      storage.close();
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Add the normalized form of the given email address.
+   *
+   * @param email the email address to add
+   * @return true if the address was not seen before, or false if it is a duplicate
+   * @throws IllegalStateException if the table cannot grow any further
+   */
+  public boolean add(Email email) {
+    return add(email.normalized());
+  }
+
+  /**
+   * Add the given normalized email address. The address is compared as is, so it should come
+   * from {@link Email#normalized()}.
+   *
+   * @param normalized the normalized email address to add
+   * @return true if the address was not seen before, or false if it is a duplicate
+   * @throws IllegalStateException if the table cannot grow any further
+   */
+  public boolean add(CharSequence normalized) {
+    long[] fingerprint = fingerprint(normalized);
+    long high = fingerprint[0];
+    long low = fingerprint[1];
+
+    // The all-zero fingerprint marks an empty slot
+    if (high == 0 && low == 0) low = 1;
+
+    return segments[(int) (high >>> (64 - SEGMENT_BITS))].add(high, low);
+  }
+
+  /**
+   * Return the addresses of the given stream that were not seen before, marking each of them
+   * as seen.
+   *
+   * @param emails the email addresses to deduplicate
+   * @return a lazy stream of the first occurrence of each address
+   */
+  public Stream<Email> distinct(Stream<Email> emails) {
+    return emails.filter(this::add);
+  }
+
+  /**
+   * Return the addresses of the given stream that were seen before, marking each of them as
+   * seen.
+   *
+   * @param emails the email addresses to check
+   * @return a lazy stream of the repeated occurrences of each address
+   */
+  public Stream<Email> duplicates(Stream<Email> emails) {
+    return emails.filter(email -> !add(email));
+  }
+
+  /**
+   * Get the number of distinct addresses added so far.
+   *
+   * @return the number of distinct addresses
+   */
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) size += segment.size();
+    return size;
+  }
+
+  /**
+   * Release the table. For a memory-mapped table, this deletes the file. Direct buffers are
+   * released once they are garbage collected.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    storage.close();
+  }
+
+  /**
+   * Compute the 128-bit MurmurHash3 (x64 variant) of the UTF-16 code units of the given text.
+   */
+  static long[] fingerprint(CharSequence text) {
+    final long c1 = 0x87c37b91114253d5L;
+    final long c2 = 0x4cf5ad432745937fL;
+
+    long h1 = 0;
+    long h2 = 0;
+    int length = text.length();
+    int blocks = length / 8;
+
+    for (int block = 0; block < blocks; block++) {
+      int i = block * 8;
+      long k1 = pack(text, i, 4);
+      long k2 = pack(text, i + 4, 4);
+
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    int tail = blocks * 8;
+    int remaining = length - tail;
+
+    if (remaining > 4) {
+      long k2 = pack(text, tail + 4, remaining - 4);
+      k2 *= c2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= c1;
+      h2 ^= k2;
+    }
+    if (remaining > 0) {
+      long k1 = pack(text, tail, Math.min(remaining, 4));
+      k1 *= c1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= c2;
+      h1 ^= k1;
+    }
+
+    h1 ^= 2L * length;
+    h2 ^= 2L * length;
+    h1 += h2;
+    h2 += h1;
+    h1 = mix(h1);
+    h2 = mix(h2);
+    h1 += h2;
+    h2 += h1;
+
+    return new long[] {h1, h2};
+  }
+
+  private static long pack(CharSequence text, int start, int count) {
+    long packed = 0;
+    for (int i = 0; i < count; i++) {
+      packed |= (long) text.charAt(start + i) << (16 * i);
+    }
+    return packed;
+  }
+
+  private static long mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  /**
+   * One independently locked part of the table, using linear probing. Each slot holds the two
+   * halves of a fingerprint, and is empty while both are zero.
+   */
+  private static final class Segment {
+    private final Storage storage;
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    private Segment(Storage storage, int slots) {
+      this.storage = storage;
+      this.table = storage.allocate(slots * ENTRY_SIZE);
+      this.mask = slots - 1;
+    }
+
+    private synchronized boolean add(long high, long low) {
+      if (size >= (mask + 1) / 4 * 3) grow();
+
+      if (!insert(table, mask, high, low)) return false;
+
+      size++;
+      return true;
+    }
+
+    private synchronized long size() {
+      return size;
+    }
+
+    private void grow() {
+      int slots = mask + 1;
+      if (slots >= MAX_SEGMENT_SLOTS) {
+        throw new IllegalStateException("The deduplication table is full");
+      }
+
+      ByteBuffer grown = storage.allocate(2 * slots * ENTRY_SIZE);
+      int grownMask = 2 * slots - 1;
+
+      for (int slot = 0; slot < slots; slot++) {
+        long high = table.getLong(slot * ENTRY_SIZE);
+        long low = table.getLong(slot * ENTRY_SIZE + 8);
+        if (high != 0 || low != 0) insert(grown, grownMask, high, low);
+      }
+
+      table = grown;
+      mask = grownMask;
+    }
+
+    private static boolean insert(ByteBuffer table, int mask, long high, long low) {
+      for (int slot = (int) low & mask; ; slot = (slot + 1) & mask) {
+        int offset = slot * ENTRY_SIZE;
+        long slotHigh = table.getLong(offset);
+        long slotLow = table.getLong(offset + 8);
+
+        if (slotHigh == 0 && slotLow == 0) {
+          table.putLong(offset, high);
+          table.putLong(offset + 8, low);
+          return true;
+        }
+
+        if (slotHigh == high && slotLow == low) return false;
+      }
+    }
+  }
+
+  /**
+   * Provides the zero-filled off-heap memory of the table.
+   */
+  private interface Storage {
+    ByteBuffer allocate(int bytes);
+
+    void close() throws IOException;
+  }
+
+  private static final class DirectStorage implements Storage {
+
+    @Override
+    public ByteBuffer allocate(int bytes) {
+      return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Maps each allocation to a new region at the end of the file. Regions left behind by a
+   * segment that grew are not reused.
+   */
+  private static final class MappedStorage implements Storage {
+    private final FileChannel channel;
+    private long end;
+
+    private MappedStorage(Path file) throws IOException {
+      this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    @Override
+    public synchronized ByteBuffer allocate(int bytes) {
+      try {
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, end, bytes);
+        end += bytes;
+        return region.order(ByteOrder.nativeOrder());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package jmail;
+
+import jmail.util.CharacterClass;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds the email addresses within free text, such as documents, web pages or log files.
+ *
+ * <p>The text is scanned once. Each {@code '@'} is taken as the anchor of a candidate, which is
+ * expanded to the left over the characters of a dot-atom local-part and to the right over the
+ * characters of a domain, ignoring dots and dashes at the very end (as in
+ * {@code "mail me at test@example.com."}). Each candidate is then validated with an
+ * {@link EmailValidator}, and valid candidates are returned in the order they appear.
+ *
+ * <p>The returned streams are lazy. Text is read from a {@link Reader} or file through a
+ * fixed-size window, so the memory used does not depend on the size of the input.
+ *
+ * <p>Quoted local-parts, comments and IP address literals are not extracted, since their
+ * boundaries cannot be told apart from the surrounding text.
+ */
+public final class EmailExtractor {
+  // Enough room behind an '@' for the longest local-part, and ahead of it for the longest domain
+  private static final int LOOK_BEHIND = JMail.MAX_LOCAL_PART_LENGTH + 1;
+  private static final int LOOK_AHEAD = JMail.MAX_DOMAIN_LENGTH + 64;
+  private static final int WINDOW_SIZE = 8192;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private EmailExtractor() {
+  }
+
+  /**
+   * Extract the email addresses that pass basic RFC validation from the given text.
+   *
+   * @param text the text to search
+   * @return a lazy stream of the email addresses found, with their offsets in the text
+   */
+  public static Stream<ExtractedEmail> extract(CharSequence text) {
+    return extract(text, JMail.validator());
+  }
+
+  /**
+   * Extract the email addresses that pass the given validator from the given text.
+   *
+   * @param text the text to search
+   * @param validator the validator that candidates must pass
+   * @return a lazy stream of the email addresses found, with their offsets in the text
+   */
+  public static Stream<ExtractedEmail> extract(CharSequence text, EmailValidator validator) {
+    return stream(new Extraction(text, null, validator));
+  }
+
+  /**
+   * Extract the email addresses that pass basic RFC validation from the given reader. The
+   * reader is read lazily as the stream is consumed, and is not closed by the stream.
+   * An {@link IOException} while reading is thrown as an {@link UncheckedIOException}.
+   *
+   * @param reader the text to search
+   * @return a lazy stream of the email addresses found, with their character offsets
+   */
+  public static Stream<ExtractedEmail> extract(Reader reader) {
+    return extract(reader, JMail.validator());
+  }
+
+  /**
+   * Extract the email addresses that pass the given validator from the given reader. The
+   * reader is read lazily as the stream is consumed, and is not closed by the stream.
+   * An {@link IOException} while reading is thrown as an {@link UncheckedIOException}.
+   *
+   * @param reader the text to search
+   * @param validator the validator that candidates must pass
+   * @return a lazy stream of the email addresses found, with their character offsets
+   */
+  public static Stream<ExtractedEmail> extract(Reader reader, EmailValidator validator) {
+    return stream(new Extraction("", reader, validator));
+  }
+
+  /**
+   * Extract the email addresses that pass basic RFC validation from the given UTF-8 encoded
+   * file. The file is memory-mapped one region at a time, and the returned stream must be
+   * closed to release it, for example with a try-with-resources statement.
+   *
+   * @param file the file to search
+   * @return a lazy stream of the email addresses found, with their character offsets
+   * @throws IOException if the file cannot be opened
+   */
+  public static Stream<ExtractedEmail> extract(Path file) throws IOException {
+    return extract(file, JMail.validator());
+  }
+
+  /**
+   * Extract the email addresses that pass the given validator from the given UTF-8 encoded
+   * file. The file is memory-mapped one region at a time, and the returned stream must be
+   * closed to release it, for example with a try-with-resources statement.
+   *
+   * @param file the file to search
+   * @param validator the validator that candidates must pass
+   * @return a lazy stream of the email addresses found, with their character offsets
+   * @throws IOException if the file cannot be opened
+   */
+  public static Stream<ExtractedEmail> extract(Path file, EmailValidator validator)
+      throws IOException {
+    return extract(file, validator, MappedFileReader.DEFAULT_REGION_SIZE);
+  }
+
+  static Stream<ExtractedEmail> extract(Path file, EmailValidator validator, int regionSize)
+      throws IOException {
+    Reader reader = new MappedFileReader(file, regionSize);
+
+    return extract(reader, validator).onClose(() -> {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private static Stream<ExtractedEmail> stream(Extraction extraction) {
+    return StreamSupport.stream(extraction, false);
+  }
+
+  private static boolean isLocalPartCharacter(char c) {
+    return CharacterClass.isAtom(c) || c == '.' || c >= 128 && Character.isLetterOrDigit(c);
+  }
+
+  private static boolean isDomainCharacter(char c) {
+    return c < 128
+        ? CharacterClass.isAllowedInDomain(c) && c != ' '
+        : Character.isLetterOrDigit(c);
+  }
+
+  /**
+   * The state of one extraction. The text is seen through a window, which is either the whole
+   * text, or a buffer that slides over the reader.
+   */
+  private static final class Extraction extends Spliterators.AbstractSpliterator<ExtractedEmail> {
+    private final Reader reader;
+    private final EmailValidator validator;
+    private final char[] buffer;
+
+    private CharSequence window;
+    private boolean complete;
+
+    private long base;     // the offset in the text of the first character of the window
+    private int position;  // where to look for the next '@'
+    private int floor;     // the end of the last address, which the next one cannot overlap
+
+    Extraction(CharSequence text, Reader reader, EmailValidator validator) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.reader = reader;
+      this.validator = validator;
+      this.window = text;
+      this.complete = reader == null;
+      this.buffer = reader == null ? null : new char[WINDOW_SIZE];
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ExtractedEmail> action) {
+      while (true) {
+        int at = indexOfAt(position);
+
+        if (at < 0) {
+          if (complete) return false;
+          position = window.length();
+          slide(Math.max(floor, window.length() - LOOK_BEHIND));
+          continue;
+        }
+
+        if (!complete && at + LOOK_AHEAD >= window.length()) {
+          slide(Math.max(floor, at - LOOK_BEHIND));
+          continue;
+        }
+
+        ExtractedEmail email = candidate(at);
+
+        if (email != null) {
+          action.accept(email);
+          return true;
+        }
+
+        position = at + 1;
+      }
+    }
+
+    private ExtractedEmail candidate(int at) {
+      int start = at;
+      while (start > floor && isLocalPartCharacter(window.charAt(start - 1))) {
+        if (at - start == JMail.MAX_LOCAL_PART_LENGTH) return null;
+        start--;
+      }
+
+      // An address directly next to another '@' is part of a larger token, such as a@b@c.com
+      if (start > 0 && window.charAt(start - 1) == '@') return null;
+      while (start < at && window.charAt(start) == '.') start++;
+
+      int limit = Math.min(window.length(), at + LOOK_AHEAD);
+      int end = at + 1;
+      while (end < limit && isDomainCharacter(window.charAt(end))) end++;
+      if (end == at + LOOK_AHEAD) return null;
+      if (end < window.length() && window.charAt(end) == '@') return null;
+
+      // Punctuation at the end belongs to the surrounding text
+      while (end > at + 1 && (window.charAt(end - 1) == '.' || window.charAt(end - 1) == '-')) {
+        end--;
+      }
+
+      if (start == at || end == at + 1) return null;
+
+      Optional<Email> email = validator.tryParse(window.subSequence(start, end).toString());
+      if (!email.isPresent()) return null;
+
+      position = floor = end;
+      return new ExtractedEmail(email.get(), base + start, base + end);
+    }
+
+    private int indexOfAt(int from) {
+      if (window instanceof String) return ((String) window).indexOf('@', from);
+
+      for (int i = from; i < window.length(); i++) {
+        if (window.charAt(i) == '@') return i;
+      }
+
+      return -1;
+    }
+
+    /**
+     * Move the window forward so that it starts at the given index, and fill the rest of it
+     * from the reader.
+     */
+    private void slide(int keep) {
+      int kept = window.length() - keep;
+      System.arraycopy(buffer, keep, buffer, 0, kept);
+
+      base += keep;
+      position = Math.max(0, position - keep);
+      floor = Math.max(0, floor - keep);
+
+      int length = kept;
+      try {
+        int read = 0;
+        while (read == 0) read = reader.read(buffer, length, buffer.length - length);
+
+        if (read < 0) complete = true;
+        else length += read;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      window = CharBuffer.wrap(buffer, 0, length);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package jmail;
+
+import java.util.Optional;
+
+/**
+ * A reusable email address parser. A parser keeps its parsing state between calls, so a loop
+ * that validates many addresses with the same parser allocates nothing but the results.
+ *
+ * <p>A parser is not thread-safe: use one per thread or worker. The static methods of
+ * {@link JMail} share a pool of parsing state instead, and are safe to call from any number of
+ * threads, including virtual threads.
+ */
+public final class EmailParser {
+  private final EmailParsingContext context = new EmailParsingContext();
+
+  /**
+   * Return true if the given email address passes basic RFC validation. See
+   * {@link JMail#tryParse(String)} for details on what is required of an email address within
+   * basic validation.
+   *
+   * @param email the email address to validate
+   * @return true if the given string is a valid email address, false otherwise
+   */
+  public boolean isValid(CharSequence email) {
+    return check(email) == FailureReason.NONE;
+  }
+
+  /**
+   * Check the given email address against basic RFC validation, returning only the
+   * {@link FailureReason}. See {@link JMail#check(CharSequence)} for details.
+   *
+   * @param email the email address to check
+   * @return the {@link FailureReason} that describes why the email address is invalid, or
+   *         {@link FailureReason#NONE} if it is valid
+   */
+  public FailureReason check(CharSequence email) {
+    FailureReason reason = EmailScanner.scan(email);
+
+    if (reason == null) return validate(email).getFailureReason();
+
+    return reason;
+  }
+
+  /**
+   * Determine if the given email address is valid, returning a new {@link EmailValidationResult}
+   * object that contains details on the result of the validation. See
+   * {@link JMail#validate(String)} for details.
+   *
+   * @param email the email address to validate
+   * @return a {@link EmailValidationResult} containing success or failure, along with the parsed
+   *         {@link Email} object if successful, or the {@link FailureReason} if not
+   */
+  public EmailValidationResult validate(CharSequence email) {
+    return JMail.validateInternal(email, context);
+  }
+
+  /**
+   * Parse the given email address into a new {@link Email} object. See
+   * {@link JMail#tryParse(String)} for details.
+   *
+   * @param email the email address to parse
+   * @return an {@link Optional} containing the parsed {@link Email}, or empty if the email
+   *         is invalid
+   */
+  public Optional<Email> tryParse(CharSequence email) {
+    return validate(email).getEmail();
+  }
+}
@@ -1,47 +1,129 @@
 package jmail;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class EmailParsingContext {
-	boolean atFound = false; // 是否找到 '@' 符號
-    boolean inQuotes = false; // 是否在引號內
-    boolean previousDot = false; // 前一個字符是否是 '.'
-    boolean previousBackslash = false; // 前一個字符是否是 '\'
-    boolean firstDomainChar = true; // 是否是域名的第一個字符
-    boolean isIpAddress = false; // 是否是 IP 地址
-    boolean requireAtOrDot = false; // 是否需要 '@' 或 '.'
-    boolean requireAtDotOrComment = false; // 是否需要 '@'、'.' 或 '('
-    boolean whitespace = false; // 是否在空白字符內
-    boolean previousComment = false; // 前一個字符是否是注釋結束
-    boolean requireAngledBracket = false; // 是否需要尖括號
-    boolean containsWhiteSpace = false; // 是否包含空白字符
-    boolean isAscii = true; // 是否是 ASCII 字符
-    boolean removableQuotePair = true; // 引號對是否可移除
-    boolean previousQuotedDot = false; // 引號內前一個字符是否是 '.'
-    boolean requireQuotedAtOrDot = false; // 引號內是否需要 '@' 或 '.'
-
-    StringBuilder localPart; // 本地部分
-    StringBuilder localPartWithoutComments; // 沒有注釋的本地部分
-    StringBuilder localPartWithoutQuotes; // 沒有引號的本地部分
-    StringBuilder currentQuote; // 當前引號內的內容
-    StringBuilder domain; // 域名部分
-    StringBuilder domainWithoutComments; // 沒有注釋的域名部分
-    StringBuilder currentDomainPart; // 當前域名部分
-    List<String> domainParts = new ArrayList<>(); // 域名部分列表
-    List<String> comments = new ArrayList<>(); // 注釋列表
-
-    int localPartCommentLength = 0; // 本地部分注釋長度
-    int domainCommentLength = 0; // 域名部分注釋長度
-    int charactersOnLine = 1; // 行上的字符數
-
-    EmailParsingContext(int size) {
-        localPart = new StringBuilder(size);
-        localPartWithoutComments = new StringBuilder(size);
-        localPartWithoutQuotes = new StringBuilder(size);
-        currentQuote = new StringBuilder();
-        domain = new StringBuilder(size);
-        domainWithoutComments = new StringBuilder(size);
-        currentDomainPart = new StringBuilder();
+	private static final int[] NONE = new int[0];
+
+	boolean atFound; // 是否找到 '@' 符號
+    boolean inQuotes; // 是否在引號內
+    boolean previousDot; // 前一個字符是否是 '.'
+    boolean previousBackslash; // 前一個字符是否是 '\'
+    boolean firstDomainChar; // 是否是域名的第一個字符
+    boolean isIpAddress; // 是否是 IP 地址
+    boolean requireAtOrDot; // 是否需要 '@' 或 '.'
+    boolean requireAtDotOrComment; // 是否需要 '@'、'.' 或 '('
+    boolean whitespace; // 是否在空白字符內
+    boolean previousComment; // 前一個字符是否是注釋結束
+    boolean requireAngledBracket; // 是否需要尖括號
+    boolean containsWhiteSpace; // 是否包含空白字符
+    boolean isAscii; // 是否是 ASCII 字符
+    boolean removableQuotePair; // 引號對是否可移除
+    boolean previousQuotedDot; // 引號內前一個字符是否是 '.'
+    boolean requireQuotedAtOrDot; // 引號內是否需要 '@' 或 '.'
+
+    int identifierStart; // 標識符的開始位置
+    int identifierEnd; // 標識符的結束位置
+    int sourceRouteStart; // 源路由的開始位置
+    int localPartStart; // 本地部分的開始位置
+    int atIndex; // '@' 符號的位置
+    int ipAddressStart; // IP 地址 '[' 的位置
+    int end; // 地址的結束位置
+
+    int localPartLength; // 本地部分長度（包括注釋）
+    char lastLocalPartChar; // 本地部分的最後一個字符
+    int quoteStart; // 當前引號的開始位置
+    int currentQuoteLength; // 當前引號內的內容長度
+
+    int domainLength; // 域名部分長度（包括注釋）
+    int domainPartCount; // 域名部分數量
+    int domainPartLength; // 當前域名部分長度（不包括空白字符）
+    char domainPartFirst; // 當前域名部分的第一個字符
+    char domainPartLast; // 當前域名部分的最後一個字符
+    boolean domainPartNumeric; // 當前域名部分是否全是數字
+    int labelLength; // IDN 看到的當前標籤長度
+    boolean validLabels; // ASCII 域名的標籤是否有效
+    boolean asciiDomain; // 域名是否只有 ASCII 字符
+
+    int localPartCommentLength; // 本地部分注釋長度
+    int domainCommentLength; // 域名部分注釋長度
+    int charactersOnLine; // 行上的字符數
+
+    int[] commentOffsets = NONE; // 注釋的開始和結束位置
+    int commentOffsetCount; // 注釋位置的數量
+    int[] keptQuotes = NONE; // 保留的引號位置
+    int keptQuoteCount; // 保留的引號數量
+
+    EmailParsingContext() {
+    }
+
+    /**
+     * Reset this context to parse the address in the window {@code [localPartStart, end)},
+     * keeping the arrays allocated by earlier parses.
+     */
+    void reset(int sourceRouteStart, int localPartStart, int end) {
+        atFound = false;
+        inQuotes = false;
+        previousDot = false;
+        previousBackslash = false;
+        firstDomainChar = true;
+        isIpAddress = false;
+        requireAtOrDot = false;
+        requireAtDotOrComment = false;
+        whitespace = false;
+        previousComment = false;
+        requireAngledBracket = false;
+        containsWhiteSpace = false;
+        isAscii = true;
+        removableQuotePair = true;
+        previousQuotedDot = false;
+        requireQuotedAtOrDot = false;
+
+        identifierStart = -1;
+        identifierEnd = -1;
+        this.sourceRouteStart = sourceRouteStart;
+        this.localPartStart = localPartStart;
+        atIndex = -1;
+        ipAddressStart = -1;
+        this.end = end;
+
+        localPartLength = 0;
+        lastLocalPartChar = 0;
+        quoteStart = -1;
+        currentQuoteLength = 0;
+
+        domainLength = 0;
+        domainPartCount = 1;
+        domainPartLength = 0;
+        domainPartFirst = 0;
+        domainPartLast = 0;
+        domainPartNumeric = true;
+        labelLength = 0;
+        validLabels = true;
+        asciiDomain = true;
+
+        localPartCommentLength = 0;
+        domainCommentLength = 0;
+        charactersOnLine = 1;
+
+        commentOffsetCount = 0;
+        keptQuoteCount = 0;
+    }
+
+    void addComment(int start, int end) {
+        commentOffsets = ensureCapacity(commentOffsets, commentOffsetCount + 2);
+        commentOffsets[commentOffsetCount++] = start;
+        commentOffsets[commentOffsetCount++] = end;
+    }
+
+    void keepQuotePair(int open, int close) {
+        keptQuotes = ensureCapacity(keptQuotes, keptQuoteCount + 2);
+        keptQuotes[keptQuoteCount++] = open;
+        keptQuotes[keptQuoteCount++] = close;
+    }
+
+    private static int[] ensureCapacity(int[] array, int capacity) {
+        if (array.length >= capacity) return array;
+        return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
     }
 }
@@ -0,0 +1,58 @@
+package jmail;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free pool of {@link EmailParsingContext} instances shared by all threads.
+ *
+ * <p>Each thread starts probing at a slot derived from its id, so platform threads mostly get
+ * their own context back, while any number of short-lived virtual threads share the same few
+ * slots instead of each holding a thread-local context. When all probed slots are empty a new
+ * context is created, and when all probed slots are full a released context is dropped.
+ */
+final class EmailParsingContextPool {
+  private static final int PROBES = 4;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private final AtomicReferenceArray<EmailParsingContext> slots;
+  private final int mask;
+  private final int shift;
+
+  EmailParsingContextPool(int size) {
+    int capacity = 1;
+    while (capacity < Math.min(size, MAX_CAPACITY)) capacity <<= 1;
+
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.mask = capacity - 1;
+    this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+  }
+
+  EmailParsingContext acquire() {
+    int start = startSlot();
+
+    for (int i = 0; i < PROBES; i++) {
+      int slot = (start + i) & mask;
+      EmailParsingContext context = slots.get(slot);
+
+      if (context != null && slots.compareAndSet(slot, context, null)) return context;
+    }
+
+    return new EmailParsingContext();
+  }
+
+  void release(EmailParsingContext context) {
+    int start = startSlot();
+
+    for (int i = 0; i < PROBES; i++) {
+      int slot = (start + i) & mask;
+
+      if (slots.get(slot) == null && slots.compareAndSet(slot, null, context)) return;
+    }
+  }
+
+  private int startSlot() {
+    long id = Thread.currentThread().getId();
+
+    return (int) (((int) (id ^ (id >>> 32)) * 0x9E3779B9 & 0xFFFFFFFFL) >>> shift);
+  }
+}
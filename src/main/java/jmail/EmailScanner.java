@@ -0,0 +1,383 @@
+package jmail;
+
+import jmail.net.InternetProtocolAddress;
+import jmail.util.CharacterClass;
+
+/**
+ * Validation-only implementation of the grammar parsed by {@link JMail}. The scanner walks
+ * the address once and keeps only the counters and flags needed to reach a verdict, so it
+ * never builds an {@link Email} and allocates nothing for the common case.
+ *
+ * <p>The scanner does not decide addresses whose domain (or source route) contains non-ASCII
+ * characters, since those require IDN conversion. For these addresses it returns {@code null}
+ * and callers must fall back to the full parser.
+ */
+final class EmailScanner {
+  private static final int INVALID = -1;
+  private static final int UNDECIDED = -2;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private EmailScanner() {
+  }
+
+  /**
+   * Return true if the given email address passes basic RFC validation. Falls back to the full
+   * parser for the inputs the scanner does not decide.
+   *
+   * @param email the email address to validate
+   * @return true if the given string is a valid email address, false otherwise
+   */
+  static boolean isValid(CharSequence email) {
+    FailureReason reason = scan(email);
+
+    if (reason == null) return JMail.validateInternal(email).isSuccess();
+
+    return reason == FailureReason.NONE;
+  }
+
+  /**
+   * Scan the given email address, returning the same {@link FailureReason} that
+   * {@link JMail#validate(String)} would return.
+   *
+   * @param email the email address to scan
+   * @return the reason for failure, {@link FailureReason#NONE} if the address is valid, or
+   *         {@code null} if the address must be handed to the full parser
+   */
+  static FailureReason scan(CharSequence email) {
+    FailureReason screened = PreScreen.screen(email);
+    if (screened != null) return screened;
+
+    return scan(email, 0, email.length());
+  }
+
+  private static FailureReason scan(CharSequence s, int start, int end) {
+    if (end - start < 3) return FailureReason.ADDRESS_TOO_SHORT;
+
+    if (s.charAt(start) == '@') {
+      int routeEnd = sourceRouteEnd(s, start, end);
+
+      if (routeEnd == UNDECIDED) return null;
+      if (routeEnd == INVALID) return FailureReason.BEGINS_WITH_AT_SYMBOL;
+
+      start = routeEnd;
+    }
+
+    int size = end - start;
+    if (size == 0) return FailureReason.ADDRESS_TOO_SHORT;
+    if (size > JMail.MAX_EMAIL_LENGTH) return FailureReason.ADDRESS_TOO_LONG;
+
+    char last = s.charAt(end - 1);
+    if (s.charAt(start) == '.') return FailureReason.STARTS_WITH_DOT;
+    if (last == '.') return FailureReason.ENDS_WITH_DOT;
+    if (last == '-') return FailureReason.DOMAIN_PART_ENDS_WITH_DASH;
+
+    boolean atFound = false;
+    boolean inQuotes = false;
+    boolean previousDot = false;
+    boolean previousBackslash = false;
+    boolean firstDomainChar = true;
+    boolean isIpAddress = false;
+    boolean requireAtOrDot = false;
+    boolean requireAtDotOrComment = false;
+    boolean whitespace = false;
+    boolean previousComment = false;
+    boolean requireAngledBracket = false;
+    int charactersOnLine = 1;
+
+    int localPartLength = 0;
+    int localPartCommentLength = 0;
+    char lastLocalPartChar = 0;
+
+    int domainLength = 0;
+    int domainCommentLength = 0;
+
+    // Tracks the current domain part (whitespace excluded) without copying it
+    int partLength = 0;
+    char partFirst = 0;
+    char partLast = 0;
+    boolean partNumeric = true;
+    boolean hasTopLevelDomain = false;
+
+    // Tracks the labels of the domain without comments, as IDN.toASCII would see them
+    int labelLength = 0;
+    boolean validLabels = true;
+    boolean asciiDomain = true;
+
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+
+      if (c == '<' && !inQuotes && !previousBackslash) {
+        if (last != '>') return FailureReason.UNQUOTED_ANGLED_BRACKET;
+
+        return scan(s, i + 1, end - 1);
+      }
+
+      if (c == '@' && !inQuotes && !previousBackslash) {
+        if (atFound) return FailureReason.MULTIPLE_AT_SYMBOLS;
+        if (requireAngledBracket) return FailureReason.INVALID_WHITESPACE;
+        atFound = true;
+        requireAtOrDot = requireAtDotOrComment = false;
+        whitespace = false;
+        previousDot = true;
+        continue;
+      }
+
+      if (!atFound && !inQuotes && !previousBackslash && !whitespace && !requireAtOrDot
+          && !requireAtDotOrComment && CharacterClass.isAtom(c)) {
+        // A run of atom characters in the local-part only needs to be counted
+        int runEnd = Utf8.indexOfSpecial(s, i + 1, end);
+        int runLength = runEnd - i;
+
+        charactersOnLine += runLength;
+        localPartLength += runLength;
+        lastLocalPartChar = s.charAt(runEnd - 1);
+        previousDot = false;
+        i = runEnd - 1;
+        continue;
+      }
+
+      if (c == '\n') {
+        if (charactersOnLine <= 0) return FailureReason.INVALID_WHITESPACE;
+        charactersOnLine = 0;
+      } else if (c != '\r') {
+        charactersOnLine++;
+      }
+
+      if (requireAtOrDot) {
+        if (!CharacterClass.isWhitespace(c) && c != '.') return FailureReason.INVALID_COMMENT_LOCATION;
+        requireAtOrDot = false;
+      }
+
+      if (requireAtDotOrComment) {
+        if (!CharacterClass.isWhitespace(c) && c != '.' && c != '(') return FailureReason.INVALID_QUOTE_LOCATION;
+        requireAtDotOrComment = false;
+      }
+
+      if (whitespace && !previousDot && !previousComment) {
+        if (c != '.' && c != '@' && c != '(' && !CharacterClass.isWhitespace(c)) {
+          if (!atFound) requireAngledBracket = true;
+          else return FailureReason.INVALID_WHITESPACE;
+        }
+      }
+
+      if (c == '(' && !inQuotes) {
+        int commentEnd = CommentScanner.findEnd(s, i, end, JmailProperties.maxCommentDepth());
+        if (commentEnd < 0) return FailureReason.INVALID_COMMENT;
+
+        if (!atFound && (i != start && !previousDot)) {
+          requireAtOrDot = true;
+        } else if (atFound && !firstDomainChar && !previousDot && commentEnd != end) {
+          requireAtOrDot = true;
+        }
+
+        int commentLength = commentEnd - i;
+        if (!atFound) {
+          localPartLength += commentLength;
+          localPartCommentLength += commentLength;
+          lastLocalPartChar = ')';
+        } else {
+          domainLength += commentLength;
+          domainCommentLength += commentLength;
+        }
+
+        previousComment = true;
+        i = commentEnd - 1;
+        continue;
+      }
+
+      if (c == '.' && previousDot && !inQuotes) return FailureReason.MULTIPLE_DOT_SEPARATORS;
+
+      if (!atFound) {
+        if (c == '"' && i > start && !previousDot && !inQuotes) {
+          return FailureReason.INVALID_QUOTE_LOCATION;
+        }
+
+        boolean mustBeQuoted = CharacterClass.isDisallowedUnquoted(c);
+        if (c != '"' && !inQuotes && !previousBackslash && mustBeQuoted) {
+          return FailureReason.DISALLOWED_UNQUOTED_CHARACTER;
+        }
+        if (!inQuotes && previousBackslash && !mustBeQuoted && c != ' ' && c != '\\') {
+          return FailureReason.UNUSED_BACKSLASH_ESCAPE;
+        }
+        if (inQuotes && !previousBackslash && CharacterClass.requiresEscapeInQuotes(c)) {
+          return FailureReason.MISSING_BACKSLASH_ESCAPE;
+        }
+
+        localPartLength++;
+        lastLocalPartChar = c;
+      } else {
+        if (firstDomainChar && c == '[') {
+          if (last != ']' || end - i < 3) return FailureReason.INVALID_IP_DOMAIN;
+
+          // IP domains are rare, so it is fine to fall back to the string based validators
+          String ip = s.subSequence(i + 1, end - 1).toString();
+          boolean validIp = ip.startsWith(JMail.IPV6_PREFIX)
+              ? InternetProtocolAddress.validateIpv6(ip.substring(JMail.IPV6_PREFIX.length()))
+                  .isPresent()
+              : InternetProtocolAddress.validateIpv4(ip).isPresent();
+          if (!validIp) return FailureReason.INVALID_IP_DOMAIN;
+
+          partLength = ip.length();
+          partFirst = ip.charAt(0);
+          partLast = ip.charAt(ip.length() - 1);
+          partNumeric = CharacterClass.isNumeric(ip);
+          domainLength += ip.length();
+          isIpAddress = true;
+          break;
+        }
+
+        if (c == '.') {
+          if (partLength == 0) return FailureReason.MULTIPLE_DOT_SEPARATORS;
+          if (partLength > JMail.MAX_DOMAIN_PART_LENGTH) return FailureReason.DOMAIN_PART_TOO_LONG;
+          if (partFirst == '-') return FailureReason.DOMAIN_PART_STARTS_WITH_DASH;
+          if (partLast == '-') return FailureReason.DOMAIN_PART_ENDS_WITH_DASH;
+
+          partLength = 0;
+          partNumeric = true;
+          hasTopLevelDomain = true;
+
+          if (labelLength == 0) validLabels = false;
+          labelLength = 0;
+        } else {
+          if (!CharacterClass.isWhitespace(c)) {
+            if (partLength == 0) partFirst = c;
+            partLast = c;
+            partLength++;
+            if (!CharacterClass.isDigit(c)) partNumeric = false;
+          }
+
+          if (c >= 128) asciiDomain = false;
+          if (++labelLength > JMail.MAX_DOMAIN_PART_LENGTH
+              || !CharacterClass.isAllowedInDomain(c)) {
+            validLabels = false;
+          }
+        }
+
+        domainLength++;
+        firstDomainChar = false;
+      }
+
+      if (c == '"' && !previousBackslash) {
+        if (inQuotes) requireAtDotOrComment = true;
+        inQuotes = !inQuotes;
+      }
+
+      whitespace = CharacterClass.isWhitespace(c) && !inQuotes && !previousBackslash;
+      if (!whitespace) previousDot = c == '.';
+      previousBackslash = c == '\\' && !previousBackslash;
+    }
+
+    if (!atFound) return FailureReason.MISSING_AT_SYMBOL;
+
+    int localPartLen = localPartLength - localPartCommentLength;
+    if (localPartLen == 0) return FailureReason.LOCAL_PART_MISSING;
+    if (localPartLen > JMail.MAX_LOCAL_PART_LENGTH) return FailureReason.LOCAL_PART_TOO_LONG;
+
+    int domainLen = domainLength - domainCommentLength;
+    if (domainLen == 0) return FailureReason.DOMAIN_MISSING;
+    if (domainLen > JMail.MAX_DOMAIN_LENGTH) return FailureReason.DOMAIN_TOO_LONG;
+
+    if (lastLocalPartChar == '.') return FailureReason.LOCAL_PART_ENDS_WITH_DOT;
+
+    if (partLength <= 0) return FailureReason.MISSING_TOP_LEVEL_DOMAIN;
+    if (partLength > JMail.MAX_DOMAIN_PART_LENGTH) return FailureReason.TOP_LEVEL_DOMAIN_TOO_LONG;
+    if (partFirst == '-') return FailureReason.DOMAIN_PART_STARTS_WITH_DASH;
+    if (partNumeric) return FailureReason.NUMERIC_TLD;
+
+    if (!isIpAddress) {
+      // Unicode domains need IDN conversion, leave those to the full parser
+      if (!asciiDomain) return null;
+      if (!validLabels) return FailureReason.INVALID_DOMAIN_CHARACTER;
+    }
+
+    // A top level domain can only end with a dash when followed by whitespace or a comment
+    if (hasTopLevelDomain && partLast == '-') return FailureReason.DOMAIN_PART_ENDS_WITH_DASH;
+
+    return FailureReason.NONE;
+  }
+
+  /**
+   * Find the end of the explicit source route at the start of the given address.
+   * Mirrors the rules of the source route parser in {@link JMail}.
+   *
+   * @return the index just after the source route, {@link #INVALID} if the route is not
+   *         valid, or {@link #UNDECIDED} if a route needs IDN conversion
+   */
+  private static int sourceRouteEnd(CharSequence s, int start, int end) {
+    boolean requireNewDomain = true;
+
+    int routeStart = start;
+    int partLength = 0;
+    char partFirst = 0;
+    char partLast = 0;
+    boolean partNumeric = true;
+
+    int i = start;
+
+    for (; i < end; i++) {
+      char c = s.charAt(i);
+
+      if (requireNewDomain && c != '@') return INVALID;
+      if (c == '@' && !requireNewDomain) return INVALID;
+
+      if (c == '.' || c == ',' || c == ':') {
+        if (partLength == 0 || partLength > JMail.MAX_DOMAIN_PART_LENGTH) return INVALID;
+        if (partFirst == '-' || partLast == '-') return INVALID;
+        if ((c == ',' || c == ':') && partNumeric) return INVALID;
+
+        partLength = 0;
+        partNumeric = true;
+      } else if (c != '@') {
+        if (partLength == 0) partFirst = c;
+        partLast = c;
+        partLength++;
+        if (!CharacterClass.isDigit(c)) partNumeric = false;
+      }
+
+      requireNewDomain = c == ',';
+
+      if (c == ',' || c == ':') {
+        int verdict = asciiDomainVerdict(s, routeStart, i);
+        if (verdict != 0) return verdict;
+      } else if (c == '@') {
+        routeStart = i + 1;
+      }
+
+      if (c == ':') break;
+    }
+
+    if (partLength > 0) return INVALID;
+    if (requireNewDomain) return INVALID;
+
+    return i < end ? i + 1 : end;
+  }
+
+  /**
+   * Validate the given ASCII domain the same way {@code IDN.toASCII} followed by the
+   * allowed domain character check would.
+   *
+   * @return {@code 0} if valid, {@link #INVALID}, or {@link #UNDECIDED} for non-ASCII domains
+   */
+  private static int asciiDomainVerdict(CharSequence s, int start, int end) {
+    int labelLength = 0;
+    boolean valid = true;
+
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+
+      if (c >= 128) return UNDECIDED;
+
+      if (c == '.') {
+        if (labelLength == 0) valid = false;
+        labelLength = 0;
+      } else if (++labelLength > JMail.MAX_DOMAIN_PART_LENGTH
+          || !CharacterClass.isAllowedInDomain(c)) {
+        valid = false;
+      }
+    }
+
+    return valid ? 0 : INVALID;
+  }
+}
@@ -10,18 +10,32 @@ import java.util.function.Consumer;
  * the parsed email address (if success), and the failure reason (if failure).
  */
 public final class EmailValidationResult {
+  // Failure results carry no email address, so one immutable instance per reason is enough
+  private static final EmailValidationResult[] FAILURES;
+
+  static {
+    FailureReason[] reasons = FailureReason.values();
+    FAILURES = new EmailValidationResult[reasons.length];
+
+    for (FailureReason reason : reasons) {
+      FAILURES[reason.ordinal()] = new EmailValidationResult(false, null, reason);
+    }
+  }
+
   private final boolean success;
   private final Email emailAddress;
+  private final Optional<Email> email;
   private final FailureReason failureReason;
 
   EmailValidationResult(boolean success, Email emailAddress, FailureReason failureReason) {
     this.success = success;
     this.emailAddress = emailAddress;
+    this.email = Optional.ofNullable(emailAddress);
     this.failureReason = failureReason;
   }
 
   static EmailValidationResult failure(FailureReason failureReason) {
-    return new EmailValidationResult(false, null, failureReason);
+    return FAILURES[failureReason.ordinal()];
   }
 
   static EmailValidationResult success(Email email) {
@@ -52,7 +66,7 @@ public final class EmailValidationResult {
    * @return the parsed {@link Email} or {@code Optional.empty()} if the validation failed
    */
   public Optional<Email> getEmail() {
-    return Optional.ofNullable(emailAddress);
+    return email;
   }
 
   /**
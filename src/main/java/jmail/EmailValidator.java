@@ -1,17 +1,56 @@
 package jmail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public final class EmailValidator {
+    // Addresses validated in bulk are split into chunks of this size, each validated by one
+    // worker with its own EmailParser. A multiple of 64, so chunks never share a BitSet word.
+    private static final int CHUNK_SIZE = 1024;
+
     private final Set<EmailValidationRule> validationRules;
+    private final EmailValidationRule[] ruleArray;
+
+    // The rules split by whether they wait on the network, for callers that must not block
+    private final EmailValidationRule[] nonBlockingRules;
+    private final EmailValidationRule[] blockingRules;
+
+    // The blocking rules whose verdict depends only on the domain, which bulk validation
+    // decides once per distinct domain, and the rest
+    private final EmailValidationRule[] domainRules;
+    private final EmailValidationRule[] addressBlockingRules;
+
+    // True when the rules are exactly those of JMail.strictValidator(), which lets
+    // isValid() decide plain addresses with the compiled StrictAddressAutomaton
+    private final boolean strictProfile;
 
     EmailValidator(Set<EmailValidationRule> validationRules) {
         this.validationRules = Collections.unmodifiableSet(validationRules);
+        this.ruleArray = validationRules.toArray(new EmailValidationRule[0]);
+        this.nonBlockingRules = select(ruleArray, rule -> !isBlocking(rule));
+        this.blockingRules = select(ruleArray, EmailValidator::isBlocking);
+        this.domainRules = select(blockingRules, EmailValidator::isDomainRule);
+        this.addressBlockingRules = select(blockingRules, rule -> !isDomainRule(rule));
+        this.strictProfile = isStrictProfile(validationRules);
     }
 
     EmailValidator() {
@@ -29,6 +68,13 @@ public final class EmailValidator {
     }
 
     public boolean isValid(String email) {
+        if (validationRules.isEmpty()) return EmailScanner.isValid(email);
+
+        int decision = strictDecision(email);
+        if (decision != StrictAddressAutomaton.UNDECIDED) {
+            return decision == StrictAddressAutomaton.ACCEPT;
+        }
+
         return JMail.tryParse(email)
             .filter(this::passesRules)
             .isPresent();
@@ -57,9 +103,457 @@ public final class EmailValidator {
         return JMail.tryParse(email).filter(this::passesRules);
     }
 
+    /**
+     * Validate the given email address without blocking the calling thread on the network.
+     * The address is parsed and checked against the cheap rules right away. Rules that wait
+     * on DNS lookups, such as {@link RequireValidMXRecordRule}, then run on
+     * {@link ValidationExecutors#defaultExecutor()}, which uses virtual threads on Java 21
+     * and later. An {@link AsyncEmailValidationRule}, and an MX record rule whose resolver
+     * does not block, such as {@link jmail.dns.NioMXResolver}, are composed without an
+     * executor.
+     *
+     * @param email the email address to validate
+     * @return a future that completes with the same result as {@link #validate(String)}
+     */
+    public CompletableFuture<EmailValidationResult> validateAsync(String email) {
+        return validateAsync(email, ValidationExecutors.defaultExecutor());
+    }
+
+    /**
+     * Validate the given email address without blocking the calling thread on the network,
+     * running the rules that wait on DNS lookups on the given executor. See
+     * {@link #validateAsync(String)}.
+     *
+     * @param email the email address to validate
+     * @param executor the executor to run blocking rules on
+     * @return a future that completes with the same result as {@link #validate(String)}
+     */
+    public CompletableFuture<EmailValidationResult> validateAsync(String email, Executor executor) {
+        EmailValidationResult result = validateWithoutBlockingRules(email);
+        if (!result.isSuccess() || !hasBlockingRules()) {
+            return CompletableFuture.completedFuture(result);
+        }
+
+        return applyBlockingRulesAsync(result, executor);
+    }
+
+    /**
+     * Validate each of the given email addresses, in parallel for large inputs. Each worker
+     * reuses its own parsing state, so this is much cheaper than calling
+     * {@link #validate(String)} from a parallel stream.
+     *
+     * @param emails the email addresses to validate
+     * @return the results, in the same order as the given addresses
+     */
+    public EmailValidationResult[] validateAll(String[] emails) {
+        return validateAll(Arrays.asList(emails));
+    }
+
+    /**
+     * Validate each of the given email addresses, in parallel for large inputs. Each worker
+     * reuses its own parsing state, so this is much cheaper than calling
+     * {@link #validate(String)} from a parallel stream.
+     *
+     * <p>If this validator has MX record rules or asynchronous rules, they are run as
+     * described in {@link #validateAll(List, Executor, int)}, on
+     * {@link ValidationExecutors#defaultExecutor()}, so each distinct domain is looked up only
+     * once.
+     *
+     * @param emails the email addresses to validate
+     * @return the results, in the same order as the given addresses
+     */
+    public EmailValidationResult[] validateAll(List<String> emails) {
+        if (hasBlockingRules()) {
+            return validateAll(emails, ValidationExecutors.defaultExecutor(),
+                JmailProperties.dnsBatchConcurrency());
+        }
+
+        List<String> addresses = randomAccess(emails);
+        EmailValidationResult[] results = new EmailValidationResult[addresses.size()];
+
+        forEachChunk(addresses.size(), (parser, start, end) -> {
+            for (int i = start; i < end; i++) {
+                results[i] = validate(addresses.get(i), parser);
+            }
+        });
+
+        return results;
+    }
+
+    /**
+     * Validate each of the given email addresses, looking up the domain of each distinct
+     * domain only once. All addresses are parsed and checked against the cheap rules first.
+     * The valid ones are then grouped by {@link Email#domainWithoutComments()}, ignoring case,
+     * and the MX record rules are run once per group, with at most {@code concurrency} lookups
+     * at once. Lookups with a resolver that does not block are composed, and the others run
+     * on the executor. Their verdict applies to every address of the group, so a batch costs
+     * one lookup per distinct domain instead of one per address. Any other
+     * {@link AsyncEmailValidationRule} is then run for each remaining address, again with at
+     * most {@code concurrency} at once.
+     *
+     * @param emails the email addresses to validate
+     * @param executor the executor to run the lookups and other blocking rules on
+     * @param concurrency the maximum number of lookups or asynchronous rules to run at once
+     * @return the results, in the same order as the given addresses
+     */
+    public EmailValidationResult[] validateAll(List<String> emails, Executor executor,
+                                               int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive");
+
+        List<String> addresses = randomAccess(emails);
+        EmailValidationResult[] results = new EmailValidationResult[addresses.size()];
+
+        forEachChunk(addresses.size(), (parser, start, end) -> {
+            for (int i = start; i < end; i++) {
+                results[i] = validateWithoutBlockingRules(addresses.get(i), parser);
+            }
+        });
+
+        if (blockingRules.length == 0) return results;
+
+        Map<String, DomainGroup> groups = new HashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i].isSuccess()) continue;
+
+            Email email = results[i].getEmail().get();
+            String domain = email.domainWithoutComments().toLowerCase(Locale.ROOT);
+            groups.computeIfAbsent(domain, d -> new DomainGroup(email)).add(i);
+        }
+
+        resolve(groups.values().toArray(new DomainGroup[0]), executor, concurrency);
+
+        EmailValidationResult failure =
+            EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION);
+        for (DomainGroup group : groups.values()) {
+            if (group.passes) continue;
+
+            for (int i = 0; i < group.size; i++) {
+                results[group.indices[i]] = failure;
+            }
+        }
+
+        if (addressBlockingRules.length > 0) {
+            int[] pending = IntStream.range(0, results.length)
+                .filter(i -> results[i].isSuccess())
+                .toArray();
+
+            // Never waited for inside the parallel stream, which would park its workers
+            forEachBounded(pending.length, concurrency, p -> {
+                int i = pending[p];
+                return passesAsync(addressBlockingRules, results[i].getEmail().get(), executor)
+                    .thenAccept(passes -> {
+                        if (!passes) results[i] = failure;
+                    });
+            });
+        }
+
+        return results;
+    }
+
+    /**
+     * Validate each email address of the given stream. The returned stream keeps the order
+     * and the parallelism of the given stream.
+     *
+     * @param emails the email addresses to validate
+     * @return a stream of the results, in the same order as the given addresses
+     */
+    public Stream<EmailValidationResult> validateAll(Stream<String> emails) {
+        return emails.map(this::validate);
+    }
+
+    /**
+     * Check each of the given email addresses, in parallel for large inputs. This is the
+     * compact form of {@link #validateAll(String[])}: valid addresses are never kept, and the
+     * result takes one bit per address.
+     *
+     * @param emails the email addresses to check
+     * @return a {@link BitSet} with the bit of each valid address set, by index
+     */
+    public BitSet isValidAll(String[] emails) {
+        return isValidAll(Arrays.asList(emails));
+    }
+
+    /**
+     * Check each of the given email addresses, in parallel for large inputs. This is the
+     * compact form of {@link #validateAll(List)}: valid addresses are never kept, and the
+     * result takes one bit per address.
+     *
+     * @param emails the email addresses to check
+     * @return a {@link BitSet} with the bit of each valid address set, by index
+     */
+    public BitSet isValidAll(List<String> emails) {
+        if (hasBlockingRules()) {
+            EmailValidationResult[] results = validateAll(emails);
+            BitSet valid = new BitSet(results.length);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].isSuccess()) valid.set(i);
+            }
+            return valid;
+        }
+
+        List<String> addresses = randomAccess(emails);
+        long[] words = new long[(addresses.size() + 63) >>> 6];
+
+        forEachChunk(addresses.size(), (parser, start, end) -> {
+            for (int i = start; i < end; i++) {
+                if (isValid(addresses.get(i), parser)) words[i >>> 6] |= 1L << i;
+            }
+        });
+
+        return BitSet.valueOf(words);
+    }
+
+    private EmailValidationResult validate(String email, EmailParser parser) {
+        EmailValidationResult result = parser.validate(email);
+        if (!result.isSuccess() || passesRules(result.getEmail().get())) return result;
+
+        return EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION);
+    }
+
+    private boolean isValid(String email, EmailParser parser) {
+        if (validationRules.isEmpty()) return parser.isValid(email);
+
+        int decision = strictDecision(email);
+        if (decision != StrictAddressAutomaton.UNDECIDED) {
+            return decision == StrictAddressAutomaton.ACCEPT;
+        }
+
+        return parser.tryParse(email)
+            .filter(this::passesRules)
+            .isPresent();
+    }
+
+    private int strictDecision(String email) {
+        return strictProfile ? StrictAddressAutomaton.test(email) : StrictAddressAutomaton.UNDECIDED;
+    }
+
+    /**
+     * Validate the given email address with all rules that do not block on the network.
+     * If the result is a success and {@link #hasBlockingRules()}, the address must still be
+     * passed to {@link #applyBlockingRulesAsync(EmailValidationResult, Executor)}. Together,
+     * the two steps give the same result as {@link #validate(String)}.
+     */
+    EmailValidationResult validateWithoutBlockingRules(String email) {
+        return checkNonBlockingRules(JMail.validate(email));
+    }
+
+    private EmailValidationResult validateWithoutBlockingRules(String email, EmailParser parser) {
+        return checkNonBlockingRules(parser.validate(email));
+    }
+
+    private EmailValidationResult checkNonBlockingRules(EmailValidationResult result) {
+        if (!result.getEmail().isPresent()) return result;
+        if (!passesRules(nonBlockingRules, result.getEmail().get())) {
+            return EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION);
+        }
+        return result;
+    }
+
+    boolean hasBlockingRules() {
+        return blockingRules.length > 0;
+    }
+
+    /**
+     * Apply the rules that block on the network to a successful result of
+     * {@link #validateWithoutBlockingRules(String)}, all at once. Rules without an
+     * asynchronous form run on the given executor.
+     */
+    CompletableFuture<EmailValidationResult> applyBlockingRulesAsync(
+        EmailValidationResult result, Executor executor) {
+        return passesAsync(blockingRules, result.getEmail().get(), executor)
+            .thenApply(passes -> passes
+                ? result
+                : EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION));
+    }
+
+    /**
+     * Start all of the given rules for the given address at once. Asynchronous rules are
+     * composed, and the others run on the given executor.
+     */
+    private static CompletableFuture<Boolean> passesAsync(EmailValidationRule[] rules,
+                                                          Email email, Executor executor) {
+        List<CompletableFuture<Boolean>> verdicts = new ArrayList<>(rules.length);
+        for (EmailValidationRule rule : rules) {
+            verdicts.add(isComposable(rule)
+                ? ((AsyncEmailValidationRule) rule).validateAsync(email).toCompletableFuture()
+                : CompletableFuture.supplyAsync(() -> rule.validate(email), executor));
+        }
+
+        return CompletableFuture.allOf(verdicts.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                for (CompletableFuture<Boolean> verdict : verdicts) {
+                    if (!verdict.join()) return false;
+                }
+                return true;
+            });
+    }
+
     private boolean passesRules(Email email) {
-        return validationRules.stream()
-            .allMatch(rule -> rule.validate(email));
+        return passesRules(ruleArray, email);
+    }
+
+    private static boolean passesRules(EmailValidationRule[] rules, Email email) {
+        for (EmailValidationRule rule : rules) {
+            if (!rule.validate(email)) return false;
+        }
+
+        return true;
+    }
+
+    // The MX record rules wait on DNS lookups, which can take hundreds of milliseconds.
+    // Asynchronous rules are kept with them, so that they are never waited for inline.
+    private static boolean isBlocking(EmailValidationRule rule) {
+        return isDomainRule(rule) || rule instanceof AsyncEmailValidationRule;
+    }
+
+    // The MX record rules are only composed if their resolver does not block
+    private static boolean isComposable(EmailValidationRule rule) {
+        if (rule instanceof RequireValidMXRecordRule) {
+            return ((RequireValidMXRecordRule) rule).isNonBlocking();
+        }
+        if (rule instanceof RequireValidMXRecordWithTimeoutRule) {
+            return ((RequireValidMXRecordWithTimeoutRule) rule).isNonBlocking();
+        }
+        return rule instanceof AsyncEmailValidationRule;
+    }
+
+    // Only the domain of the address is looked at by the MX record rules
+    private static boolean isDomainRule(EmailValidationRule rule) {
+        return rule instanceof RequireValidMXRecordRule
+            || rule instanceof RequireValidMXRecordWithTimeoutRule;
+    }
+
+    private static EmailValidationRule[] select(EmailValidationRule[] rules,
+                                                Predicate<EmailValidationRule> filter) {
+        return Arrays.stream(rules).filter(filter).toArray(EmailValidationRule[]::new);
+    }
+
+    /**
+     * Decide the domain rules for each of the given groups, with at most {@code concurrency}
+     * groups undecided at once.
+     */
+    private void resolve(DomainGroup[] groups, Executor executor, int concurrency) {
+        forEachBounded(groups.length, concurrency, i ->
+            passesAsync(domainRules, groups[i].sample, executor)
+                .thenAccept(passes -> groups[i].passes = passes));
+    }
+
+    /**
+     * Start the stage of each index in {@code [0, count)}, with at most {@code concurrency}
+     * stages incomplete at once, and wait until all of them are complete. Each of
+     * {@code concurrency} lanes starts its next stage when its previous one completes, so no
+     * thread is held while a stage waits.
+     */
+    private static void forEachBounded(int count, int concurrency,
+                                       IntFunction<CompletableFuture<?>> stage) {
+        if (count == 0) return;
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(count);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Runnable lane = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while (!done.isDone() && (i = next.getAndIncrement()) < count) {
+                    CompletableFuture<?> started;
+                    try {
+                        started = stage.apply(i);
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(e);
+                        return;
+                    }
+
+                    // Carry on in this loop while stages complete at once, so that a long run
+                    // of them never grows the stack
+                    if (!started.isDone()) {
+                        started.whenComplete((ignored, throwable) -> {
+                            complete(throwable);
+                            run();
+                        });
+                        return;
+                    }
+
+                    complete(started.isCompletedExceptionally()
+                        ? started.handle((ignored, throwable) -> throwable).join()
+                        : null);
+                }
+            }
+
+            private void complete(Throwable throwable) {
+                if (throwable != null) done.completeExceptionally(throwable);
+                else if (remaining.decrementAndGet() == 0) done.complete(null);
+            }
+        };
+
+        for (int i = 0; i < Math.min(concurrency, count); i++) {
+            lane.run();
+        }
+
+        done.join();
+    }
+
+    /**
+     * The indices of the addresses of one domain, and the verdict of the domain rules for it.
+     */
+    private static final class DomainGroup {
+        private final Email sample;
+        private int[] indices = new int[4];
+        private int size;
+        private volatile boolean passes = true;
+
+        DomainGroup(Email sample) {
+            this.sample = sample;
+        }
+
+        void add(int index) {
+            if (size == indices.length) indices = Arrays.copyOf(indices, size * 2);
+            indices[size++] = index;
+        }
+    }
+
+    /**
+     * Run the given task over {@code [0, size)} in chunks, with one {@link EmailParser} per
+     * chunk. The chunk indices are split by the fork/join friendly spliterator of
+     * {@link IntStream#range(int, int)}, so large inputs run on the common pool.
+     */
+    private static void forEachChunk(int size, ChunkTask task) {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        IntStream indices = IntStream.range(0, chunks);
+        if (chunks > 1) indices = indices.parallel();
+
+        indices.forEach(chunk -> {
+            int start = chunk * CHUNK_SIZE;
+            task.run(new EmailParser(), start, Math.min(size, start + CHUNK_SIZE));
+        });
+    }
+
+    private static List<String> randomAccess(List<String> emails) {
+        return emails instanceof RandomAccess ? emails : new ArrayList<>(emails);
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(EmailParser parser, int start, int end);
+    }
+
+    private static boolean isStrictProfile(Set<EmailValidationRule> rules) {
+        if (rules.size() != 3) return false;
+
+        boolean ipDomain = false;
+        boolean topLevelDomain = false;
+        boolean sourceRouting = false;
+
+        for (EmailValidationRule rule : rules) {
+            Class<?> type = rule.getClass();
+            ipDomain |= type == DisallowIpDomainRule.class;
+            topLevelDomain |= type == RequireTopLevelDomainRule.class;
+            sourceRouting |= type == DisallowExplicitSourceRoutingRule.class;
+        }
+
+        return ipDomain && topLevelDomain && sourceRouting;
     }
 
     @Override
@@ -0,0 +1,71 @@
+package jmail;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * An email address found by {@link EmailExtractor}, together with its location in the text it
+ * was extracted from.
+ */
+public final class ExtractedEmail {
+  private final Email email;
+  private final long start;
+  private final long end;
+
+  ExtractedEmail(Email email, long start, long end) {
+    this.email = email;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Get the parsed {@link Email}.
+   *
+   * @return the parsed email address
+   */
+  public Email getEmail() {
+    return email;
+  }
+
+  /**
+   * Get the offset in the source text of the first character of the email address.
+   *
+   * @return the start offset, in characters
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * Get the offset in the source text just after the last character of the email address.
+   *
+   * @return the end offset, in characters
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  @Override
+  public String toString() {
+    return new StringJoiner(", ", ExtractedEmail.class.getSimpleName() + "[", "]")
+        .add("email=" + email)
+        .add("start=" + start)
+        .add("end=" + end)
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ExtractedEmail)) return false;
+    ExtractedEmail that = (ExtractedEmail) o;
+    return start == that.start
+        && end == that.end
+        && Objects.equals(email, that.email);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(email, start, end);
+  }
+}
@@ -0,0 +1,130 @@
+package jmail;
+
+import jmail.util.CacheStatistics;
+import jmail.util.CharacterClass;
+
+import java.net.IDN;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validates domains the way {@link IDN#toASCII(String, int)} followed by the allowed domain
+ * character check would.
+ *
+ * <p>ASCII domains are checked directly, since IDN conversion leaves them unchanged and only
+ * rejects empty or overlong labels. The results for internationalized domains are memoized in
+ * a bounded, direct-mapped table: each domain hashes to one slot, and a newer domain simply
+ * replaces the entry in its slot. Lookups and updates are lock-free. The table has up to
+ * 2<sup>30</sup> slots, and none when {@code jmail.idn.cache.size} is zero.
+ */
+final class IdnValidator {
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  // Null when jmail.idn.cache.size is zero, which turns the memo off
+  private static final AtomicReferenceArray<Entry> MEMO = memo(JmailProperties.idnCacheSize());
+  private static final int SHIFT =
+      MEMO == null ? 32 : 32 - Integer.numberOfTrailingZeros(MEMO.length());
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private IdnValidator() {
+  }
+
+  /**
+   * Determine if the given domain is valid after IDN conversion.
+   *
+   * @param domain the domain to validate
+   * @return true if the domain is valid
+   */
+  static boolean isValid(String domain) {
+    int labelLength = 0;
+    boolean valid = true;
+
+    for (int i = 0, size = domain.length(); i < size; i++) {
+      char c = domain.charAt(i);
+
+      if (c >= 128) return isValidInternationalized(domain);
+
+      if (c == '.') {
+        if (labelLength == 0) valid = false;
+        labelLength = 0;
+      } else if (++labelLength > JMail.MAX_DOMAIN_PART_LENGTH
+          || !CharacterClass.isAllowedInDomain(c)) {
+        valid = false;
+      }
+    }
+
+    // IDN.toASCII accepts the root domain on its own
+    return valid || ".".equals(domain);
+  }
+
+  /**
+   * Get the hit and miss counts of the memo of internationalized domains.
+   *
+   * @return a snapshot of the statistics
+   */
+  static CacheStatistics statistics() {
+    return CacheStatistics.of(HITS.sum(), MISSES.sum());
+  }
+
+  private static boolean isValidInternationalized(String domain) {
+    if (MEMO == null) {
+      MISSES.increment();
+      return convert(domain);
+    }
+
+    // The high bits of the product are the best mixed, and there are as many as slots
+    int slot = (int) ((domain.hashCode() * 0x9E3779B9 & 0xFFFFFFFFL) >>> SHIFT);
+    Entry entry = MEMO.get(slot);
+
+    if (entry != null && entry.domain.equals(domain)) {
+      HITS.increment();
+      return entry.valid;
+    }
+
+    MISSES.increment();
+
+    boolean valid = convert(domain);
+    MEMO.set(slot, new Entry(domain, valid));
+
+    return valid;
+  }
+
+  private static boolean convert(String domain) {
+    String ascii;
+
+    try {
+      ascii = IDN.toASCII(domain, IDN.ALLOW_UNASSIGNED);
+    } catch (IllegalArgumentException e) {
+      // If IDN.toASCII fails, it's not valid
+      return false;
+    }
+
+    for (int i = 0, size = ascii.length(); i < size; i++) {
+      if (!CharacterClass.isAllowedInDomain(ascii.charAt(i))) return false;
+    }
+
+    return true;
+  }
+
+  private static AtomicReferenceArray<Entry> memo(int size) {
+    if (size <= 0) return null;
+
+    int capacity = 1;
+    while (capacity < Math.min(size, MAX_CAPACITY)) capacity <<= 1;
+    return new AtomicReferenceArray<>(capacity);
+  }
+
+  private static final class Entry {
+    private final String domain;
+    private final boolean valid;
+
+    private Entry(String domain, boolean valid) {
+      this.domain = domain;
+      this.valid = valid;
+    }
+  }
+}
@@ -1,25 +1,27 @@
 package jmail;
 
 import jmail.net.InternetProtocolAddress;
+import jmail.util.CacheStatistics;
+import jmail.util.CharacterClass;
 
-import java.net.IDN;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Provides static methods to validate an email address
  * using standard RFC validation, or to create a new {@link EmailValidator}.
  */
 public final class JMail {
-	private static final int MAX_EMAIL_LENGTH = 320;
-	private static final int MAX_LOCAL_PART_LENGTH = 64;
-	private static final int MAX_DOMAIN_LENGTH = 255;
-	private static final int MAX_DOMAIN_PART_LENGTH = 63;
+	static final int MAX_EMAIL_LENGTH = 320;
+	static final int MAX_LOCAL_PART_LENGTH = 64;
+	static final int MAX_DOMAIN_LENGTH = 255;
+	static final int MAX_DOMAIN_PART_LENGTH = 63;
+
+	private static final EmailParsingContextPool CONTEXT_POOL =
+	    new EmailParsingContextPool(JmailProperties.parserPoolSize());
 
   /**
    * Private constructor to prevent instantiation.
@@ -68,7 +70,7 @@ public final class JMail {
    * @return true if the given string is a valid email address, false otherwise
    */
   public static boolean isValid(String email) {
-    return tryParse(email).isPresent();
+    return EmailScanner.isValid(email);
   }
 
   /**
@@ -80,7 +82,7 @@ public final class JMail {
    * @return true if the given string is not a valid email address, false otherwise
    */
   public static boolean isInvalid(String email) {
-    return !tryParse(email).isPresent();
+    return !EmailScanner.isValid(email);
   }
 
   /**
@@ -92,11 +94,64 @@ public final class JMail {
    * @throws InvalidEmailException if the validation fails
    */
   public static void enforceValid(String email) throws InvalidEmailException {
-    if (!tryParse(email).isPresent()) {
+    if (!EmailScanner.isValid(email)) {
       throw new InvalidEmailException();
     }
   }
 
+  /**
+   * Return true if the UTF-8 encoded email address in the given byte range passes basic RFC
+   * validation. The bytes are validated in place, without decoding them into a {@link String}.
+   * See {@link #tryParse(String)} for details on what is required of an email address within
+   * basic validation.
+   *
+   * @param bytes the UTF-8 encoded email address to validate
+   * @param offset the index of the first byte of the email address
+   * @param length the number of bytes of the email address
+   * @return true if the given bytes are a valid email address, false otherwise
+   * @throws IndexOutOfBoundsException if the range is not within the array
+   */
+  public static boolean isValid(byte[] bytes, int offset, int length) {
+    if (bytes == null) return false;
+
+    return EmailScanner.isValid(Utf8.asCharSequence(ByteBuffer.wrap(bytes, offset, length)));
+  }
+
+  /**
+   * Return true if the UTF-8 encoded email address in the remaining bytes of the given buffer
+   * passes basic RFC validation. The bytes are validated in place, without decoding them into
+   * a {@link String}, and the position of the buffer is not changed. See
+   * {@link #tryParse(String)} for details on what is required of an email address within basic
+   * validation.
+   *
+   * @param buffer the UTF-8 encoded email address to validate
+   * @return true if the given bytes are a valid email address, false otherwise
+   */
+  public static boolean isValid(ByteBuffer buffer) {
+    if (buffer == null) return false;
+
+    return EmailScanner.isValid(Utf8.asCharSequence(buffer));
+  }
+
+  /**
+   * Check the given email address against basic RFC validation, returning only the
+   * {@link FailureReason}. This is the same reason that {@link #validate(String)} would return,
+   * but valid addresses are never parsed into an {@link Email}, and in most cases the check
+   * does not allocate at all. See {@link #tryParse(String)} for details on what is required of
+   * an email address within basic validation.
+   *
+   * @param email the email address to check
+   * @return the {@link FailureReason} that describes why the email address is invalid, or
+   *         {@link FailureReason#NONE} if it is valid
+   */
+  public static FailureReason check(CharSequence email) {
+    FailureReason reason = EmailScanner.scan(email);
+
+    if (reason == null) return validateInternal(email).getFailureReason();
+
+    return reason;
+  }
+
   /**
    * Determine if the given email address is valid, returning a new {@link EmailValidationResult}
    * object that contains details on the result of the validation. Use this method if you need to
@@ -111,6 +166,41 @@ public final class JMail {
     return validateInternal(email);
   }
 
+  /**
+   * Determine if the UTF-8 encoded email address in the given byte range is valid, returning
+   * a new {@link EmailValidationResult} object that contains details on the result of the
+   * validation. The bytes are parsed in place, and strings are only created for the parsed
+   * {@link Email} object of a successful result. See {@link #validate(String)} for details.
+   *
+   * @param bytes the UTF-8 encoded email address to validate
+   * @param offset the index of the first byte of the email address
+   * @param length the number of bytes of the email address
+   * @return a {@link EmailValidationResult} containing success or failure, along with the parsed
+   *         {@link Email} object if successful, or the {@link FailureReason} if not
+   * @throws IndexOutOfBoundsException if the range is not within the array
+   */
+  public static EmailValidationResult validate(byte[] bytes, int offset, int length) {
+    if (bytes == null) return EmailValidationResult.failure(FailureReason.NULL_ADDRESS);
+
+    return validateInternal(Utf8.asCharSequence(ByteBuffer.wrap(bytes, offset, length)));
+  }
+
+  /**
+   * Determine if the UTF-8 encoded email address in the remaining bytes of the given buffer is
+   * valid, returning a new {@link EmailValidationResult} object that contains details on the
+   * result of the validation. The bytes are parsed in place, and the position of the buffer is
+   * not changed. See {@link #validate(String)} for details.
+   *
+   * @param buffer the UTF-8 encoded email address to validate
+   * @return a {@link EmailValidationResult} containing success or failure, along with the parsed
+   *         {@link Email} object if successful, or the {@link FailureReason} if not
+   */
+  public static EmailValidationResult validate(ByteBuffer buffer) {
+    if (buffer == null) return EmailValidationResult.failure(FailureReason.NULL_ADDRESS);
+
+    return validateInternal(Utf8.asCharSequence(buffer));
+  }
+
   /**
    * Parse the given email address into a new {@link Email} object. This method does basic
    * validation on the input email address. This method does not claim to be 100%
@@ -132,88 +222,152 @@ public final class JMail {
     return result.getEmail();
   }
 
+  /**
+   * Get the hit and miss counts of the memo that caches the IDN conversion of
+   * internationalized domains. ASCII domains never need IDN conversion, so they do not use
+   * the memo. The size of the memo can be set with the {@code jmail.idn.cache.size} system
+   * property.
+   *
+   * @return a snapshot of the memo statistics
+   */
+  public static CacheStatistics idnCacheStatistics() {
+    return IdnValidator.statistics();
+  }
+
   /**
    * Internal parsing method.
    *
    * @param email the email address to parse
    * @return a new {@link Email} instance if valid, empty if invalid
    */
-  private static EmailValidationResult validateInternal(String email) {
+  static EmailValidationResult validateInternal(CharSequence email) {
+	    FailureReason screened = PreScreen.screen(email);
+	    if (screened != null) return EmailValidationResult.failure(screened);
+
+	    EmailParsingContext context = CONTEXT_POOL.acquire();
+	    try {
+	        return parse(email, context);
+	    } finally {
+	        CONTEXT_POOL.release(context);
+	    }
+	}
+
+	/**
+	 * Internal parsing method, using the given context for the parsing state.
+	 */
+	static EmailValidationResult validateInternal(CharSequence email, EmailParsingContext context) {
+	    FailureReason screened = PreScreen.screen(email);
+	    if (screened != null) return EmailValidationResult.failure(screened);
+
+	    return parse(email, context);
+	}
+
+	/**
+	 * Validate the address in the window {@code [start, end)} of the given source, such as one
+	 * member of an address list. The parsed {@link Email} keeps the offsets into the source.
+	 */
+	static EmailValidationResult validateWindow(String source, int start, int end) {
+	    EmailParsingContext context = CONTEXT_POOL.acquire();
+	    try {
+	        return validateAddress(source, start, end, -1, -1, context);
+	    } finally {
+	        CONTEXT_POOL.release(context);
+	    }
+	}
+
+	/**
+	 * Run the full parser on the given email address, without the {@link PreScreen} tier.
+	 */
+	static EmailValidationResult parse(CharSequence email, EmailParsingContext context) {
 	    EmailValidationResult initialValidationResult = initialValidationChecks(email);
 	    if (initialValidationResult != null) return initialValidationResult;
-	
+
+	    return validateAddress(email, 0, email.length(), -1, -1, context);
+	}
+
+	/**
+	 * Validate the address in the window {@code [start, end)} of the given input. The window is
+	 * either the whole input or the addr-spec between the angle brackets of a name-addr, in
+	 * which case {@code [identifierStart, identifierEnd)} is the window of the identifier.
+	 */
+	private static EmailValidationResult validateAddress(CharSequence email, int start, int end,
+	                                                     int identifierStart, int identifierEnd,
+	                                                     EmailParsingContext context) {
+	    if (end - start < 3) return EmailValidationResult.failure(FailureReason.ADDRESS_TOO_SHORT);
+
+	    int addressStart = start;
 	    List<String> sourceRoutes = Collections.emptyList();
-	    String fullSourceRoute = "";
-	
-	    if (email.charAt(0) == '@') {
-	    	Optional<SourceRouteDetail> sourceRoute = validateSourceRouting(email);
+
+	    if (email.charAt(start) == '@') {
+	    	SourceRouteDetail sourceRoute = validateSourceRouting(email, start, end);
 
 	        // If the sourceRoute is not present, then either the route was invalid or there was no
 	        // source routing. In either case, starting with the @ symbol would be invalid.
-	        if (!sourceRoute.isPresent()) {
+	        if (sourceRoute == null) {
 	          return EmailValidationResult.failure(FailureReason.BEGINS_WITH_AT_SYMBOL);
 	        }
 
-	        // Otherwise, update the email to validate to be just the actual email
-	        SourceRouteDetail detail = sourceRoute.get();
-	        sourceRoutes = detail.routes;
-	        fullSourceRoute = detail.fullRoute.toString();
-
-	        email = email.substring(fullSourceRoute.length());
+	        // Otherwise, continue with just the actual email
+	        sourceRoutes = sourceRoute.routes;
+	        addressStart = sourceRoute.end;
 	    }
-	
-	    int size = email.length();
-	    EmailValidationResult sizeValidationResult = sizeValidationChecks(email, size);
+
+	    EmailValidationResult sizeValidationResult = sizeValidationChecks(email, addressStart, end);
 	    if (sizeValidationResult != null) return sizeValidationResult;
-	
-	    EmailParsingContext context = new EmailParsingContext(size);
-	    EmailValidationResult parsingResult = parseEmail(email, size, context);
+
+	    context.reset(start, addressStart, end);
+	    context.identifierStart = identifierStart;
+	    context.identifierEnd = identifierEnd;
+
+	    EmailValidationResult parsingResult = parseEmail(email, context);
 	    if (parsingResult != null) return parsingResult;
-	
-	    return finalValidationChecks(context, fullSourceRoute, sourceRoutes);
+
+	    return finalValidationChecks(email, context, sourceRoutes);
 	}
-	
-	private static EmailValidationResult initialValidationChecks(String email) {
+
+	private static EmailValidationResult initialValidationChecks(CharSequence email) {
 	    if (email == null) return EmailValidationResult.failure(FailureReason.NULL_ADDRESS);
 	    if (email.length() < 3) return EmailValidationResult.failure(FailureReason.ADDRESS_TOO_SHORT);
 	    return null;
 	}
-	
-//	private static EmailValidationResult validateSourceRouting(String email) {
-//	    Optional<SourceRouteDetail> sourceRoute = validateSourceRouting(email);
-//	    if (!sourceRoute.isPresent()) {
-//	        return EmailValidationResult.failure(FailureReason.BEGINS_WITH_AT_SYMBOL);
-//	    }
-//	    return null;
-//	}
-//	
-	private static EmailValidationResult sizeValidationChecks(String email, int size) {
+
+	private static EmailValidationResult sizeValidationChecks(CharSequence email, int start, int end) {
+	    int size = end - start;
+	    if (size == 0) return EmailValidationResult.failure(FailureReason.ADDRESS_TOO_SHORT);
 	    if (size > MAX_EMAIL_LENGTH) return EmailValidationResult.failure(FailureReason.ADDRESS_TOO_LONG);
-	    if (email.charAt(0) == '.') return EmailValidationResult.failure(FailureReason.STARTS_WITH_DOT);
-	    if (email.charAt(size - 1) == '.') return EmailValidationResult.failure(FailureReason.ENDS_WITH_DOT);
-	    if (email.charAt(size - 1) == '-') return EmailValidationResult.failure(FailureReason.DOMAIN_PART_ENDS_WITH_DASH);
+	    if (email.charAt(start) == '.') return EmailValidationResult.failure(FailureReason.STARTS_WITH_DOT);
+	    if (email.charAt(end - 1) == '.') return EmailValidationResult.failure(FailureReason.ENDS_WITH_DOT);
+	    if (email.charAt(end - 1) == '-') return EmailValidationResult.failure(FailureReason.DOMAIN_PART_ENDS_WITH_DASH);
 	    return null;
 	}
-	
-	private static EmailValidationResult parseEmail(String email, int size, EmailParsingContext context) {
-	    for (int i = 0; i < size; i++) {
+
+	private static EmailValidationResult parseEmail(CharSequence email, EmailParsingContext context) {
+	    int start = context.localPartStart;
+	    int end = context.end;
+
+	    for (int i = start; i < end; i++) {
 	        char c = email.charAt(i);
 	        if (c >= 128) context.isAscii = false;
 	
 	        if (c == '<' && !context.inQuotes && !context.previousBackslash) {
-	            if (!(email.charAt(size - 1) == '>')) {
+	            if (!(email.charAt(end - 1) == '>')) {
 	                return EmailValidationResult.failure(FailureReason.UNQUOTED_ANGLED_BRACKET);
 	            }
-	            EmailValidationResult innerResult = validateInternal(email.substring(i + 1, size - 1));
-	            return innerResult.getEmail()
-	                .map(e -> EmailValidationResult.success(new Email(e, context.localPart.toString())))
-	                .orElse(innerResult);
+	            // Everything in the local-part so far is the identifier. If the address is
+	            // already within angle brackets, the outermost identifier is the one to keep.
+	            if (context.identifierStart < 0) {
+	                return validateAddress(email, i + 1, end - 1, start, start + context.localPartLength,
+	                    context);
+	            }
+	            return validateAddress(email, i + 1, end - 1, context.identifierStart, context.identifierEnd,
+	                context);
 	        }
 	
 	        if (c == '@' && !context.inQuotes && !context.previousBackslash) {
 	            if (context.atFound) return EmailValidationResult.failure(FailureReason.MULTIPLE_AT_SYMBOLS);
 	            if (context.requireAngledBracket) return EmailValidationResult.failure(FailureReason.INVALID_WHITESPACE);
 	            context.atFound = true;
+	            context.atIndex = i;
 	            context.requireAtOrDot = context.requireAtDotOrComment = false;
 	            context.whitespace = false;
 	            context.previousDot = true;
@@ -230,20 +384,20 @@ public final class JMail {
 	        }
 	
 	        if (context.requireAtOrDot) {
-	            if (!isWhitespace(c) && c != '.') {
+	            if (!CharacterClass.isWhitespace(c) && c != '.') {
 	                return EmailValidationResult.failure(FailureReason.INVALID_COMMENT_LOCATION);
 	            } else context.requireAtOrDot = false;
 	        }
 	
 	        if (context.requireAtDotOrComment) {
-	            if (!isWhitespace(c) && c != '.' && c != '(') {
+	            if (!CharacterClass.isWhitespace(c) && c != '.' && c != '(') {
 	                return EmailValidationResult.failure(FailureReason.INVALID_QUOTE_LOCATION);
 	            } else context.requireAtDotOrComment = false;
 	        }
 	
 	        if (context.whitespace) {
 	            if (!context.previousDot && !context.previousComment) {
-	                if (c != '.' && c != '@' && c != '(' && !isWhitespace(c)) {
+	                if (c != '.' && c != '@' && c != '(' && !CharacterClass.isWhitespace(c)) {
 	                    if (!context.atFound) context.requireAngledBracket = true;
 	                    else return EmailValidationResult.failure(FailureReason.INVALID_WHITESPACE);
 	                }
@@ -251,9 +405,9 @@ public final class JMail {
 	        }
 	
 	        if (context.requireQuotedAtOrDot && context.inQuotes) {
-	            if (c != '.' && c != '@' && !isWhitespace(c) && c != '"') {
+	            if (c != '.' && c != '@' && !CharacterClass.isWhitespace(c) && c != '"') {
 	                context.removableQuotePair = false;
-	            } else if (!isWhitespace(c) && c != '"') {
+	            } else if (!CharacterClass.isWhitespace(c) && c != '"') {
 	                context.requireQuotedAtOrDot = false;
 	            }
 	        }
@@ -263,27 +417,27 @@ public final class JMail {
 	        }
 	
 	        if (c == '(' && !context.inQuotes) {
-	            Optional<String> comment = validateComment(email.substring(i));
-	            if (!comment.isPresent()) {
+	            int commentEnd = CommentScanner.findEnd(email, i, end, JmailProperties.maxCommentDepth());
+	            if (commentEnd < 0) {
 	                return EmailValidationResult.failure(FailureReason.INVALID_COMMENT);
 	            }
-	            String commentStr = comment.get();
-	            int commentStrLen = commentStr.length();
-	            if (!context.atFound && (i != 0 && !context.previousDot)) {
+	            int commentStrLen = commentEnd - i;
+	            if (!context.atFound && (i != start && !context.previousDot)) {
 	                context.requireAtOrDot = true;
 	            } else if (context.atFound && !context.firstDomainChar && !context.previousDot) {
-	                if (!(i + commentStrLen == size)) context.requireAtOrDot = true;
+	                if (commentEnd != end) context.requireAtOrDot = true;
 	            }
-	            i += (commentStrLen - 1);
 	            if (!context.atFound) {
-	                context.localPart.append(commentStr);
+	                context.localPartLength += commentStrLen;
 	                context.localPartCommentLength += commentStrLen;
+	                context.lastLocalPartChar = ')';
 	            } else {
-	                context.domain.append(commentStr);
+	                context.domainLength += commentStrLen;
 	                context.domainCommentLength += commentStrLen;
 	            }
 	            context.previousComment = true;
-	            context.comments.add(commentStr.substring(1, commentStrLen - 1));
+	            context.addComment(i, commentEnd);
+	            i = commentEnd - 1;
 	            continue;
 	        }
 	
@@ -296,10 +450,10 @@ public final class JMail {
 	        }
 	
 	        if (!context.atFound) {
-	            if (c == '"' && i > 0 && !context.previousDot && !context.inQuotes) {
+	            if (c == '"' && i > start && !context.previousDot && !context.inQuotes) {
 	                return EmailValidationResult.failure(FailureReason.INVALID_QUOTE_LOCATION);
 	            }
-	            boolean mustBeQuoted = JMail.DISALLOWED_UNQUOTED_CHARACTERS.contains(c);
+	            boolean mustBeQuoted = CharacterClass.isDisallowedUnquoted(c);
 	            if (c != '"' && !context.inQuotes && !context.previousBackslash && mustBeQuoted) {
 	                return EmailValidationResult.failure(FailureReason.DISALLOWED_UNQUOTED_CHARACTER);
 	            }
@@ -310,84 +464,94 @@ public final class JMail {
 	                return EmailValidationResult.failure(FailureReason.UNUSED_BACKSLASH_ESCAPE);
 	            }
 	            if (context.inQuotes) {
-	                if (JMail.ALLOWED_QUOTED_WITH_ESCAPE.contains(c)) {
+	                if (CharacterClass.requiresEscapeInQuotes(c)) {
 	                    if (!context.previousBackslash) {
 	                        return EmailValidationResult.failure(FailureReason.MISSING_BACKSLASH_ESCAPE);
 	                    }
 	                    context.removableQuotePair = false;
 	                }
+	                if (c != '"') context.currentQuoteLength++;
 	            }
-	            context.localPart.append(c);
-	            context.localPartWithoutComments.append(c);
-	            if (c != '"') {
-	                if (context.inQuotes) {
-	                    context.currentQuote.append(c);
-	                } else {
-	                    context.localPartWithoutQuotes.append(c);
-	                }
-	            }
+	            context.localPartLength++;
+	            context.lastLocalPartChar = c;
 	        } else {
 	            if (context.firstDomainChar && c == '[') {
-	                String ipDomain = email.substring(i);
-	                if (!ipDomain.startsWith("[") || !ipDomain.endsWith("]") || ipDomain.length() < 3) {
+	                if (email.charAt(end - 1) != ']' || end - i < 3) {
 	                    return EmailValidationResult.failure(FailureReason.INVALID_IP_DOMAIN);
 	                }
-	                String ip = ipDomain.substring(1, ipDomain.length() - 1);
-	                Optional<String> validatedIp = ip.startsWith(IPV6_PREFIX)
-	                    ? InternetProtocolAddress.validateIpv6(ip.substring(IPV6_PREFIX.length()))
-	                    .map(s -> IPV6_PREFIX + s)
-	                    : InternetProtocolAddress.validateIpv4(ip);
-	                if (!validatedIp.isPresent()) {
+	                String ip = email.subSequence(i + 1, end - 1).toString();
+	                boolean validIp = ip.startsWith(IPV6_PREFIX)
+	                    ? InternetProtocolAddress.validateIpv6(ip.substring(IPV6_PREFIX.length())).isPresent()
+	                    : InternetProtocolAddress.validateIpv4(ip).isPresent();
+	                if (!validIp) {
 	                    return EmailValidationResult.failure(FailureReason.INVALID_IP_DOMAIN);
 	                }
-	                context.currentDomainPart.append(validatedIp.get());
-	                context.domain.append(validatedIp.get());
-	                context.domainWithoutComments.append(validatedIp.get());
+	                context.domainPartLength = ip.length();
+	                context.domainPartFirst = ip.charAt(0);
+	                context.domainPartLast = ip.charAt(ip.length() - 1);
+	                context.domainPartNumeric = CharacterClass.isNumeric(ip);
+	                context.domainLength += ip.length();
+	                context.ipAddressStart = i;
 	                context.isIpAddress = true;
 	                break;
 	            }
 	            if (c == '.') {
-	                if (context.currentDomainPart.length() > MAX_DOMAIN_PART_LENGTH) {
+	                if (context.domainPartLength == 0) {
+	                    return EmailValidationResult.failure(FailureReason.MULTIPLE_DOT_SEPARATORS);
+	                }
+	                if (context.domainPartLength > MAX_DOMAIN_PART_LENGTH) {
 	                    return EmailValidationResult.failure(FailureReason.DOMAIN_PART_TOO_LONG);
 	                }
-	                if (context.currentDomainPart.charAt(0) == '-') {
+	                if (context.domainPartFirst == '-') {
 	                    return EmailValidationResult.failure(FailureReason.DOMAIN_PART_STARTS_WITH_DASH);
 	                }
-	                if (context.currentDomainPart.charAt(context.currentDomainPart.length() - 1) == '-') {
+	                if (context.domainPartLast == '-') {
 	                    return EmailValidationResult.failure(FailureReason.DOMAIN_PART_ENDS_WITH_DASH);
 	                }
-	                context.domainParts.add(context.currentDomainPart.toString());
-	                context.currentDomainPart = new StringBuilder();
+	                context.domainPartCount++;
+	                context.domainPartLength = 0;
+	                context.domainPartNumeric = true;
+
+	                if (context.labelLength == 0) context.validLabels = false;
+	                context.labelLength = 0;
 	            } else {
-	                if (!isWhitespace(c)) context.currentDomainPart.append(c);
+	                if (!CharacterClass.isWhitespace(c)) {
+	                    if (context.domainPartLength == 0) context.domainPartFirst = c;
+	                    context.domainPartLast = c;
+	                    context.domainPartLength++;
+	                    if (!CharacterClass.isDigit(c)) context.domainPartNumeric = false;
+	                }
+
+	                // Track the labels as IDN.toASCII would see them, to skip it for ASCII domains
+	                if (c >= 128) context.asciiDomain = false;
+	                if (++context.labelLength > MAX_DOMAIN_PART_LENGTH
+	                    || !CharacterClass.isAllowedInDomain(c)) {
+	                    context.validLabels = false;
+	                }
 	            }
-	            context.domain.append(c);
-	            context.domainWithoutComments.append(c);
+	            context.domainLength++;
 	            context.firstDomainChar = false;
 	        }
 	
-	        final boolean quotedWhitespace = isWhitespace(c) && context.inQuotes;
+	        final boolean quotedWhitespace = CharacterClass.isWhitespace(c) && context.inQuotes;
 	        if (c == '"' && !context.previousBackslash) {
 	            if (context.inQuotes) {
 	                context.requireAtDotOrComment = true;
-	                if (context.currentQuote.length() == 0) {
+	                if (context.currentQuoteLength == 0) {
 	                    context.removableQuotePair = false;
 	                }
-	                if (context.removableQuotePair) {
-	                    context.localPartWithoutQuotes.append(context.currentQuote);
-	                } else {
-	                    context.localPartWithoutQuotes.append('"');
-	                    context.localPartWithoutQuotes.append(context.currentQuote);
-	                    context.localPartWithoutQuotes.append('"');
+	                if (!context.removableQuotePair) {
+	                    context.keepQuotePair(context.quoteStart, i);
 	                }
 	            } else {
 	                context.removableQuotePair = true;
-	                context.currentQuote = new StringBuilder();
+	                context.quoteStart = i;
+	                context.currentQuoteLength = 0;
 	            }
 	            context.inQuotes = !context.inQuotes;
 	        }
 	
-	        context.whitespace = isWhitespace(c) && !context.inQuotes && !context.previousBackslash;
+	        context.whitespace = CharacterClass.isWhitespace(c) && !context.inQuotes && !context.previousBackslash;
 	        if (context.whitespace) {
 	            context.containsWhiteSpace = true;
 	        }
@@ -408,218 +572,127 @@ public final class JMail {
 	    return null;
 	}
 	
-	private static EmailValidationResult finalValidationChecks(EmailParsingContext context, String fullSourceRoute, List<String> sourceRoutes) {
-	    int localPartLen = context.localPart.length() - context.localPartCommentLength;
+	private static EmailValidationResult finalValidationChecks(CharSequence email, EmailParsingContext context,
+	                                                           List<String> sourceRoutes) {
+	    int localPartLen = context.localPartLength - context.localPartCommentLength;
 	    if (localPartLen == 0) return EmailValidationResult.failure(FailureReason.LOCAL_PART_MISSING);
 	    if (localPartLen > MAX_LOCAL_PART_LENGTH) return EmailValidationResult.failure(FailureReason.LOCAL_PART_TOO_LONG);
 	
-	    int domainLen = context.domain.length() - context.domainCommentLength;
+	    int domainLen = context.domainLength - context.domainCommentLength;
 	    if (domainLen == 0) return EmailValidationResult.failure(FailureReason.DOMAIN_MISSING);
 	    if (domainLen > MAX_DOMAIN_LENGTH) return EmailValidationResult.failure(FailureReason.DOMAIN_TOO_LONG);
 	
-	    if (context.localPart.charAt(context.localPart.length() - 1) == '.') {
+	    if (context.lastLocalPartChar == '.') {
 	        return EmailValidationResult.failure(FailureReason.LOCAL_PART_ENDS_WITH_DOT);
 	    }
 	
-	    if (context.currentDomainPart.length() <= 0) {
+	    if (context.domainPartLength <= 0) {
 	        return EmailValidationResult.failure(FailureReason.MISSING_TOP_LEVEL_DOMAIN);
 	    }
 	
-	    if (context.currentDomainPart.length() > 63) {
+	    if (context.domainPartLength > 63) {
 	        return EmailValidationResult.failure(FailureReason.TOP_LEVEL_DOMAIN_TOO_LONG);
 	    }
 	
-	    if (context.currentDomainPart.charAt(0) == '-') {
+	    if (context.domainPartFirst == '-') {
 	        return EmailValidationResult.failure(FailureReason.DOMAIN_PART_STARTS_WITH_DASH);
 	    }
 	
-	    if (context.currentDomainPart.toString().chars().allMatch(Character::isDigit)) {
+	    if (context.domainPartNumeric) {
 	        return EmailValidationResult.failure(FailureReason.NUMERIC_TLD);
 	    }
 	
-	    context.domainParts.add(context.currentDomainPart.toString());
+	    Email parsed = new Email(email.toString(), context, sourceRoutes);
 	
-	    if (!context.isIpAddress && !isValidIdn(context.domainWithoutComments.toString())) {
-	        return EmailValidationResult.failure(FailureReason.INVALID_DOMAIN_CHARACTER);
+	    if (!context.isIpAddress) {
+	        boolean validDomain = context.asciiDomain
+	            ? context.validLabels
+	            : IdnValidator.isValid(parsed.domainWithoutComments());
+	        if (!validDomain) return EmailValidationResult.failure(FailureReason.INVALID_DOMAIN_CHARACTER);
+	    }
+
+	    // A top level domain can only end with a dash when followed by whitespace or a comment,
+	    // which sizeValidationChecks cannot see
+	    if (context.domainPartCount > 1 && context.domainPartLast == '-') {
+	        return EmailValidationResult.failure(FailureReason.DOMAIN_PART_ENDS_WITH_DASH);
 	    }
-	
-	    Email parsed = new Email(
-	        context.localPart.toString(), context.localPartWithoutComments.toString(),
-	        context.localPartWithoutQuotes.toString(), context.domain.toString(), context.domainWithoutComments.toString(),
-	        fullSourceRoute, null, context.domainParts, context.comments, sourceRoutes, context.isIpAddress,
-	        context.containsWhiteSpace, context.isAscii);
 	
 	    return EmailValidationResult.success(parsed);
-  }
-
-  private static Optional<String> validateComment(String s) {
-    if (s.length() < 2) return Optional.empty();
-
-    StringBuilder builder = new StringBuilder(s.length());
-
-    boolean previousBackslash = false;
-    boolean foundClosingParenthesis = false;
-
-    for (int i = 0, size = s.length(); i < size; i++) {
-      char c = s.charAt(i);
-
-      if (c == '(' && !previousBackslash && i != 0) {
-        // comment within a comment??
-        Optional<String> inner = validateComment(s.substring(i));
-
-        if (!inner.isPresent()) return Optional.empty();
-
-        i += inner.get().length() - 1;
-        builder.append(inner.get());
-        continue;
-      }
-
-      builder.append(c);
-
-      if (c == ')' && !previousBackslash) {
-        foundClosingParenthesis = true;
-        break;
-      }
-
-      previousBackslash = c == '\\';
-    }
-
-    if (!foundClosingParenthesis) {
-      return Optional.empty();
-    }
-
-    return Optional.of(builder.toString());
-  }
+	}
 
-  private static Optional<SourceRouteDetail> validateSourceRouting(String s) {
+  /**
+   * Validate the source route at the start of the window {@code [start, end)}.
+   *
+   * @return the detail of the source route, or null if the source route is invalid
+   */
+  private static SourceRouteDetail validateSourceRouting(CharSequence s, int start, int end) {
     boolean requireNewDomain = true;
 
     SourceRouteDetail detail = new SourceRouteDetail();
-    StringBuilder sourceRoute = new StringBuilder();
-    StringBuilder currentDomainPart = new StringBuilder();
+    int routeStart = start;
+    int partStart = start;
 
-    int i = 0;
+    int i = start;
 
-    for (int size = s.length(); i < size; i++) {
+    for (; i < end; i++) {
       char c = s.charAt(i);
 
       // We need the @ character for a new domain
-      if (requireNewDomain && c != '@') return Optional.empty();
+      if (requireNewDomain && c != '@') return null;
 
       // We can't see the @ character unless we need it
-      if (c == '@' && !requireNewDomain) return Optional.empty();
+      if (c == '@' && !requireNewDomain) return null;
 
       // A . , : means we should validate the current domain part
       if (c == '.' || c == ',' || c == ':') {
+        int partLength = i - partStart;
+
         // Cannot be empty or more than 63 chars
-        if (currentDomainPart.length() == 0 || currentDomainPart.length() > 63) {
-          return Optional.empty();
-        }
+        if (partLength == 0 || partLength > 63) return null;
 
         // Cannot start or end with '-'
-        if (currentDomainPart.charAt(0) == '-'
-            || currentDomainPart.charAt(currentDomainPart.length() - 1) == '-') {
-          return Optional.empty();
-        }
+        if (s.charAt(partStart) == '-' || s.charAt(i - 1) == '-') return null;
 
         // TLD cannot be all numeric
-        if ((c == ',' || c == ':')
-            && currentDomainPart.toString().chars().allMatch(Character::isDigit)) {
-          return Optional.empty();
-        }
-
-        currentDomainPart = new StringBuilder();
-      } else {
-        if (c != '@') currentDomainPart.append(c);
+        if ((c == ',' || c == ':') && CharacterClass.isNumeric(s, partStart, i)) return null;
+
+        partStart = i + 1;
+      } else if (c == '@') {
+        routeStart = i + 1;
+        partStart = i + 1;
       }
 
       // A comma is the end of the current domain route
       requireNewDomain = c == ',';
 
-      detail.fullRoute.append(c);
-
       if (c == ',' || c == ':') {
-        String route = sourceRoute.toString();
+        String route = s.subSequence(routeStart, i).toString();
 
-        if (!isValidIdn(route)) return Optional.empty();
+        if (!IdnValidator.isValid(route)) return null;
 
         detail.routes.add(route);
-
-        sourceRoute = new StringBuilder();
-      } else if (c != '@') {
-        sourceRoute.append(c);
       }
 
-      if (c == ':') break;
+      if (c == ':') {
+        i++;
+        break;
+      }
     }
 
     // If we haven't seen the end of the current part, its invalid
-    if (currentDomainPart.length() > 0) return Optional.empty();
+    if (i > partStart) return null;
 
     // If we needed a new domain (last saw a comma), fail
-    if (requireNewDomain) return Optional.empty();
-
-    return Optional.of(detail);
-  }
-
-  private static boolean isValidIdn(String test) {
-    String domain;
-
-    try {
-      domain = IDN.toASCII(test, IDN.ALLOW_UNASSIGNED);
-    } catch (IllegalArgumentException e) {
-      // If IDN.toASCII fails, it's not valid
-      return false;
-    }
-
-    for (int i = 0, size = domain.length(); i < size; i++) {
-      char c = domain.charAt(i);
+    if (requireNewDomain) return null;
 
-      if (!JMail.ALLOWED_DOMAIN_CHARACTERS.contains(c)) return false;
-    }
-
-    return true;
-  }
-
-  /**
-   * Returns true if the given character is a whitespace character.
-   *
-   * @param c the character to check
-   * @return true if whitespace, false otherwise
-   */
-  private static boolean isWhitespace(char c) {
-    return (c == ' ' || c == '\n' || c == '\r');
+    detail.end = i;
+    return detail;
   }
 
   private static final class SourceRouteDetail {
-    private final StringBuilder fullRoute = new StringBuilder();
     private final List<String> routes = new ArrayList<>();
+    private int end;
   }
 
-  private static final String IPV6_PREFIX = "IPv6:";
-
-  // Set of characters that are not allowed in the local-part outside of quotes
-  private static final Set<Character> DISALLOWED_UNQUOTED_CHARACTERS = new HashSet<>(
-      Arrays.asList('\t', '(', ')', ',', ':', ';', '<', '>', '@', '[', ']', '"',
-          // Control characters 1-8, 11, 12, 14-31
-          '␁', '␂', '␃', '␄', '␅', '␆', '␇', '␈', '␋', '␌', '␎', '␏', '␐', '␑',
-          '␒', '␓', '␔', '␕', '␖', '␗', '␘', '␙', '␚', '␛', '␜', '␝', '␟', '␁'));
-
-  // Set of characters that are allowed in the domain
-  private static final Set<Character> ALLOWED_DOMAIN_CHARACTERS = new HashSet<>(
-      Arrays.asList(
-          // A - Z
-          'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R',
-          'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
-          // a - z
-          'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r',
-          's', 't', 'u', 'v', 'w', 'x', 'y', 'z',
-          // 0 - 9
-          '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
-          // Hyphen and dot (also allow whitespace between parts)
-          '-', '.', ' '));
-
-  // Set of characters within local-part quotes that require an escape
-  private static final Set<Character> ALLOWED_QUOTED_WITH_ESCAPE = new HashSet<>(
-      Arrays.asList('\r', '␀', '\n'));
+  static final String IPV6_PREFIX = "IPv6:";
 }
@@ -3,6 +3,18 @@ package jmail;
 class JmailProperties {
   private static final String STRIP_QUOTES = "jmail.normalize.strip.quotes";
   private static final String LOWER_CASE = "jmail.normalize.lower.case";
+  private static final String MAX_COMMENT_DEPTH = "jmail.comment.max.depth";
+  private static final String PARSER_POOL_SIZE = "jmail.parser.pool.size";
+  private static final String IDN_CACHE_SIZE = "jmail.idn.cache.size";
+  private static final String VECTOR_SCANNING = "jmail.scan.vector";
+  private static final String VIRTUAL_THREADS = "jmail.async.virtual.threads";
+  private static final String DNS_BATCH_CONCURRENCY = "jmail.dns.batch.concurrency";
+  private static final String PLATFORM_THREADS = "jmail.async.platform.threads";
+
+  private static final int DEFAULT_MAX_COMMENT_DEPTH = 32;
+  private static final int DEFAULT_IDN_CACHE_SIZE = 1024;
+  private static final int DEFAULT_DNS_BATCH_CONCURRENCY = 32;
+  private static final int DEFAULT_PLATFORM_THREADS = 64;
 
   private JmailProperties() {
   }
@@ -14,4 +26,32 @@ class JmailProperties {
   static boolean lowerCase() {
     return Boolean.parseBoolean(System.getProperty(LOWER_CASE, "false"));
   }
+
+  static int maxCommentDepth() {
+    return Integer.getInteger(MAX_COMMENT_DEPTH, DEFAULT_MAX_COMMENT_DEPTH);
+  }
+
+  static int parserPoolSize() {
+    return Integer.getInteger(PARSER_POOL_SIZE, 4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  static int idnCacheSize() {
+    return Integer.getInteger(IDN_CACHE_SIZE, DEFAULT_IDN_CACHE_SIZE);
+  }
+
+  static boolean vectorScanning() {
+    return Boolean.parseBoolean(System.getProperty(VECTOR_SCANNING, "false"));
+  }
+
+  static boolean virtualThreads() {
+    return Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS, "true"));
+  }
+
+  static int dnsBatchConcurrency() {
+    return Integer.getInteger(DNS_BATCH_CONCURRENCY, DEFAULT_DNS_BATCH_CONCURRENCY);
+  }
+
+  static int platformThreads() {
+    return Math.max(1, Integer.getInteger(PLATFORM_THREADS, DEFAULT_PLATFORM_THREADS));
+  }
 }
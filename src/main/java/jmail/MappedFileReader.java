@@ -0,0 +1,73 @@
+package jmail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Reader} of a UTF-8 encoded file that maps the file into memory one region at a time,
+ * so that files of any size can be read without copying them onto the heap. Malformed input is
+ * replaced, the same way as {@link String#String(byte[], java.nio.charset.Charset)}.
+ */
+final class MappedFileReader extends Reader {
+  static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+  private final int regionSize;
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private ByteBuffer region = ByteBuffer.allocate(0);
+  private long next;
+  private boolean finished;
+
+  MappedFileReader(Path path, int regionSize) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    this.regionSize = regionSize;
+  }
+
+  @Override
+  public int read(char[] buffer, int offset, int length) throws IOException {
+    if (length == 0) return 0;
+    if (finished) return -1;
+
+    CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+
+    while (out.position() == offset) {
+      boolean last = next >= size;
+      CoderResult result = decoder.decode(region, out, last);
+
+      if (result.isOverflow()) break;
+
+      if (last) {
+        decoder.flush(out);
+        finished = true;
+        break;
+      }
+
+      // Map the next region, starting with any bytes of a character split by the last one
+      long start = next - region.remaining();
+      region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+      next = start + region.capacity();
+    }
+
+    int read = out.position() - offset;
+    return read == 0 && finished ? -1 : read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,73 @@
+package jmail;
+
+import jmail.util.CharacterClass;
+
+/**
+ * A cheap first tier of validation that rejects obviously invalid addresses before the full
+ * parser runs. It only looks at the length, the first and last characters, and a local-part
+ * made up of plain atoms. When it decides, it returns the same {@link FailureReason} as the
+ * full parser. Anything else is left to the parser.
+ */
+final class PreScreen {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private PreScreen() {
+  }
+
+  /**
+   * Screen the given email address.
+   *
+   * @param email the email address to screen
+   * @return the reason the address is invalid, or {@code null} if the full parser must decide
+   */
+  static FailureReason screen(CharSequence email) {
+    if (email == null) return FailureReason.NULL_ADDRESS;
+
+    int length = email.length();
+    if (length < 3) return FailureReason.ADDRESS_TOO_SHORT;
+
+    // An explicit source route is validated before the size checks
+    char first = email.charAt(0);
+    if (first == '@') return null;
+
+    if (length > JMail.MAX_EMAIL_LENGTH) return FailureReason.ADDRESS_TOO_LONG;
+
+    char last = email.charAt(length - 1);
+    if (first == '.') return FailureReason.STARTS_WITH_DOT;
+    if (last == '.') return FailureReason.ENDS_WITH_DOT;
+    if (last == '-') return FailureReason.DOMAIN_PART_ENDS_WITH_DASH;
+
+    int at = indexOf(email, '@');
+    int localPartEnd = at < 0 ? length : at;
+
+    // A local-part of plain atoms can only fail on two dots in a row before the @ is reached.
+    // Anything else (quotes, comments, whitespace, an identifier) needs the full parser.
+    boolean previousDot = false;
+    for (int i = 0; i < localPartEnd; i++) {
+      char c = email.charAt(i);
+
+      if (c == '.') {
+        if (previousDot) return FailureReason.MULTIPLE_DOT_SEPARATORS;
+        previousDot = true;
+      } else if (CharacterClass.isAtom(c)) {
+        previousDot = false;
+      } else {
+        return null;
+      }
+    }
+
+    return at < 0 ? FailureReason.MISSING_AT_SYMBOL : null;
+  }
+
+  private static int indexOf(CharSequence s, char c) {
+    if (s instanceof String) return ((String) s).indexOf(c);
+
+    for (int i = 0, size = s.length(); i < size; i++) {
+      if (s.charAt(i) == c) return i;
+    }
+
+    return -1;
+  }
+}
@@ -1,11 +1,78 @@
-
 package jmail;
 
 import jmail.dns.DNSLookupUtil;
+import jmail.dns.DnsResolver;
+import jmail.dns.MXLookupResult;
+import jmail.dns.MXRecordCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * A rule that requires the domain of an email address to have a valid MX record.
+ *
+ * <p>If the resolver does not block, such as {@link jmail.dns.NioMXResolver}, the lookup is
+ * composed by {@link #validateAsync(Email)}. Otherwise {@link #validateAsync(Email)} looks up
+ * the domain on the calling thread, and {@link EmailValidator} runs {@link #validate(Email)}
+ * on an executor instead.
+ */
+public class RequireValidMXRecordRule implements AsyncEmailValidationRule {
+    private final Function<String, MXLookupResult> lookup;
+    // Null if the resolver blocks
+    private final Function<String, CompletionStage<MXLookupResult>> lookupAsync;
+
+    public RequireValidMXRecordRule() {
+        this(null, null);
+    }
+
+    /**
+     * Create a rule that looks up MX records with the given resolver, which may be shared with
+     * other rules. To only add a cache to the platform resolver, pass
+     * {@code cache.wrap(DnsResolver.platform())}.
+     *
+     * @param resolver the resolver to look up MX records with
+     */
+    public RequireValidMXRecordRule(DnsResolver resolver) {
+        this(resolver, null);
+    }
+
+    /**
+     * Create a rule that looks up MX records with the given resolver, through the given cache.
+     *
+     * @param resolver the resolver to look up MX records with, or null to use
+     *                 {@link DNSLookupUtil}
+     * @param cache the cache to look up MX records through, or null to look them up every time
+     */
+    public RequireValidMXRecordRule(DnsResolver resolver, MXRecordCache cache) {
+        DnsResolver dns = resolver != null ? resolver : DnsResolver.platform();
+        Function<String, MXLookupResult> resolve = dns::lookupMX;
+        this.lookup = cache != null ? domain -> cache.lookup(domain, resolve) : resolve;
+
+        if (!dns.isNonBlocking()) {
+            this.lookupAsync = null;
+        } else if (cache != null) {
+            this.lookupAsync = domain -> cache.lookupAsync(domain, dns::lookupMXAsync);
+        } else {
+            this.lookupAsync = dns::lookupMXAsync;
+        }
+    }
 
-public class RequireValidMXRecordRule implements EmailValidationRule {
     @Override
     public boolean validate(Email email) {
-        return DNSLookupUtil.hasMXRecord(email.domainWithoutComments());
+        return lookup.apply(email.domainWithoutComments()).hasMXRecord();
+    }
+
+    @Override
+    public CompletionStage<Boolean> validateAsync(Email email) {
+        if (lookupAsync == null) return CompletableFuture.completedFuture(validate(email));
+
+        return lookupAsync.apply(email.domainWithoutComments())
+            .thenApply(MXLookupResult::hasMXRecord);
+    }
+
+    // Whether validateAsync can be composed without an executor
+    boolean isNonBlocking() {
+        return lookupAsync != null;
     }
 }
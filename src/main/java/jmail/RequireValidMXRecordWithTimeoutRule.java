@@ -1,19 +1,86 @@
-
 package jmail;
 
 import jmail.dns.DNSLookupUtil;
+import jmail.dns.DnsResolver;
+import jmail.dns.MXLookupResult;
+import jmail.dns.MXRecordCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
-public class RequireValidMXRecordWithTimeoutRule implements EmailValidationRule {
-    private final int initialTimeout;
-    private final int numRetries;
+/**
+ * A rule that requires the domain of an email address to have a valid MX record, looked
+ * up with the given timeout settings. Asynchronous lookups use the settings of the resolver.
+ *
+ * <p>If the resolver does not block, such as {@link jmail.dns.NioMXResolver}, the lookup is
+ * composed by {@link #validateAsync(Email)}. Otherwise {@link #validateAsync(Email)} looks up
+ * the domain on the calling thread, and {@link EmailValidator} runs {@link #validate(Email)}
+ * on an executor instead.
+ */
+public class RequireValidMXRecordWithTimeoutRule implements AsyncEmailValidationRule {
+    private final Function<String, MXLookupResult> lookup;
+    // Null if the resolver blocks
+    private final Function<String, CompletionStage<MXLookupResult>> lookupAsync;
 
     public RequireValidMXRecordWithTimeoutRule(int initialTimeout, int numRetries) {
-        this.initialTimeout = initialTimeout;
-        this.numRetries = numRetries;
+        this(initialTimeout, numRetries, null, null);
+    }
+
+    /**
+     * Create a rule that looks up MX records with the given resolver, which may be shared with
+     * other rules. To only add a cache to the platform resolver, pass
+     * {@code cache.wrap(DnsResolver.platform())}.
+     *
+     * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+     * @param numRetries the number of retries to perform using exponential backoff
+     * @param resolver the resolver to look up MX records with
+     */
+    public RequireValidMXRecordWithTimeoutRule(int initialTimeout, int numRetries,
+                                               DnsResolver resolver) {
+        this(initialTimeout, numRetries, resolver, null);
+    }
+
+    /**
+     * Create a rule that looks up MX records with the given resolver, through the given cache.
+     *
+     * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+     * @param numRetries the number of retries to perform using exponential backoff
+     * @param resolver the resolver to look up MX records with, or null to use
+     *                 {@link DNSLookupUtil}
+     * @param cache the cache to look up MX records through, or null to look them up every time
+     */
+    public RequireValidMXRecordWithTimeoutRule(int initialTimeout, int numRetries,
+                                               DnsResolver resolver, MXRecordCache cache) {
+        DnsResolver dns = resolver != null ? resolver : DnsResolver.platform();
+        Function<String, MXLookupResult> resolve =
+            domain -> dns.lookupMX(domain, initialTimeout, numRetries);
+        this.lookup = cache != null ? domain -> cache.lookup(domain, resolve) : resolve;
+
+        if (!dns.isNonBlocking()) {
+            this.lookupAsync = null;
+        } else if (cache != null) {
+            this.lookupAsync = domain -> cache.lookupAsync(domain, dns::lookupMXAsync);
+        } else {
+            this.lookupAsync = dns::lookupMXAsync;
+        }
     }
 
     @Override
     public boolean validate(Email email) {
-        return DNSLookupUtil.hasMXRecord(email.domainWithoutComments(), initialTimeout, numRetries);
+        return lookup.apply(email.domainWithoutComments()).hasMXRecord();
+    }
+
+    @Override
+    public CompletionStage<Boolean> validateAsync(Email email) {
+        if (lookupAsync == null) return CompletableFuture.completedFuture(validate(email));
+
+        return lookupAsync.apply(email.domainWithoutComments())
+            .thenApply(MXLookupResult::hasMXRecord);
+    }
+
+    // Whether validateAsync can be composed without an executor
+    boolean isNonBlocking() {
+        return lookupAsync != null;
     }
 }
@@ -0,0 +1,155 @@
+package jmail;
+
+import jmail.util.CharacterClass;
+
+/**
+ * A table-driven deterministic automaton for the addresses accepted by
+ * {@link JMail#strictValidator()}, restricted to the plain dot-atom grammar: an unquoted
+ * local-part of atoms and dots, followed by a domain of at least two labels.
+ *
+ * <p>Over the characters of that grammar (ASCII atoms, {@code '.'} and {@code '@'}) the
+ * automaton decides exactly the same as the strict validator. As soon as any other character
+ * appears (quotes, comments, whitespace, angle brackets, IP literals, non-ASCII) the input is
+ * left to the full parser.
+ */
+final class StrictAddressAutomaton {
+  static final int REJECT = 0;
+  static final int ACCEPT = 1;
+  static final int UNDECIDED = -1;
+
+  // Character classes
+  private static final int OTHER = 0;
+  private static final int LETTER = 1;
+  private static final int DIGIT = 2;
+  private static final int HYPHEN = 3;
+  private static final int SYMBOL = 4;
+  private static final int DOT = 5;
+  private static final int AT = 6;
+  private static final int CLASS_COUNT = 7;
+
+  // States
+  private static final int DEAD = 0;
+  private static final int START = 1;
+  private static final int LOCAL = 2;
+  private static final int LOCAL_DOT = 3;
+  private static final int DOMAIN_START = 4;
+  private static final int FIRST_LABEL = 5;
+  private static final int FIRST_LABEL_HYPHEN = 6;
+  private static final int LABEL_START = 7;
+  private static final int LABEL = 8;
+  private static final int NUMERIC_LABEL = 9;
+  private static final int LABEL_HYPHEN = 10;
+  private static final int OUTSIDE_GRAMMAR = 11;
+  private static final int STATE_COUNT = 12;
+
+  private static final byte[] CLASSES = new byte[128];
+  private static final byte[] NEXT = new byte[STATE_COUNT * CLASS_COUNT];
+
+  static {
+    for (char c = 0; c < 128; c++) {
+      if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') CLASSES[c] = LETTER;
+      else if (c >= '0' && c <= '9') CLASSES[c] = DIGIT;
+      else if (c == '-') CLASSES[c] = HYPHEN;
+      else if (CharacterClass.isAtom(c)) CLASSES[c] = SYMBOL;
+      else if (c == '.') CLASSES[c] = DOT;
+      else if (c == '@') CLASSES[c] = AT;
+    }
+
+    // Any transition not listed below leads to DEAD. The input is then invalid, unless a
+    // character outside the grammar comes later.
+    for (int state = 0; state < STATE_COUNT; state++) {
+      transition(state, OTHER, OUTSIDE_GRAMMAR);
+    }
+
+    for (int c : new int[] {LETTER, DIGIT, HYPHEN, SYMBOL}) {
+      transition(OUTSIDE_GRAMMAR, c, OUTSIDE_GRAMMAR);
+      transition(START, c, LOCAL);
+      transition(LOCAL, c, LOCAL);
+      transition(LOCAL_DOT, c, LOCAL);
+    }
+    transition(OUTSIDE_GRAMMAR, DOT, OUTSIDE_GRAMMAR);
+    transition(OUTSIDE_GRAMMAR, AT, OUTSIDE_GRAMMAR);
+    transition(LOCAL, DOT, LOCAL_DOT);
+    transition(LOCAL, AT, DOMAIN_START);
+
+    // The first label may be numeric, and must be followed by at least one more label
+    transition(DOMAIN_START, LETTER, FIRST_LABEL);
+    transition(DOMAIN_START, DIGIT, FIRST_LABEL);
+    transition(FIRST_LABEL, LETTER, FIRST_LABEL);
+    transition(FIRST_LABEL, DIGIT, FIRST_LABEL);
+    transition(FIRST_LABEL, HYPHEN, FIRST_LABEL_HYPHEN);
+    transition(FIRST_LABEL, DOT, LABEL_START);
+    transition(FIRST_LABEL_HYPHEN, LETTER, FIRST_LABEL);
+    transition(FIRST_LABEL_HYPHEN, DIGIT, FIRST_LABEL);
+    transition(FIRST_LABEL_HYPHEN, HYPHEN, FIRST_LABEL_HYPHEN);
+
+    // Later labels track whether they are numeric, since the top level domain cannot be
+    transition(LABEL_START, LETTER, LABEL);
+    transition(LABEL_START, DIGIT, NUMERIC_LABEL);
+    transition(LABEL, LETTER, LABEL);
+    transition(LABEL, DIGIT, LABEL);
+    transition(LABEL, HYPHEN, LABEL_HYPHEN);
+    transition(LABEL, DOT, LABEL_START);
+    transition(NUMERIC_LABEL, LETTER, LABEL);
+    transition(NUMERIC_LABEL, DIGIT, NUMERIC_LABEL);
+    transition(NUMERIC_LABEL, HYPHEN, LABEL_HYPHEN);
+    transition(NUMERIC_LABEL, DOT, LABEL_START);
+    transition(LABEL_HYPHEN, LETTER, LABEL);
+    transition(LABEL_HYPHEN, DIGIT, LABEL);
+    transition(LABEL_HYPHEN, HYPHEN, LABEL_HYPHEN);
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private StrictAddressAutomaton() {
+  }
+
+  /**
+   * Run the automaton on the given email address.
+   *
+   * @param email the email address to test
+   * @return {@link #ACCEPT} or {@link #REJECT} if the automaton decides the address, or
+   *         {@link #UNDECIDED} if it contains characters outside the dot-atom grammar
+   */
+  static int test(CharSequence email) {
+    if (email == null) return REJECT;
+
+    int length = email.length();
+
+    // Too long is rejected before anything else is looked at, and a leading @ means either an
+    // invalid address or an explicit source route
+    if (length > JMail.MAX_EMAIL_LENGTH || length > 0 && email.charAt(0) == '@') return REJECT;
+
+    int state = START;
+    int at = -1;
+    int labelStart = 0;
+    boolean longLabel = false;
+
+    for (int i = 0; i < length; i++) {
+      char c = email.charAt(i);
+      int characterClass = c < 128 ? CLASSES[c] : OTHER;
+
+      state = NEXT[state * CLASS_COUNT + characterClass];
+
+      if (characterClass >= DOT) {
+        if (at >= 0 && i - labelStart > JMail.MAX_DOMAIN_PART_LENGTH) longLabel = true;
+        if (at < 0 && characterClass == AT) at = i;
+        labelStart = i + 1;
+      }
+    }
+
+    if (state == OUTSIDE_GRAMMAR) return UNDECIDED;
+    if (state != LABEL) return REJECT;
+
+    if (longLabel || length - labelStart > JMail.MAX_DOMAIN_PART_LENGTH) return REJECT;
+    if (at > JMail.MAX_LOCAL_PART_LENGTH) return REJECT;
+    if (length - at - 1 > JMail.MAX_DOMAIN_LENGTH) return REJECT;
+
+    return ACCEPT;
+  }
+
+  private static void transition(int state, int characterClass, int next) {
+    NEXT[state * CLASS_COUNT + characterClass] = (byte) next;
+  }
+}
@@ -0,0 +1,127 @@
+package jmail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import jmail.util.CharacterClass;
+
+/**
+ * Provides a {@link CharSequence} view of UTF-8 encoded input, so that the parsers can work on
+ * bytes without first decoding them into a {@link String}.
+ */
+final class Utf8 {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private Utf8() {
+  }
+
+  /**
+   * Get the characters of the remaining bytes in the given buffer. If all of the bytes are
+   * ASCII, the returned sequence reads the buffer in place. Otherwise, the bytes are decoded the
+   * same way as {@link String#String(byte[], java.nio.charset.Charset)}, replacing malformed
+   * input. The position and limit of the buffer are not changed.
+   *
+   * @param buffer the UTF-8 encoded input
+   * @return the characters of the input
+   */
+  static CharSequence asCharSequence(ByteBuffer buffer) {
+    int start = buffer.position();
+    int end = buffer.limit();
+
+    if (buffer.hasArray()) {
+      int offset = buffer.arrayOffset();
+      if (ByteScanner.INSTANCE.indexOfNonAscii(buffer.array(), offset + start, offset + end)
+          != offset + end) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate());
+      }
+    } else {
+      for (int i = start; i < end; i++) {
+        if (buffer.get(i) < 0) return StandardCharsets.UTF_8.decode(buffer.duplicate());
+      }
+    }
+
+    return new AsciiView(buffer, start, end - start);
+  }
+
+  /**
+   * Find the first character in the given range that is not an atom character (see
+   * {@link CharacterClass#ATOM}). Sequences returned by {@link #asCharSequence(ByteBuffer)}
+   * over an array are scanned with {@link ByteScanner}.
+   *
+   * @param s the characters to scan
+   * @param from the index of the first character to scan
+   * @param to the index after the last character to scan
+   * @return the index of the first character that is not an atom character, or {@code to}
+   */
+  static int indexOfSpecial(CharSequence s, int from, int to) {
+    if (s instanceof AsciiView) {
+      AsciiView view = (AsciiView) s;
+
+      if (view.buffer.hasArray()) {
+        int offset = view.buffer.arrayOffset() + view.offset;
+        return ByteScanner.INSTANCE.indexOfSpecial(view.buffer.array(), offset + from, offset + to)
+            - offset;
+      }
+    }
+
+    for (int i = from; i < to; i++) {
+      if (!CharacterClass.isAtom(s.charAt(i))) return i;
+    }
+
+    return to;
+  }
+
+  /**
+   * A window of ASCII bytes, where every byte is one character.
+   */
+  private static final class AsciiView implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    private AsciiView(ByteBuffer buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index);
+
+      return (char) buffer.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length || start > end) {
+        throw new IndexOutOfBoundsException("start " + start + ", end " + end);
+      }
+
+      return new AsciiView(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      if (buffer.hasArray()) {
+        return new String(buffer.array(), buffer.arrayOffset() + offset, length,
+            StandardCharsets.US_ASCII);
+      }
+
+      byte[] bytes = new byte[length];
+
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(offset + i);
+      }
+
+      return new String(bytes, StandardCharsets.US_ASCII);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package jmail;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the validation rules that block on the network, such as
+ * {@link RequireValidMXRecordRule}, when they are run by
+ * {@link EmailValidator#validateAsync(String)}.
+ *
+ * <p>On Java 21 and later these executors start one virtual thread per task, so tens of
+ * thousands of DNS lookups can wait at once without a platform thread each. On earlier
+ * versions, or when the {@code jmail.async.virtual.threads} system property is set to
+ * {@code false}, they fall back to a pool of at most {@code jmail.async.platform.threads}
+ * daemon platform threads (64 by default), and further tasks wait in its queue.
+ */
+public final class ValidationExecutors {
+  private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ValidationExecutors() {
+  }
+
+  /**
+   * Return the shared executor that {@link EmailValidator#validateAsync(String)} uses when
+   * no executor is given. It is never shut down.
+   *
+   * @return the shared executor
+   */
+  public static Executor defaultExecutor() {
+    return DefaultExecutorHolder.INSTANCE;
+  }
+
+  /**
+   * Create a new executor that runs each task on its own virtual thread if this runtime
+   * supports it, or on a bounded pool of daemon platform threads if it does not. The caller
+   * owns the executor and should shut it down.
+   *
+   * @return a new executor
+   */
+  public static ExecutorService newVirtualThreadExecutor() {
+    if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+      try {
+        return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // Fall through to platform threads
+      }
+    }
+
+    // Idle threads time out, so that an unused pool holds no threads
+    int threads = JmailProperties.platformThreads();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Return true if {@link #newVirtualThreadExecutor()} runs tasks on virtual threads.
+   *
+   * @return true if virtual threads are used
+   */
+  public static boolean usesVirtualThreads() {
+    return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+  }
+
+  // Executors.newVirtualThreadPerTaskExecutor() is looked up by reflection, so that this
+  // library still compiles for and runs on Java 8. It is called once here because on Java 19
+  // and 20 it exists but throws unless preview features are enabled.
+  private static Method virtualThreadExecutorFactory() {
+    if (!JmailProperties.virtualThreads()) return null;
+
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      ((ExecutorService) factory.invoke(null)).shutdown();
+      return factory;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static final class DefaultExecutorHolder {
+    private static final ExecutorService INSTANCE = newVirtualThreadExecutor();
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "jmail-validation-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,429 @@
+package jmail.cli;
+
+import jmail.Email;
+import jmail.EmailValidationResult;
+import jmail.EmailValidator;
+import jmail.JMail;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line tool that validates files with one email address per line, or with the address
+ * in the first column of a delimited file such as the test CSV files, and writes three files:
+ *
+ * <ul>
+ *   <li>{@code valid.txt}: each valid address, as it appeared in the input</li>
+ *   <li>{@code normalized.txt}: the {@link Email#normalized()} form of each valid address</li>
+ *   <li>{@code rejected.txt}: each invalid address and its failure reason, separated by
+ *       {@code " ;"} as in {@code invalid-addresses.csv}</li>
+ * </ul>
+ *
+ * <p>The input is memory-mapped and split into segments on line boundaries, which are validated
+ * in parallel. Each segment writes its own part of the outputs, and the parts are joined in input
+ * order at the end, so the outputs keep the order of the input.
+ *
+ * <pre>
+ * java -cp jmail.jar jmail.cli.BulkFileValidator [--strict] [--delimiter D] [--skip-header]
+ *     [--threads N] [--output DIR] INPUT
+ * </pre>
+ */
+public final class BulkFileValidator {
+  static final String VALID = "valid.txt";
+  static final String NORMALIZED = "normalized.txt";
+  static final String REJECTED = "rejected.txt";
+
+  private static final String USAGE = "Usage: BulkFileValidator [--strict] [--delimiter D]"
+      + " [--skip-header] [--threads N] [--output DIR] INPUT";
+
+  private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+  private static final byte[] REJECTED_SEPARATOR = " ;".getBytes(StandardCharsets.US_ASCII);
+
+  private final EmailValidator validator;
+  private final byte[] delimiter;
+  private final boolean skipHeader;
+  private final int threads;
+  private final long segmentSize;
+
+  BulkFileValidator(EmailValidator validator, String delimiter, boolean skipHeader, int threads,
+                    long segmentSize) {
+    this.validator = validator;
+    this.delimiter = delimiter == null ? null : delimiter.getBytes(StandardCharsets.UTF_8);
+    this.skipHeader = skipHeader;
+    this.threads = threads;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Run the tool with the given command-line arguments.
+   *
+   * @param args the command-line arguments
+   */
+  public static void main(String[] args) {
+    EmailValidator validator = JMail.validator();
+    String delimiter = null;
+    boolean skipHeader = false;
+    int threads = Runtime.getRuntime().availableProcessors();
+    Path output = Paths.get(".");
+    Path input = null;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--strict":
+            validator = JMail.strictValidator();
+            break;
+          case "--delimiter":
+            delimiter = args[++i];
+            break;
+          case "--skip-header":
+            skipHeader = true;
+            break;
+          case "--threads":
+            threads = Integer.parseInt(args[++i]);
+            break;
+          case "--output":
+            output = Paths.get(args[++i]);
+            break;
+          default:
+            if (input != null || args[i].startsWith("--")) throw new IllegalArgumentException();
+            input = Paths.get(args[i]);
+        }
+      }
+      if (input == null || threads < 1) throw new IllegalArgumentException();
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      System.err.println(USAGE);
+      System.exit(2);
+      return;
+    }
+
+    try {
+      Report report = new BulkFileValidator(validator, delimiter, skipHeader, threads,
+          DEFAULT_SEGMENT_SIZE).run(input, output);
+      report.print(System.out);
+    } catch (IOException e) {
+      System.err.println("Failed to validate " + input + ": " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Validate the given input file, writing the outputs to the given directory.
+   */
+  Report run(Path input, Path outputDirectory) throws IOException {
+    long startTime = System.nanoTime();
+    Files.createDirectories(outputDirectory);
+
+    List<Segment> segments;
+    try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+      segments = split(channel, outputDirectory);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Report report = new Report();
+
+    try (FileChannel valid = create(outputDirectory.resolve(VALID));
+         FileChannel normalized = create(outputDirectory.resolve(NORMALIZED));
+         FileChannel rejected = create(outputDirectory.resolve(REJECTED))) {
+      List<Future<Segment>> futures = new ArrayList<>();
+      for (Segment segment : segments) {
+        futures.add(executor.submit(() -> validate(input, segment)));
+      }
+
+      // Join the parts in input order as soon as each one is done, deleting them right away so
+      // that the parts and the outputs never take up twice the output size on disk
+      for (Future<Segment> future : futures) {
+        Segment segment = future.get();
+        segment.appendTo(valid, normalized, rejected);
+        segment.deleteParts();
+        report.add(segment);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+      // Clean up the parts of a failed run that were never joined
+      for (Segment segment : segments) segment.deleteParts();
+    }
+
+    report.elapsedNanos = System.nanoTime() - startTime;
+    return report;
+  }
+
+  /**
+   * Split the input into segments of about {@link #segmentSize} bytes, each ending just after
+   * a line break (or at the end of the file).
+   */
+  private List<Segment> split(FileChannel channel, Path outputDirectory) throws IOException {
+    List<Segment> segments = new ArrayList<>();
+    long size = channel.size();
+    long start = 0;
+    ByteBuffer probe = ByteBuffer.allocate(4096);
+
+    while (start < size) {
+      long end = Math.min(size, start + segmentSize);
+
+      while (end < size) {
+        probe.clear();
+        int read = channel.read(probe, end);
+        if (read <= 0) {
+          end = size;
+          break;
+        }
+
+        int newline = -1;
+        for (int i = 0; i < read && newline < 0; i++) {
+          if (probe.get(i) == '\n') newline = i;
+        }
+
+        if (newline >= 0) {
+          end += newline + 1;
+          break;
+        }
+        end += read;
+      }
+
+      segments.add(new Segment(segments.size(), start, Math.min(end, size), outputDirectory));
+      start = end;
+    }
+
+    return segments;
+  }
+
+  private Segment validate(Path input, Segment segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+         Output valid = new Output(segment.part(VALID));
+         Output normalized = new Output(segment.part(NORMALIZED));
+         Output rejected = new Output(segment.part(REJECTED))) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, segment.start,
+          segment.end - segment.start);
+      byte[] line = new byte[256];
+
+      int position = 0;
+      int limit = mapped.limit();
+      boolean header = skipHeader && segment.index == 0;
+
+      while (position < limit) {
+        int end = position;
+        while (end < limit && mapped.get(end) != '\n') end++;
+        int next = end + 1;
+
+        if (end > position && mapped.get(end - 1) == '\r') end--;
+        end = position + fieldLength(mapped, position, end);
+
+        if (header) {
+          header = false;
+        } else if (end > position) {
+          int length = end - position;
+          if (line.length < length) line = new byte[Math.max(length, 2 * line.length)];
+          for (int i = 0; i < length; i++) line[i] = mapped.get(position + i);
+
+          String address = new String(line, 0, length, StandardCharsets.UTF_8);
+          EmailValidationResult result = validator.validate(address);
+
+          if (result.isSuccess()) {
+            valid.write(line, 0, length).newLine();
+            normalized.write(result.getEmail().get().normalized()).newLine();
+            segment.valid++;
+          } else {
+            rejected.write(line, 0, length)
+                .write(REJECTED_SEPARATOR, 0, REJECTED_SEPARATOR.length)
+                .write(result.getFailureReason().name())
+                .newLine();
+            segment.rejected++;
+          }
+        }
+
+        position = next;
+      }
+    }
+
+    return segment;
+  }
+
+  /**
+   * Get the length of the first field of the line in {@code [start, end)}.
+   */
+  private int fieldLength(ByteBuffer buffer, int start, int end) {
+    if (delimiter == null) return end - start;
+
+    for (int i = start; i + delimiter.length <= end; i++) {
+      int matched = 0;
+      while (matched < delimiter.length && buffer.get(i + matched) == delimiter[matched]) {
+        matched++;
+      }
+      if (matched == delimiter.length) return i - start;
+    }
+
+    return end - start;
+  }
+
+  /**
+   * Wait until the segment tasks have stopped, so that none of them creates its parts after
+   * they were deleted. The tasks are interrupted, and their file I/O stops right away.
+   */
+  private static void awaitTermination(ExecutorService executor) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (executor.awaitTermination(1, TimeUnit.SECONDS)) break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+  }
+
+  private static FileChannel create(Path path) throws IOException {
+    return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * A range of input lines, and the files that hold its part of each output.
+   */
+  private static final class Segment {
+    private final int index;
+    private final long start;
+    private final long end;
+    private final Path directory;
+
+    private long valid;
+    private long rejected;
+
+    private Segment(int index, long start, long end, Path directory) {
+      this.index = index;
+      this.start = start;
+      this.end = end;
+      this.directory = directory;
+    }
+
+    private Path part(String output) {
+      return directory.resolve(output + ".part" + index);
+    }
+
+    private void appendTo(FileChannel valid, FileChannel normalized, FileChannel rejected)
+        throws IOException {
+      append(part(VALID), valid);
+      append(part(NORMALIZED), normalized);
+      append(part(REJECTED), rejected);
+    }
+
+    private static void append(Path part, FileChannel target) throws IOException {
+      try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+        long size = source.size();
+        for (long copied = 0; copied < size; ) {
+          copied += source.transferTo(copied, size - copied, target);
+        }
+      }
+    }
+
+    private void deleteParts() throws IOException {
+      Files.deleteIfExists(part(VALID));
+      Files.deleteIfExists(part(NORMALIZED));
+      Files.deleteIfExists(part(REJECTED));
+    }
+  }
+
+  /**
+   * A file written through a direct buffer.
+   */
+  private static final class Output implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+    private Output(Path path) throws IOException {
+      this.channel = create(path);
+    }
+
+    private Output write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (!buffer.hasRemaining()) flush();
+
+        int count = Math.min(length, buffer.remaining());
+        buffer.put(bytes, offset, count);
+        offset += count;
+        length -= count;
+      }
+      return this;
+    }
+
+    private Output write(String text) throws IOException {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      return write(bytes, 0, bytes.length);
+    }
+
+    private Output newLine() throws IOException {
+      if (!buffer.hasRemaining()) flush();
+      buffer.put((byte) '\n');
+      return this;
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * The counts and throughput of a run.
+   */
+  static final class Report {
+    private long valid;
+    private long rejected;
+    private long elapsedNanos;
+
+    private void add(Segment segment) {
+      valid += segment.valid;
+      rejected += segment.rejected;
+    }
+
+    long valid() {
+      return valid;
+    }
+
+    long rejected() {
+      return rejected;
+    }
+
+    void print(PrintStream out) {
+      long lines = valid + rejected;
+      double seconds = elapsedNanos / 1e9;
+
+      out.printf(Locale.ROOT, "Validated %d lines in %.2f s (%.0f lines/s): %d valid, %d rejected%n",
+          lines, seconds, seconds > 0 ? lines / seconds : 0.0, valid, rejected);
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package jmail.dns;
 
 import java.util.Hashtable;
+import java.util.Locale;
 
+import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.DirContext;
@@ -11,9 +14,10 @@ import javax.naming.directory.InitialDirContext;
  * Utility class that provides static methods for DNS related operations.
  */
 public final class DNSLookupUtil {
-  private static final int DEFAULT_INITIAL_TIMEOUT = 100;
-  private static final int DEFAULT_RETRIES = 2;
+  static final int DEFAULT_INITIAL_TIMEOUT = 100;
+  static final int DEFAULT_RETRIES = 2;
   private static final String NO_SERVICE_MX_PR_RDATA = "0 .";
+  private static final MXLookupCoalescer COALESCER = new MXLookupCoalescer();
 
   /**
    * Private constructor to prevent instantiation.
@@ -40,18 +44,117 @@ public final class DNSLookupUtil {
    * @return true if the domain has a valid MX record, or false if it does not
    */
   public static boolean hasMXRecord(String domain, int initialTimeout, int numRetries) {
+    return lookupMX(domain, initialTimeout, numRetries).hasMXRecord();
+  }
+
+  /**
+   * Look up the MX records of the given domain, telling a domain without MX records apart
+   * from a domain that does not exist and from a lookup that failed.
+   *
+   * <p>JNDI does not report the time to live of DNS answers, so the results have
+   * {@link MXLookupResult#UNKNOWN_TTL}.
+   *
+   * @param domain the domain whose MX record to check
+   * @return the outcome of the lookup
+   */
+  public static MXLookupResult lookupMX(String domain) {
+    return lookupMX(domain, DEFAULT_INITIAL_TIMEOUT, DEFAULT_RETRIES);
+  }
+
+  /**
+   * Look up the MX records of the given domain, telling a domain without MX records apart
+   * from a domain that does not exist and from a lookup that failed.
+   *
+   * <p>JNDI does not report the time to live of DNS answers, so the results have
+   * {@link MXLookupResult#UNKNOWN_TTL}. Concurrent lookups of the same domain with the same
+   * settings share one query.
+   *
+   * @param domain the domain whose MX record to check
+   * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @return the outcome of the lookup
+   */
+  public static MXLookupResult lookupMX(String domain, int initialTimeout, int numRetries) {
+    // Concurrent lookups of the same domain share one query
+    return COALESCER.lookup(key(domain, initialTimeout, numRetries),
+        () -> query(domain, initialTimeout, numRetries));
+  }
+
+  private static MXLookupResult query(String domain, int initialTimeout, int numRetries) {
+    DirContext ctx = null;
+
+    try {
+      ctx = new InitialDirContext(environment(initialTimeout, numRetries, null));
+      return lookupMX(ctx, domain);
+    } catch (NamingException e) {
+      return failure(e);
+    } finally {
+      close(ctx);
+    }
+  }
+
+  /**
+   * Normalize the given domain for use as a key. DNS names are case-insensitive, and the
+   * trailing dot of a fully qualified name is optional.
+   */
+  static String normalize(String domain) {
+    String key = domain.toLowerCase(Locale.ROOT);
+    return key.length() > 1 && key.endsWith(".") ? key.substring(0, key.length() - 1) : key;
+  }
+
+  /**
+   * Build the key of a lookup of the given domain with the given settings.
+   */
+  static String key(String domain, int initialTimeout, int numRetries) {
+    return normalize(domain) + '/' + initialTimeout + '/' + numRetries;
+  }
+
+  /**
+   * Build the JNDI environment of a DNS context.
+   *
+   * @param providerUrl the space-separated {@code dns://host:port} URLs of the servers to
+   *                    query, or null to use the servers configured for the platform
+   */
+  static Hashtable<String, String> environment(int initialTimeout, int numRetries,
+                                               String providerUrl) {
     Hashtable<String, String> env = new Hashtable<>();
     env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
     env.put("com.sun.jndi.dns.timeout.initial", String.valueOf(initialTimeout));
     env.put("com.sun.jndi.dns.timeout.retries", String.valueOf(numRetries));
+    if (providerUrl != null) env.put("java.naming.provider.url", providerUrl);
+    return env;
+  }
 
-    try {
-      DirContext ctx = new InitialDirContext(env);
-      Attribute attr = ctx.getAttributes(domain, new String[]{"MX"}).get("MX");
+  /**
+   * Look up the MX records of the given domain with the given context.
+   */
+  static MXLookupResult lookupMX(DirContext ctx, String domain) throws NamingException {
+    Attribute attr = ctx.getAttributes(domain, new String[]{"MX"}).get("MX");
+
+    return attr != null && attr.size() > 0 && !attr.get(0).equals(NO_SERVICE_MX_PR_RDATA)
+        ? MXLookupResult.found(MXLookupResult.UNKNOWN_TTL)
+        : MXLookupResult.noMX(MXLookupResult.UNKNOWN_TTL);
+  }
+
+  /**
+   * Classify a failed lookup.
+   */
+  static MXLookupResult failure(NamingException e) {
+    if (e instanceof NameNotFoundException || e instanceof InvalidNameException) {
+      return MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL);
+    }
+
+    // Timeouts and server failures
+    return MXLookupResult.transientFailure();
+  }
+
+  static void close(DirContext ctx) {
+    if (ctx == null) return;
 
-      return attr != null && attr.size() > 0 && !attr.get(0).equals(NO_SERVICE_MX_PR_RDATA);
+    try {
+      ctx.close();
     } catch (NamingException e) {
-      return false;
+      // Nothing left to release
     }
   }
 }
@@ -0,0 +1,80 @@
+package jmail.dns;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Looks up the MX records of domains for the MX record rules, such as
+ * {@code RequireValidMXRecordRule}.
+ *
+ * <p>Implementations must be thread-safe. This library provides resolvers that query DNS
+ * ({@link #platform()}, {@link JndiMXResolver} and {@link NioMXResolver}) and resolvers that
+ * answer from data loaded in advance, for offline and deterministic validation
+ * ({@link InMemoryDnsResolver} and {@link ZoneFileDnsResolver}). Any resolver can be put behind
+ * an {@link MXRecordCache} with {@link MXRecordCache#wrap(DnsResolver)}.
+ */
+public interface DnsResolver {
+
+  /**
+   * Look up the MX records of the given domain.
+   *
+   * @param domain the domain whose MX records to look up
+   * @return the outcome of the lookup
+   */
+  MXLookupResult lookupMX(String domain);
+
+  /**
+   * Look up the MX records of the given domain with the given timeout settings. Resolvers that
+   * do not query the network, or that are configured with their own timeouts, ignore them.
+   *
+   * @param domain the domain whose MX records to look up
+   * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @return the outcome of the lookup
+   */
+  default MXLookupResult lookupMX(String domain, int initialTimeout, int numRetries) {
+    return lookupMX(domain);
+  }
+
+  /**
+   * Look up the MX records of the given domain without blocking, if this resolver supports
+   * it. By default, the lookup runs on the calling thread.
+   *
+   * @param domain the domain whose MX records to look up
+   * @return a stage that completes with the outcome of the lookup
+   */
+  default CompletionStage<MXLookupResult> lookupMXAsync(String domain) {
+    return CompletableFuture.completedFuture(lookupMX(domain));
+  }
+
+  /**
+   * Determine if {@link #lookupMXAsync(String)} returns without waiting for the lookup, so
+   * that callers can compose it instead of running it on an executor. By default, it does
+   * not.
+   *
+   * @return true if asynchronous lookups do not block the calling thread
+   */
+  default boolean isNonBlocking() {
+    return false;
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record.
+   *
+   * @param domain the domain whose MX record to check
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  default boolean hasMXRecord(String domain) {
+    return lookupMX(domain).hasMXRecord();
+  }
+
+  /**
+   * Get the resolver that queries the DNS servers configured for the platform through
+   * {@link DNSLookupUtil}, with a new JNDI context per lookup.
+   *
+   * @return the platform resolver
+   */
+  static DnsResolver platform() {
+    return PlatformResolver.INSTANCE;
+  }
+}
@@ -0,0 +1,97 @@
+package jmail.dns;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link DnsResolver} that answers from a map of domains held in memory, for tests, load
+ * tests and offline validation. Domains are matched ignoring case and a trailing dot. The map
+ * may be changed while the resolver is in use.
+ */
+public final class InMemoryDnsResolver implements DnsResolver {
+  private final Map<String, MXLookupResult> results = new ConcurrentHashMap<>();
+  private final MXLookupResult absent;
+
+  /**
+   * Create an empty resolver that answers {@link MXLookupResult.Status#NXDOMAIN} for domains
+   * it does not know.
+   */
+  public InMemoryDnsResolver() {
+    this(MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+  }
+
+  /**
+   * Create an empty resolver.
+   *
+   * @param absent the result for domains this resolver does not know
+   */
+  public InMemoryDnsResolver(MXLookupResult absent) {
+    this.absent = Objects.requireNonNull(absent, "absent");
+  }
+
+  /**
+   * Set the result for the given domain.
+   *
+   * @param domain the domain
+   * @param result the result of MX lookups of the domain
+   * @return this resolver
+   */
+  public InMemoryDnsResolver put(String domain, MXLookupResult result) {
+    results.put(DNSLookupUtil.normalize(domain), Objects.requireNonNull(result, "result"));
+    return this;
+  }
+
+  /**
+   * Set the result for each of the given domains to a found MX record.
+   *
+   * @param domains the domains that have MX records
+   * @return this resolver
+   */
+  public InMemoryDnsResolver putMX(String... domains) {
+    for (String domain : domains) {
+      put(domain, MXLookupResult.found(MXLookupResult.UNKNOWN_TTL));
+    }
+    return this;
+  }
+
+  /**
+   * Set the results for all domains of the given map.
+   *
+   * @param results the results of MX lookups, by domain
+   * @return this resolver
+   */
+  public InMemoryDnsResolver putAll(Map<String, MXLookupResult> results) {
+    results.forEach(this::put);
+    return this;
+  }
+
+  /**
+   * Forget the given domain.
+   *
+   * @param domain the domain
+   */
+  public void remove(String domain) {
+    results.remove(DNSLookupUtil.normalize(domain));
+  }
+
+  /**
+   * Get the number of domains this resolver knows.
+   *
+   * @return the number of domains
+   */
+  public int size() {
+    return results.size();
+  }
+
+  @Override
+  public MXLookupResult lookupMX(String domain) {
+    return results.getOrDefault(DNSLookupUtil.normalize(domain), absent);
+  }
+
+  // Answers come from memory, so the default asynchronous lookup never waits
+  @Override
+  public boolean isNonBlocking() {
+    return true;
+  }
+}
@@ -0,0 +1,222 @@
+package jmail.dns;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+
+/**
+ * A thread-safe MX record resolver that reuses JNDI DNS contexts across lookups, instead of
+ * creating a new context for each lookup as {@link DNSLookupUtil} does.
+ *
+ * <p>Contexts are pooled per pair of timeout and retry settings, with at most
+ * {@code poolSize} contexts for each pair. A lookup borrows a context for its duration, so a
+ * pool also bounds the number of concurrent lookups: further callers wait for a context to be
+ * returned. A context whose server could not be reached is closed instead of being reused.
+ * Concurrent lookups of the same domain share one query and one context.
+ *
+ * <p>One resolver can be shared by any number of rules and threads. It holds open resources
+ * until it is {@link #close() closed}.
+ */
+public final class JndiMXResolver implements DnsResolver, AutoCloseable {
+  private static final int DEFAULT_POOL_SIZE = 32;
+
+  private final int poolSize;
+  private final String providerUrl;
+  private final Map<Long, ContextPool> pools = new ConcurrentHashMap<>();
+  private final MXLookupCoalescer coalescer = new MXLookupCoalescer();
+  private volatile boolean closed;
+
+  /**
+   * Create a resolver that queries the servers configured for the platform, with up to 32
+   * contexts per timeout setting.
+   */
+  public JndiMXResolver() {
+    this(DEFAULT_POOL_SIZE);
+  }
+
+  /**
+   * Create a resolver that queries the servers configured for the platform.
+   *
+   * @param poolSize the maximum number of contexts per timeout setting
+   */
+  public JndiMXResolver(int poolSize) {
+    this(poolSize, Collections.emptyList());
+  }
+
+  /**
+   * Create a resolver that queries the given servers, in order.
+   *
+   * @param poolSize the maximum number of contexts per timeout setting
+   * @param servers the servers to query, each as {@code host} or {@code host:port}, or an
+   *                empty list to use the servers configured for the platform
+   */
+  public JndiMXResolver(int poolSize, List<String> servers) {
+    if (poolSize < 1) throw new IllegalArgumentException("poolSize must be positive");
+
+    this.poolSize = poolSize;
+    this.providerUrl = servers.isEmpty() ? null : providerUrl(servers);
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record.
+   *
+   * @param domain the domain whose MX record to check
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  @Override
+  public boolean hasMXRecord(String domain) {
+    return lookupMX(domain).hasMXRecord();
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record.
+   *
+   * @param domain the domain whose MX record to check
+   * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  public boolean hasMXRecord(String domain, int initialTimeout, int numRetries) {
+    return lookupMX(domain, initialTimeout, numRetries).hasMXRecord();
+  }
+
+  /**
+   * Look up the MX records of the given domain with the default timeout settings of
+   * {@link DNSLookupUtil}.
+   *
+   * @param domain the domain whose MX record to check
+   * @return the outcome of the lookup
+   * @throws IllegalStateException if this resolver is closed
+   */
+  @Override
+  public MXLookupResult lookupMX(String domain) {
+    return lookupMX(domain, DNSLookupUtil.DEFAULT_INITIAL_TIMEOUT, DNSLookupUtil.DEFAULT_RETRIES);
+  }
+
+  /**
+   * Look up the MX records of the given domain.
+   *
+   * @param domain the domain whose MX record to check
+   * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @return the outcome of the lookup
+   * @throws IllegalStateException if this resolver is closed
+   */
+  @Override
+  public MXLookupResult lookupMX(String domain, int initialTimeout, int numRetries) {
+    Objects.requireNonNull(domain, "domain");
+    if (closed) throw new IllegalStateException("Resolver is closed");
+
+    long settings = (long) initialTimeout << 32 | numRetries & 0xFFFFFFFFL;
+    ContextPool pool = pools.computeIfAbsent(settings,
+        s -> new ContextPool(initialTimeout, numRetries));
+
+    return coalescer.lookup(DNSLookupUtil.key(domain, initialTimeout, numRetries),
+        () -> pool.lookupMX(domain));
+  }
+
+  /**
+   * Close all idle contexts, and each borrowed context as soon as its lookup completes.
+   * Lookups started after this call throw {@link IllegalStateException}.
+   */
+  @Override
+  public void close() {
+    closed = true;
+
+    for (ContextPool pool : pools.values()) {
+      pool.closeIdle();
+    }
+  }
+
+  /**
+   * Get the number of contexts that are open and not in use.
+   *
+   * @return the number of idle contexts
+   */
+  int idleContexts() {
+    return pools.values().stream().mapToInt(pool -> pool.idle.size()).sum();
+  }
+
+  private static String providerUrl(List<String> servers) {
+    StringBuilder url = new StringBuilder();
+    for (String server : servers) {
+      if (url.length() > 0) url.append(' ');
+      url.append("dns://").append(server);
+    }
+    return url.toString();
+  }
+
+  /**
+   * The contexts for one pair of timeout and retry settings.
+   */
+  private final class ContextPool {
+    private final int initialTimeout;
+    private final int numRetries;
+    private final Semaphore permits = new Semaphore(poolSize);
+    private final ConcurrentLinkedQueue<DirContext> idle = new ConcurrentLinkedQueue<>();
+
+    private ContextPool(int initialTimeout, int numRetries) {
+      this.initialTimeout = initialTimeout;
+      this.numRetries = numRetries;
+    }
+
+    MXLookupResult lookupMX(String domain) {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return MXLookupResult.transientFailure();
+      }
+
+      DirContext ctx = idle.poll();
+      boolean reusable = true;
+
+      try {
+        if (ctx == null) {
+          ctx = new InitialDirContext(
+              DNSLookupUtil.environment(initialTimeout, numRetries, providerUrl));
+        }
+
+        return DNSLookupUtil.lookupMX(ctx, domain);
+      } catch (CommunicationException | ServiceUnavailableException e) {
+        reusable = false;
+        return DNSLookupUtil.failure(e);
+      } catch (NamingException e) {
+        return DNSLookupUtil.failure(e);
+      } finally {
+        release(ctx, reusable);
+      }
+    }
+
+    private void release(DirContext ctx, boolean reusable) {
+      if (ctx != null) {
+        if (reusable && !closed) {
+          idle.add(ctx);
+          // Closed while the context was being returned
+          if (closed) closeIdle();
+        } else {
+          DNSLookupUtil.close(ctx);
+        }
+      }
+
+      permits.release();
+    }
+
+    void closeIdle() {
+      DirContext ctx;
+      while ((ctx = idle.poll()) != null) {
+        DNSLookupUtil.close(ctx);
+      }
+    }
+  }
+}
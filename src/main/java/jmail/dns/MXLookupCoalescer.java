@@ -0,0 +1,103 @@
+package jmail.dns;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent MX lookups of the same key into one: the first caller runs the lookup,
+ * and every caller that arrives while it is in flight receives the same result instead of
+ * issuing a query of its own. Once the lookup completes the key is forgotten, so this is not a
+ * cache; combine it with an {@link MXRecordCache} to also reuse results over time.
+ *
+ * <p>Blocking and asynchronous lookups may be mixed on the same key.
+ */
+public final class MXLookupCoalescer {
+  private final Map<String, CompletableFuture<MXLookupResult>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Run the given lookup, or wait for the result of the lookup of the same key that is already
+   * in flight. The lookup runs on the calling thread.
+   *
+   * @param key the key that identifies equal lookups, such as the lower-cased domain
+   * @param lookup the lookup to run if none is in flight
+   * @return the result of the lookup
+   */
+  public MXLookupResult lookup(String key, Supplier<MXLookupResult> lookup) {
+    CompletableFuture<MXLookupResult> flight = new CompletableFuture<>();
+    CompletableFuture<MXLookupResult> existing = inFlight.putIfAbsent(key, flight);
+
+    if (existing != null) {
+      try {
+        return existing.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+    }
+
+    try {
+      MXLookupResult result = lookup.get();
+      flight.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /**
+   * Start the given lookup, or share the lookup of the same key that is already in flight.
+   *
+   * @param key the key that identifies equal lookups, such as the lower-cased domain
+   * @param lookup the lookup to start if none is in flight
+   * @return a future that completes with the result of the lookup. Completing or cancelling
+   *         it does not affect the other callers.
+   */
+  public CompletableFuture<MXLookupResult> lookupAsync(
+      String key, Supplier<? extends CompletionStage<MXLookupResult>> lookup) {
+    CompletableFuture<MXLookupResult> flight = new CompletableFuture<>();
+    CompletableFuture<MXLookupResult> existing = inFlight.putIfAbsent(key, flight);
+
+    if (existing != null) return copy(existing);
+
+    CompletionStage<MXLookupResult> stage;
+    try {
+      stage = lookup.get();
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+      throw e;
+    }
+
+    stage.whenComplete((result, throwable) -> {
+      inFlight.remove(key, flight);
+
+      if (throwable != null) {
+        flight.completeExceptionally(throwable);
+      } else {
+        flight.complete(result);
+      }
+    });
+
+    return copy(flight);
+  }
+
+  /**
+   * Get the number of lookups in flight.
+   *
+   * @return the number of keys being looked up
+   */
+  public int inFlight() {
+    return inFlight.size();
+  }
+
+  private static CompletableFuture<MXLookupResult> copy(CompletableFuture<MXLookupResult> flight) {
+    return flight.thenApply(result -> result);
+  }
+}
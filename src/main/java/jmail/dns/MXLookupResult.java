@@ -0,0 +1,138 @@
+package jmail.dns;
+
+import java.util.Objects;
+
+/**
+ * The outcome of an MX record lookup for a domain, along with the time to live of the answer
+ * when the resolver reports one.
+ */
+public final class MXLookupResult {
+  /**
+   * The time to live of an answer whose time to live is not known.
+   */
+  public static final long UNKNOWN_TTL = -1;
+
+  private static final MXLookupResult TRANSIENT_FAILURE =
+      new MXLookupResult(Status.TRANSIENT_FAILURE, UNKNOWN_TTL);
+
+  private final Status status;
+  private final long ttlSeconds;
+
+  private MXLookupResult(Status status, long ttlSeconds) {
+    this.status = status;
+    this.ttlSeconds = ttlSeconds;
+  }
+
+  /**
+   * Create a result for a domain that has at least one usable MX record.
+   *
+   * @param ttlSeconds the time to live of the answer in seconds, or {@link #UNKNOWN_TTL}
+   * @return the new {@link MXLookupResult} instance
+   */
+  public static MXLookupResult found(long ttlSeconds) {
+    return new MXLookupResult(Status.FOUND, ttlSeconds);
+  }
+
+  /**
+   * Create a result for a domain that exists but has no usable MX record, including a domain
+   * that publishes a null MX record ({@code "0 ."}, RFC 7505).
+   *
+   * @param ttlSeconds the time to live of the answer in seconds, or {@link #UNKNOWN_TTL}
+   * @return the new {@link MXLookupResult} instance
+   */
+  public static MXLookupResult noMX(long ttlSeconds) {
+    return new MXLookupResult(Status.NO_MX, ttlSeconds);
+  }
+
+  /**
+   * Create a result for a domain that does not exist.
+   *
+   * @param ttlSeconds the time to live of the answer in seconds, or {@link #UNKNOWN_TTL}
+   * @return the new {@link MXLookupResult} instance
+   */
+  public static MXLookupResult nxDomain(long ttlSeconds) {
+    return new MXLookupResult(Status.NXDOMAIN, ttlSeconds);
+  }
+
+  /**
+   * Get the result for a lookup that failed without an answer, such as a timeout or a
+   * {@code SERVFAIL} response. Asking again later may give a different result.
+   *
+   * @return the {@link MXLookupResult} instance
+   */
+  public static MXLookupResult transientFailure() {
+    return TRANSIENT_FAILURE;
+  }
+
+  /**
+   * Get the kind of outcome.
+   *
+   * @return the status of the lookup
+   */
+  public Status status() {
+    return status;
+  }
+
+  /**
+   * Get the time to live of the answer.
+   *
+   * @return the time to live in seconds, or {@link #UNKNOWN_TTL} if the resolver did not
+   *         report one
+   */
+  public long ttlSeconds() {
+    return ttlSeconds;
+  }
+
+  /**
+   * Return true if the domain has at least one usable MX record.
+   *
+   * @return true if the status is {@link Status#FOUND}
+   */
+  public boolean hasMXRecord() {
+    return status == Status.FOUND;
+  }
+
+  @Override
+  public String toString() {
+    return "MXLookupResult[status=" + status + ", ttlSeconds=" + ttlSeconds + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof MXLookupResult)) return false;
+    MXLookupResult that = (MXLookupResult) o;
+    return status == that.status && ttlSeconds == that.ttlSeconds;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(status, ttlSeconds);
+  }
+
+  /**
+   * The kinds of outcome of an MX record lookup.
+   */
+  public enum Status {
+    /**
+     * The domain has at least one usable MX record.
+     */
+    FOUND,
+
+    /**
+     * The domain exists, but has no usable MX record.
+     */
+    NO_MX,
+
+    /**
+     * The domain does not exist.
+     */
+    NXDOMAIN,
+
+    /**
+     * The lookup failed without an answer, for example because of a timeout or a server
+     * failure.
+     */
+    TRANSIENT_FAILURE
+  }
+}
@@ -0,0 +1,343 @@
+package jmail.dns;
+
+import jmail.util.CacheStatistics;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread-safe cache of MX record lookups, keyed by lower-cased domain.
+ *
+ * <p>Each kind of answer has its own time to live:
+ * <ul>
+ *   <li>A domain with MX records is cached for the time to live of the answer, up to
+ *       {@code positiveTtl}. Answers without a known time to live, such as those of
+ *       {@link DNSLookupUtil}, are cached for {@code positiveTtl}.</li>
+ *   <li>A domain without MX records and a domain that does not exist are cached for
+ *       {@code noMXTtl} and {@code nxDomainTtl}, or for the time to live of the answer if it
+ *       is shorter.</li>
+ *   <li>A lookup that failed without an answer is cached for {@code transientTtl} only, which
+ *       is zero by default, so a timeout is never remembered as a permanent failure.</li>
+ * </ul>
+ *
+ * <p>When the cache is full, the least recently used domains are evicted. The cache is split
+ * into stripes with their own locks, and lookups run outside of them, so concurrent lookups
+ * of different domains never wait for each other. Concurrent misses of the same domain share
+ * one lookup.
+ */
+public final class MXRecordCache {
+  private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+  private static final Duration DEFAULT_POSITIVE_TTL = Duration.ofHours(1);
+  private static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(5);
+  private static final int STRIPES = 16;
+
+  private final Stripe[] stripes;
+  private final int maximumSize;
+  private final long positiveTtl;
+  private final long noMXTtl;
+  private final long nxDomainTtl;
+  private final long transientTtl;
+  private final LongSupplier nanoClock;
+  private final MXLookupCoalescer coalescer = new MXLookupCoalescer();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create a cache of up to 10,000 domains, that keeps domains with MX records for up to an
+   * hour, negative answers for five minutes, and failed lookups not at all.
+   */
+  public MXRecordCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_POSITIVE_TTL, DEFAULT_NEGATIVE_TTL, DEFAULT_NEGATIVE_TTL,
+        Duration.ZERO);
+  }
+
+  /**
+   * Create a cache with the given size limit and times to live.
+   *
+   * @param maximumSize the maximum number of domains to keep, or zero to keep none
+   * @param positiveTtl the time to keep a domain with MX records
+   * @param noMXTtl the time to keep a domain without MX records
+   * @param nxDomainTtl the time to keep a domain that does not exist
+   * @param transientTtl the time to keep a lookup that failed without an answer
+   */
+  public MXRecordCache(int maximumSize, Duration positiveTtl, Duration noMXTtl,
+                       Duration nxDomainTtl, Duration transientTtl) {
+    this(maximumSize, positiveTtl, noMXTtl, nxDomainTtl, transientTtl, System::nanoTime);
+  }
+
+  MXRecordCache(int maximumSize, Duration positiveTtl, Duration noMXTtl, Duration nxDomainTtl,
+                Duration transientTtl, LongSupplier nanoClock) {
+    if (maximumSize < 0) throw new IllegalArgumentException("maximumSize must not be negative");
+
+    int stripeCount = maximumSize < STRIPES * 4 ? 1 : STRIPES;
+    int stripeSize = (maximumSize + stripeCount - 1) / stripeCount;
+
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe(stripeSize);
+    }
+
+    this.maximumSize = maximumSize;
+    this.positiveTtl = nanos(positiveTtl);
+    this.noMXTtl = nanos(noMXTtl);
+    this.nxDomainTtl = nanos(nxDomainTtl);
+    this.transientTtl = nanos(transientTtl);
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record, looking it up with
+   * {@link DNSLookupUtil#lookupMX(String)} if it is not cached.
+   *
+   * @param domain the domain whose MX record to check
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  public boolean hasMXRecord(String domain) {
+    return lookup(domain, DNSLookupUtil::lookupMX).hasMXRecord();
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record, looking it up with
+   * {@link DNSLookupUtil#lookupMX(String, int, int)} if it is not cached.
+   *
+   * @param domain the domain whose MX record to check
+   * @param initialTimeout the timeout in milliseconds for the initial DNS lookup
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  public boolean hasMXRecord(String domain, int initialTimeout, int numRetries) {
+    return lookup(domain, d -> DNSLookupUtil.lookupMX(d, initialTimeout, numRetries))
+        .hasMXRecord();
+  }
+
+  /**
+   * Get the cached result for the given domain, or look it up with the given resolver and
+   * cache the result according to its kind.
+   *
+   * @param domain the domain whose MX records to look up
+   * @param resolver the function that looks up a lower-cased domain on a miss
+   * @return the cached or new result
+   */
+  public MXLookupResult lookup(String domain, Function<String, MXLookupResult> resolver) {
+    String key = DNSLookupUtil.normalize(domain);
+    Stripe stripe = stripe(key);
+    long now = nanoClock.getAsLong();
+
+    MXLookupResult cached = stripe.get(key, now);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    misses.increment();
+
+    // Concurrent misses of the same domain share one lookup, which caches the result once
+    return coalescer.lookup(key, () -> {
+      MXLookupResult result = Objects.requireNonNull(resolver.apply(key), "result");
+      long ttl = ttl(result);
+      if (ttl > 0 && maximumSize > 0) stripe.put(key, new CachedResult(result, now + ttl));
+      return result;
+    });
+  }
+
+  /**
+   * Get the cached result for the given domain, or start looking it up with the given
+   * resolver and cache the result according to its kind once it completes.
+   *
+   * @param domain the domain whose MX records to look up
+   * @param resolver the function that starts looking up a lower-cased domain on a miss
+   * @return a stage that completes with the cached or new result
+   */
+  public CompletionStage<MXLookupResult> lookupAsync(
+      String domain, Function<String, ? extends CompletionStage<MXLookupResult>> resolver) {
+    String key = DNSLookupUtil.normalize(domain);
+    Stripe stripe = stripe(key);
+    long now = nanoClock.getAsLong();
+
+    MXLookupResult cached = stripe.get(key, now);
+    if (cached != null) {
+      hits.increment();
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    misses.increment();
+
+    return coalescer.lookupAsync(key, () -> resolver.apply(key).thenApply(result -> {
+      long ttl = ttl(Objects.requireNonNull(result, "result"));
+      if (ttl > 0 && maximumSize > 0) stripe.put(key, new CachedResult(result, now + ttl));
+      return result;
+    }));
+  }
+
+  /**
+   * Return a resolver that answers from this cache, and looks up the domains that are not
+   * cached with the given resolver.
+   *
+   * @param resolver the resolver to look up domains with on a miss
+   * @return the caching resolver
+   */
+  public DnsResolver wrap(DnsResolver resolver) {
+    Objects.requireNonNull(resolver, "resolver");
+
+    return new DnsResolver() {
+      @Override
+      public MXLookupResult lookupMX(String domain) {
+        return lookup(domain, resolver::lookupMX);
+      }
+
+      @Override
+      public MXLookupResult lookupMX(String domain, int initialTimeout, int numRetries) {
+        return lookup(domain, d -> resolver.lookupMX(d, initialTimeout, numRetries));
+      }
+
+      @Override
+      public CompletionStage<MXLookupResult> lookupMXAsync(String domain) {
+        return lookupAsync(domain, resolver::lookupMXAsync);
+      }
+
+      @Override
+      public boolean isNonBlocking() {
+        return resolver.isNonBlocking();
+      }
+    };
+  }
+
+  /**
+   * Remove the given domain from the cache.
+   *
+   * @param domain the domain to remove
+   */
+  public void invalidate(String domain) {
+    String key = DNSLookupUtil.normalize(domain);
+    stripe(key).remove(key);
+  }
+
+  /**
+   * Remove all domains from the cache.
+   */
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      stripe.clear();
+    }
+  }
+
+  /**
+   * Get the number of domains in the cache, including those that expired but have not been
+   * looked up since.
+   *
+   * @return the number of cached domains
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /**
+   * Get the hit, miss and eviction counts of this cache.
+   *
+   * @return a snapshot of the statistics
+   */
+  public CacheStatistics statistics() {
+    return CacheStatistics.of(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  private long ttl(MXLookupResult result) {
+    switch (result.status()) {
+      case FOUND:
+        return capped(positiveTtl, result.ttlSeconds());
+      case NO_MX:
+        return capped(noMXTtl, result.ttlSeconds());
+      case NXDOMAIN:
+        return capped(nxDomainTtl, result.ttlSeconds());
+      default:
+        return transientTtl;
+    }
+  }
+
+  private static long capped(long maximum, long ttlSeconds) {
+    if (ttlSeconds == MXLookupResult.UNKNOWN_TTL) return maximum;
+    return Math.min(maximum, TimeUnit.SECONDS.toNanos(ttlSeconds));
+  }
+
+  private static long nanos(Duration duration) {
+    if (duration.isNegative()) throw new IllegalArgumentException("TTL must not be negative");
+    return duration.compareTo(Duration.ofDays(365)) > 0
+        ? TimeUnit.DAYS.toNanos(365)
+        : duration.toNanos();
+  }
+
+  private Stripe stripe(String key) {
+    return stripes[(key.hashCode() * 0x9E3779B9 >>> 16) & (stripes.length - 1)];
+  }
+
+  private static final class CachedResult {
+    private final MXLookupResult result;
+    private final long expiresAt;
+
+    private CachedResult(MXLookupResult result, long expiresAt) {
+      this.result = result;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * One lock's share of the cache, in least recently used order.
+   */
+  private final class Stripe {
+    private final Map<String, CachedResult> entries;
+
+    private Stripe(int maximumSize) {
+      this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+          if (size() <= maximumSize) return false;
+
+          // An expired entry makes room without counting as an eviction
+          if (eldest.getValue().expiresAt - nanoClock.getAsLong() > 0) evictions.increment();
+          return true;
+        }
+      };
+    }
+
+    synchronized MXLookupResult get(String key, long now) {
+      CachedResult entry = entries.get(key);
+      if (entry == null) return null;
+
+      if (entry.expiresAt - now <= 0) {
+        entries.remove(key);
+        return null;
+      }
+
+      return entry.result;
+    }
+
+    synchronized void put(String key, CachedResult entry) {
+      entries.put(key, entry);
+    }
+
+    synchronized void remove(String key) {
+      entries.remove(key);
+    }
+
+    synchronized void clear() {
+      entries.clear();
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+  }
+}
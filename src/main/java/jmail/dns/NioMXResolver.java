@@ -0,0 +1,675 @@
+package jmail.dns;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.IDN;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A non-blocking MX record resolver that multiplexes any number of outstanding queries over a
+ * few UDP sockets, so that the number of lookups in flight is not limited by the number of
+ * threads.
+ *
+ * <p>One selector thread sends the queries, matches each response to its query by socket,
+ * transaction ID and question, and retransmits queries that time out, with the timeout
+ * doubling on each retry. Timeouts are kept in a hashed timer wheel with a resolution of
+ * {@value #TICK_MILLIS} milliseconds. A truncated response is retried over TCP on a separate
+ * thread. Concurrent lookups of the same domain share one query. Unlike
+ * {@link DNSLookupUtil}, the results carry the time to live of the answer.
+ *
+ * <p>Futures are completed on the common fork/join pool, never on the selector thread. A
+ * resolver holds its sockets and thread until it is {@link #close() closed}.
+ */
+public final class NioMXResolver implements DnsResolver, AutoCloseable {
+  private static final int DEFAULT_SOCKETS = 4;
+  private static final int DEFAULT_INITIAL_TIMEOUT = 1000;
+  private static final int DEFAULT_RETRIES = 2;
+
+  private static final int TICK_MILLIS = 10;
+  private static final int WHEEL_SIZE = 512;
+  private static final int MAX_UDP_MESSAGE = 512;
+  private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+
+  private static final int TYPE_MX = 15;
+  private static final int TYPE_SOA = 6;
+  private static final int CLASS_IN = 1;
+  private static final int FLAG_QR = 0x8000;
+  private static final int FLAG_TC = 0x0200;
+  private static final int FLAG_RD = 0x0100;
+  private static final int RCODE_NXDOMAIN = 3;
+
+  private final InetSocketAddress server;
+  private final int initialTimeout;
+  private final int numRetries;
+  private final Selector selector;
+  private final DatagramChannel[] channels;
+  private final IdPool[] ids;
+  private final Thread thread;
+  private final ExecutorService tcpExecutor;
+  private final ConcurrentLinkedQueue<Query> submissions = new ConcurrentLinkedQueue<>();
+  private final MXLookupCoalescer coalescer = new MXLookupCoalescer();
+  private volatile boolean closed;
+  // Why the selector thread stopped, if it was not closed
+  private volatile Throwable failure;
+
+  // Only accessed by the selector thread
+  private final Map<Integer, Query> inFlight = new HashMap<>();
+  private final List<ArrayDeque<Query>> wheel = new ArrayList<>(WHEEL_SIZE);
+  private final long startNanos = System.nanoTime();
+  private long tick;
+  private int nextChannel;
+
+  /**
+   * Create a resolver that queries the given server over four sockets, with an initial
+   * timeout of one second and two retries.
+   *
+   * @param server the address of the DNS server to query
+   * @throws IOException if the sockets cannot be opened
+   */
+  public NioMXResolver(InetSocketAddress server) throws IOException {
+    this(server, DEFAULT_SOCKETS, DEFAULT_INITIAL_TIMEOUT, DEFAULT_RETRIES);
+  }
+
+  /**
+   * Create a resolver that queries the given server.
+   *
+   * @param server the address of the DNS server to query
+   * @param sockets the number of UDP sockets to spread the queries over
+   * @param initialTimeout the timeout in milliseconds for the first attempt of a query
+   * @param numRetries the number of retries to perform using exponential backoff
+   * @throws IOException if the sockets cannot be opened
+   */
+  public NioMXResolver(InetSocketAddress server, int sockets, int initialTimeout, int numRetries)
+      throws IOException {
+    this(server, sockets, initialTimeout, numRetries, 0x10000);
+  }
+
+  NioMXResolver(InetSocketAddress server, int sockets, int initialTimeout, int numRetries,
+                int idsPerSocket) throws IOException {
+    if (sockets < 1) throw new IllegalArgumentException("sockets must be positive");
+    if (initialTimeout < 1) throw new IllegalArgumentException("initialTimeout must be positive");
+    if (numRetries < 0) throw new IllegalArgumentException("numRetries must not be negative");
+
+    this.server = Objects.requireNonNull(server, "server");
+    this.initialTimeout = initialTimeout;
+    this.numRetries = numRetries;
+
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      wheel.add(new ArrayDeque<>());
+    }
+
+    this.selector = Selector.open();
+    this.channels = new DatagramChannel[sockets];
+    this.ids = new IdPool[sockets];
+    try {
+      for (int i = 0; i < sockets; i++) {
+        DatagramChannel channel = DatagramChannel.open();
+        channels[i] = channel;
+        ids[i] = new IdPool(idsPerSocket);
+        channel.configureBlocking(false);
+        // Room for a burst of answers to thousands of outstanding queries, which the default
+        // buffer would drop while the selector thread catches up
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+        channel.connect(server);
+        channel.register(selector, SelectionKey.OP_READ, i);
+      }
+    } catch (IOException e) {
+      closeChannels();
+      throw e;
+    }
+
+    this.tcpExecutor = Executors.newCachedThreadPool(runnable -> {
+      Thread tcpThread = new Thread(runnable, "jmail-dns-tcp");
+      tcpThread.setDaemon(true);
+      return tcpThread;
+    });
+
+    this.thread = new Thread(this::run, "jmail-dns-selector");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Determine if the given domain has a valid MX record, waiting for the lookup.
+   *
+   * @param domain the domain whose MX record to check
+   * @return true if the domain has a valid MX record, or false if it does not
+   */
+  @Override
+  public boolean hasMXRecord(String domain) {
+    return lookupMX(domain).hasMXRecord();
+  }
+
+  /**
+   * Look up the MX records of the given domain, waiting for the lookup.
+   *
+   * @param domain the domain whose MX record to check
+   * @return the outcome of the lookup
+   * @throws IllegalStateException if this resolver is closed
+   */
+  @Override
+  public MXLookupResult lookupMX(String domain) {
+    return lookupMXAsync(domain).join();
+  }
+
+  /**
+   * Look up the MX records of the given domain without blocking.
+   *
+   * @param domain the domain whose MX record to check
+   * @return a future that completes with the outcome of the lookup
+   * @throws IllegalStateException if this resolver is closed, with the failure of the
+   *                               selector thread as its cause if that is why it closed
+   */
+  @Override
+  public CompletableFuture<MXLookupResult> lookupMXAsync(String domain) {
+    Objects.requireNonNull(domain, "domain");
+    if (closed) throw new IllegalStateException("Resolver is closed", failure);
+
+    byte[] question = question(domain);
+    if (question == null) {
+      return CompletableFuture.completedFuture(
+          MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+    }
+
+    // Concurrent lookups of the same domain share one query
+    return coalescer.lookupAsync(DNSLookupUtil.normalize(domain), () -> submit(question));
+  }
+
+  @Override
+  public boolean isNonBlocking() {
+    return true;
+  }
+
+  private CompletableFuture<MXLookupResult> submit(byte[] question) {
+    Query query = new Query(question);
+    submissions.add(query);
+    selector.wakeup();
+
+    // Closed while submitting, after the selector thread drained the submissions
+    if (closed && submissions.remove(query)) abort(query);
+
+    return query.future;
+  }
+
+  /**
+   * Stop the selector thread and close the sockets. Lookups still in flight complete with
+   * {@link MXLookupResult#transientFailure()}, and lookups started after this call throw
+   * {@link IllegalStateException}. If the selector thread fails, the resolver closes itself,
+   * and the lookups still in flight complete exceptionally with the failure instead.
+   */
+  @Override
+  public void close() {
+    if (closed) return;
+
+    closed = true;
+    selector.wakeup();
+
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    tcpExecutor.shutdown();
+  }
+
+  private void run() {
+    ByteBuffer buffer = ByteBuffer.allocate(MAX_UDP_MESSAGE);
+
+    try {
+      while (!closed) {
+        selector.select(TICK_MILLIS);
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+
+          if (key.isValid() && key.isReadable()) {
+            receive((DatagramChannel) key.channel(), (Integer) key.attachment(), buffer);
+          }
+        }
+
+        Query query;
+        while ((query = submissions.poll()) != null) {
+          send(query);
+        }
+
+        expire();
+      }
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+      closed = true;
+    } finally {
+      shutdown();
+    }
+  }
+
+  private void receive(DatagramChannel channel, int index, ByteBuffer buffer) {
+    while (true) {
+      buffer.clear();
+      try {
+        if (channel.receive(buffer) == null) return;
+      } catch (IOException e) {
+        // An ICMP port unreachable surfaces here; the query times out and is retried
+        return;
+      }
+      buffer.flip();
+
+      if (buffer.remaining() < 12) continue;
+
+      int id = buffer.getShort(0) & 0xFFFF;
+      Query query = inFlight.get(index << 16 | id);
+      if (query == null || !query.matches(buffer)) continue;
+
+      inFlight.remove(index << 16 | id);
+      ids[index].release(id);
+      query.done = true;
+
+      if ((buffer.getShort(2) & FLAG_TC) != 0) {
+        tcpExecutor.execute(() -> query.future.complete(queryTcp(query)));
+      } else {
+        complete(query, parse(buffer));
+      }
+    }
+  }
+
+  private void send(Query query) {
+    // Take turns, skipping sockets that have every transaction ID in flight
+    int index = -1;
+    for (int i = 0; i < channels.length && index < 0; i++) {
+      int candidate = (nextChannel + i) % channels.length;
+      if (!ids[candidate].isEmpty()) index = candidate;
+    }
+
+    if (index < 0) {
+      complete(query, MXLookupResult.transientFailure());
+      return;
+    }
+
+    nextChannel = (index + 1) % channels.length;
+
+    int id = ids[index].acquire();
+    query.channel = index;
+    query.id = id;
+    inFlight.put(index << 16 | id, query);
+
+    transmit(query);
+    schedule(query, initialTimeout);
+  }
+
+  private void transmit(Query query) {
+    try {
+      channels[query.channel].write(query.message());
+    } catch (IOException e) {
+      // Left to the timeout, like a lost datagram
+    }
+  }
+
+  private void schedule(Query query, long timeoutMillis) {
+    long ticks = Math.max(1, (timeoutMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+    query.rounds = (ticks - 1) / WHEEL_SIZE;
+    wheel.get((int) ((tick + ticks) % WHEEL_SIZE)).add(query);
+  }
+
+  private void expire() {
+    long now = (System.nanoTime() - startNanos) / TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    List<Query> expired = new ArrayList<>();
+
+    while (tick < now) {
+      tick++;
+
+      Iterator<Query> slot = wheel.get((int) (tick % WHEEL_SIZE)).iterator();
+      while (slot.hasNext()) {
+        Query query = slot.next();
+
+        if (query.done) {
+          slot.remove();
+        } else if (query.rounds > 0) {
+          query.rounds--;
+        } else {
+          slot.remove();
+          expired.add(query);
+        }
+      }
+
+      for (Query query : expired) {
+        if (query.attempt < numRetries) {
+          query.attempt++;
+          transmit(query);
+          schedule(query, (long) initialTimeout << query.attempt);
+        } else {
+          inFlight.remove(query.channel << 16 | query.id);
+          ids[query.channel].release(query.id);
+          query.done = true;
+          complete(query, MXLookupResult.transientFailure());
+        }
+      }
+      expired.clear();
+    }
+  }
+
+  private void shutdown() {
+    for (Query query : inFlight.values()) {
+      abort(query);
+    }
+    inFlight.clear();
+
+    Query query;
+    while ((query = submissions.poll()) != null) {
+      abort(query);
+    }
+
+    closeChannels();
+  }
+
+  private void closeChannels() {
+    for (DatagramChannel channel : channels) {
+      if (channel == null) continue;
+
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Nothing left to release
+      }
+    }
+
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // Nothing left to release
+    }
+  }
+
+  // Dependent stages must never run on the selector thread
+  private static void complete(Query query, MXLookupResult result) {
+    ForkJoinPool.commonPool().execute(() -> query.future.complete(result));
+  }
+
+  // Complete a query that was cut short by close(), or by a failure of the selector thread
+  private void abort(Query query) {
+    Throwable cause = failure;
+    if (cause == null) {
+      complete(query, MXLookupResult.transientFailure());
+    } else {
+      ForkJoinPool.commonPool().execute(() -> query.future.completeExceptionally(cause));
+    }
+  }
+
+  private MXLookupResult queryTcp(Query query) {
+    int timeout = initialTimeout << numRetries;
+
+    try (Socket socket = new Socket()) {
+      socket.connect(server, timeout);
+      socket.setSoTimeout(timeout);
+
+      ByteBuffer message = query.message();
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeShort(message.remaining());
+      out.write(message.array(), 0, message.remaining());
+      out.flush();
+
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      byte[] response = new byte[in.readUnsignedShort()];
+      in.readFully(response);
+
+      ByteBuffer buffer = ByteBuffer.wrap(response);
+      if (response.length < 12 || !query.matches(buffer)) {
+        return MXLookupResult.transientFailure();
+      }
+
+      return parse(buffer);
+    } catch (IOException e) {
+      return MXLookupResult.transientFailure();
+    }
+  }
+
+  /**
+   * Encode the question section of an MX query for the given domain, or return null if the
+   * domain cannot exist.
+   */
+  static byte[] question(String domain) {
+    String name = domain.endsWith(".") ? domain.substring(0, domain.length() - 1) : domain;
+    if (name.isEmpty()) return null;
+
+    try {
+      name = IDN.toASCII(name, IDN.ALLOW_UNASSIGNED);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+
+    if (name.length() > 253) return null;
+
+    ByteBuffer question = ByteBuffer.allocate(name.length() + 6);
+    int labelStart = 0;
+    for (int i = 0; i <= name.length(); i++) {
+      if (i == name.length() || name.charAt(i) == '.') {
+        int length = i - labelStart;
+        if (length < 1 || length > 63) return null;
+
+        question.put((byte) length);
+        for (int j = labelStart; j < i; j++) {
+          question.put((byte) name.charAt(j));
+        }
+        labelStart = i + 1;
+      }
+    }
+
+    question.put((byte) 0);
+    question.putShort((short) TYPE_MX);
+    question.putShort((short) CLASS_IN);
+    return question.array();
+  }
+
+  /**
+   * Classify the given response, whose position is at the start of the message.
+   */
+  static MXLookupResult parse(ByteBuffer message) {
+    try {
+      int flags = message.getShort(2) & 0xFFFF;
+      int rcode = flags & 0x0F;
+      int questions = message.getShort(4) & 0xFFFF;
+      int answers = message.getShort(6) & 0xFFFF;
+      int authorities = message.getShort(8) & 0xFFFF;
+
+      if ((flags & FLAG_QR) == 0) return MXLookupResult.transientFailure();
+
+      ByteBuffer records = message.duplicate();
+      records.position(12);
+      for (int i = 0; i < questions; i++) {
+        skipName(records);
+        records.position(records.position() + 4);
+      }
+
+      long found = -1;
+      long nullMX = -1;
+      for (int i = 0; i < answers; i++) {
+        skipName(records);
+        int type = records.getShort() & 0xFFFF;
+        records.getShort();
+        long ttl = records.getInt() & 0xFFFFFFFFL;
+        int length = records.getShort() & 0xFFFF;
+        int end = records.position() + length;
+
+        if (type == TYPE_MX) {
+          records.getShort();
+          // A null MX record (RFC 7505) has the root as its exchange
+          if (records.get(records.position()) == 0) {
+            nullMX = nullMX < 0 ? ttl : Math.min(nullMX, ttl);
+          } else {
+            found = found < 0 ? ttl : Math.min(found, ttl);
+          }
+        }
+
+        records.position(end);
+      }
+
+      if (rcode == RCODE_NXDOMAIN) {
+        return MXLookupResult.nxDomain(negativeTtl(records, authorities));
+      }
+      if (rcode != 0) return MXLookupResult.transientFailure();
+
+      if (found >= 0) return MXLookupResult.found(found);
+      if (nullMX >= 0) return MXLookupResult.noMX(nullMX);
+      return MXLookupResult.noMX(negativeTtl(records, authorities));
+    } catch (BufferUnderflowException | IndexOutOfBoundsException
+             | IllegalArgumentException e) {
+      return MXLookupResult.transientFailure();
+    }
+  }
+
+  // The time to live of a negative answer is the lesser of the time to live of the SOA
+  // record in the authority section and its MINIMUM field (RFC 2308, section 5)
+  private static long negativeTtl(ByteBuffer records, int authorities) {
+    for (int i = 0; i < authorities; i++) {
+      skipName(records);
+      int type = records.getShort() & 0xFFFF;
+      records.getShort();
+      long ttl = records.getInt() & 0xFFFFFFFFL;
+      int length = records.getShort() & 0xFFFF;
+      int end = records.position() + length;
+
+      if (type == TYPE_SOA) {
+        long minimum = records.getInt(end - 4) & 0xFFFFFFFFL;
+        return Math.min(ttl, minimum);
+      }
+
+      records.position(end);
+    }
+
+    return MXLookupResult.UNKNOWN_TTL;
+  }
+
+  private static void skipName(ByteBuffer records) {
+    while (true) {
+      int length = records.get() & 0xFF;
+      if (length == 0) return;
+
+      if ((length & 0xC0) == 0xC0) {
+        records.get();
+        return;
+      }
+
+      records.position(records.position() + length);
+    }
+  }
+
+  /**
+   * The transaction IDs of one socket that are not in flight, drawn at random so that
+   * responses are hard to spoof, in constant time however full the socket is.
+   */
+  private static final class IdPool {
+    // Unsigned 16-bit IDs, the free ones first, and the index of each ID in that array
+    private final char[] ids;
+    private final char[] positions;
+    private int free;
+
+    private IdPool(int size) {
+      ids = new char[size];
+      positions = new char[size];
+      free = size;
+
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = (char) i;
+        positions[i] = (char) i;
+      }
+    }
+
+    boolean isEmpty() {
+      return free == 0;
+    }
+
+    int acquire() {
+      int id = ids[ThreadLocalRandom.current().nextInt(free)];
+      swap(id, ids[--free]);
+      return id;
+    }
+
+    void release(int id) {
+      swap(id, ids[free++]);
+    }
+
+    private void swap(int a, int b) {
+      char positionA = positions[a];
+      char positionB = positions[b];
+      ids[positionA] = (char) b;
+      ids[positionB] = (char) a;
+      positions[a] = positionB;
+      positions[b] = positionA;
+    }
+  }
+
+  /**
+   * One lookup, from submission until its future is completed.
+   */
+  private static final class Query {
+    private final byte[] question;
+    private final CompletableFuture<MXLookupResult> future = new CompletableFuture<>();
+
+    // Only accessed by the selector thread, before the query is done
+    private int channel;
+    private int id;
+    private int attempt;
+    private long rounds;
+    private boolean done;
+
+    private Query(byte[] question) {
+      this.question = question;
+    }
+
+    ByteBuffer message() {
+      ByteBuffer message = ByteBuffer.allocate(12 + question.length);
+      message.putShort((short) id);
+      message.putShort((short) FLAG_RD);
+      message.putShort((short) 1);
+      message.putShort((short) 0);
+      message.putShort((short) 0);
+      message.putShort((short) 0);
+      message.put(question);
+      message.flip();
+      return message;
+    }
+
+    /**
+     * Return true if the given response has this query's transaction ID and echoes its
+     * question, ignoring case.
+     */
+    boolean matches(ByteBuffer response) {
+      if ((response.getShort(0) & 0xFFFF) != id) return false;
+      if ((response.getShort(4) & 0xFFFF) != 1) return false;
+      if (response.limit() < 12 + question.length) return false;
+
+      for (int i = 0; i < question.length; i++) {
+        if (toLowerCase(question[i]) != toLowerCase(response.get(12 + i))) return false;
+      }
+
+      return true;
+    }
+
+    private static int toLowerCase(byte b) {
+      return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package jmail.dns;
+
+/**
+ * The {@link DnsResolver} view of {@link DNSLookupUtil}.
+ */
+final class PlatformResolver implements DnsResolver {
+  static final PlatformResolver INSTANCE = new PlatformResolver();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private PlatformResolver() {
+  }
+
+  @Override
+  public MXLookupResult lookupMX(String domain) {
+    return DNSLookupUtil.lookupMX(domain);
+  }
+
+  @Override
+  public MXLookupResult lookupMX(String domain, int initialTimeout, int numRetries) {
+    return DNSLookupUtil.lookupMX(domain, initialTimeout, numRetries);
+  }
+}
@@ -0,0 +1,500 @@
+package jmail.dns;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A {@link DnsResolver} that answers from the MX records of a zone file loaded into memory, for
+ * offline and deterministic validation of large lists.
+ *
+ * <p>The file is read in the master file format of RFC 1035, with support for:
+ * <ul>
+ *   <li>The {@code $ORIGIN} and {@code $TTL} directives, {@code @} for the origin, names
+ *       relative to the origin, and a blank owner for the owner of the previous record.</li>
+ *   <li>An optional time to live, in seconds or with units such as {@code 1h30m}, and an
+ *       optional class, in either order.</li>
+ *   <li>Comments, and records split over several lines with parentheses.</li>
+ * </ul>
+ * {@code $INCLUDE}, wildcard owners and escapes in names are not supported. Without an
+ * {@code $ORIGIN}, relative names are taken as they are, so a plain list of
+ * {@code example.com MX 10 mail.example.com} lines is a valid file.
+ *
+ * <p>A domain with at least one MX record is found, with the shortest time to live of its MX
+ * records. A domain that only has a null MX record ({@code "0 ."}, RFC 7505), or only records
+ * of other types, exists without MX records. Any other domain gets the {@code absent} result.
+ *
+ * <p>Domains are kept as ASCII bytes in one array with an open-addressing index, rather than as
+ * a map of strings, so that millions of domains take tens of megabytes.
+ */
+public final class ZoneFileDnsResolver implements DnsResolver {
+  private static final byte FOUND = 1;
+  private static final byte NO_MX = 2;
+  private static final int UNKNOWN_TTL = (int) MXLookupResult.UNKNOWN_TTL;
+
+  private final Index index;
+  private final MXLookupResult absent;
+
+  private ZoneFileDnsResolver(Index index, MXLookupResult absent) {
+    this.index = index;
+    this.absent = absent;
+  }
+
+  /**
+   * Load the given zone file, answering {@link MXLookupResult.Status#NXDOMAIN} for domains it
+   * does not contain.
+   *
+   * @param path the zone file, in UTF-8
+   * @return the new {@link ZoneFileDnsResolver} instance
+   * @throws IOException if the file cannot be read or is malformed
+   */
+  public static ZoneFileDnsResolver load(Path path) throws IOException {
+    return load(path, MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+  }
+
+  /**
+   * Load the given zone file.
+   *
+   * @param path the zone file, in UTF-8
+   * @param absent the result for domains the file does not contain
+   * @return the new {@link ZoneFileDnsResolver} instance
+   * @throws IOException if the file cannot be read or is malformed
+   */
+  public static ZoneFileDnsResolver load(Path path, MXLookupResult absent) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return load(reader, absent);
+    }
+  }
+
+  /**
+   * Load a zone from the given reader, which is not closed.
+   *
+   * @param reader the reader of the zone
+   * @param absent the result for domains the zone does not contain
+   * @return the new {@link ZoneFileDnsResolver} instance
+   * @throws IOException if the zone cannot be read or is malformed
+   */
+  public static ZoneFileDnsResolver load(Reader reader, MXLookupResult absent)
+      throws IOException {
+    Objects.requireNonNull(absent, "absent");
+
+    Parser parser = new Parser();
+    BufferedReader lines = reader instanceof BufferedReader
+        ? (BufferedReader) reader
+        : new BufferedReader(reader);
+
+    String line;
+    while ((line = lines.readLine()) != null) {
+      parser.line(line);
+    }
+    parser.finish();
+
+    return new ZoneFileDnsResolver(parser.index.trim(), absent);
+  }
+
+  /**
+   * Get the number of domains in the zone.
+   *
+   * @return the number of domains
+   */
+  public int size() {
+    return index.size;
+  }
+
+  @Override
+  public MXLookupResult lookupMX(String domain) {
+    String key = ascii(DNSLookupUtil.normalize(domain));
+    if (key == null) return absent;
+
+    int i = index.find(key);
+    if (i < 0) return absent;
+
+    return index.statuses[i] == FOUND
+        ? MXLookupResult.found(index.ttls[i])
+        : MXLookupResult.noMX(index.ttls[i]);
+  }
+
+  // Answers come from memory, so the default asynchronous lookup never waits
+  @Override
+  public boolean isNonBlocking() {
+    return true;
+  }
+
+  /**
+   * Convert a lower-cased name to ASCII, or return null if it is not a valid name.
+   */
+  private static String ascii(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) > 0x7f) {
+        try {
+          return IDN.toASCII(name, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+    }
+    return name;
+  }
+
+  /**
+   * Reads the records of a zone into an {@link Index}, one line at a time.
+   */
+  private static final class Parser {
+    private final Index index = new Index();
+    private final List<String> tokens = new ArrayList<>();
+
+    private int lineNumber;
+    private int recordLine;
+    private int depth;
+    private boolean blankOwner;
+
+    private String origin;
+    private String owner;
+    private int defaultTtl = UNKNOWN_TTL;
+    private int lastTtl = UNKNOWN_TTL;
+
+    void line(String line) throws IOException {
+      lineNumber++;
+
+      if (depth == 0) {
+        recordLine = lineNumber;
+        blankOwner = !line.isEmpty() && Character.isWhitespace(line.charAt(0));
+      }
+
+      tokenize(line);
+      if (depth == 0 && !tokens.isEmpty()) {
+        record();
+        tokens.clear();
+      }
+    }
+
+    void finish() throws IOException {
+      if (depth > 0) throw malformed("Unbalanced parentheses");
+    }
+
+    private void tokenize(String line) throws IOException {
+      int i = 0;
+      int length = line.length();
+
+      while (i < length) {
+        char c = line.charAt(i);
+
+        if (c == ';') {
+          return;
+        } else if (c == '(') {
+          depth++;
+          i++;
+        } else if (c == ')') {
+          if (--depth < 0) throw malformed("Unbalanced parentheses");
+          i++;
+        } else if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == '"') {
+          int end = i + 1;
+          while (end < length && line.charAt(end) != '"') {
+            if (line.charAt(end) == '\\') end++;
+            end++;
+          }
+          if (end >= length) throw malformed("Unterminated quoted string");
+          tokens.add(line.substring(i, end + 1));
+          i = end + 1;
+        } else {
+          int end = i;
+          while (end < length && !isDelimiter(line.charAt(end))) end++;
+          tokens.add(line.substring(i, end));
+          i = end;
+        }
+      }
+    }
+
+    private static boolean isDelimiter(char c) {
+      return Character.isWhitespace(c) || c == ';' || c == '(' || c == ')' || c == '"';
+    }
+
+    private void record() throws IOException {
+      int i = 0;
+      String first = tokens.get(0);
+
+      if (!blankOwner && first.startsWith("$")) {
+        directive(first.toUpperCase(Locale.ROOT));
+        return;
+      }
+
+      if (!blankOwner) {
+        owner = name(first);
+        i++;
+      } else if (owner == null) {
+        throw malformed("Record without an owner");
+      }
+
+      int ttl = UNKNOWN_TTL;
+      boolean explicitTtl = false;
+
+      // The time to live and the class are both optional, and may come in either order
+      for (int fields = 0; fields < 2 && i < tokens.size(); fields++) {
+        String token = tokens.get(i);
+        if (Character.isDigit(token.charAt(0))) {
+          ttl = ttl(token);
+          explicitTtl = true;
+          i++;
+        } else if (isClass(token)) {
+          i++;
+        } else {
+          break;
+        }
+      }
+
+      if (explicitTtl) {
+        lastTtl = ttl;
+      } else {
+        ttl = defaultTtl != UNKNOWN_TTL ? defaultTtl : lastTtl;
+      }
+
+      if (i >= tokens.size()) throw malformed("Record without a type");
+      String type = tokens.get(i++);
+
+      if (!"MX".equalsIgnoreCase(type)) {
+        index.add(owner, NO_MX, UNKNOWN_TTL);
+        return;
+      }
+
+      if (tokens.size() - i != 2) throw malformed("MX record needs a preference and exchange");
+      preference(tokens.get(i));
+
+      boolean nullMX = ".".equals(tokens.get(i + 1));
+      index.add(owner, nullMX ? NO_MX : FOUND, ttl);
+    }
+
+    private void directive(String directive) throws IOException {
+      if (tokens.size() < 2) throw malformed(directive + " needs a value");
+
+      switch (directive) {
+        case "$ORIGIN":
+          origin = name(tokens.get(1));
+          break;
+        case "$TTL":
+          defaultTtl = ttl(tokens.get(1));
+          break;
+        default:
+          throw malformed(directive + " is not supported");
+      }
+    }
+
+    /**
+     * Make the given name absolute, without a trailing dot, lower-cased and in ASCII.
+     */
+    private String name(String token) throws IOException {
+      String name;
+      if ("@".equals(token)) {
+        if (origin == null) throw malformed("@ without an $ORIGIN");
+        name = origin;
+      } else if (token.endsWith(".")) {
+        name = token.length() == 1 ? token : token.substring(0, token.length() - 1);
+      } else if (origin == null || origin.equals(".")) {
+        name = token;
+      } else {
+        name = token + '.' + origin;
+      }
+
+      String ascii = ascii(name.toLowerCase(Locale.ROOT));
+      if (ascii == null || ascii.length() > 255) throw malformed("Invalid name " + token);
+      return ascii;
+    }
+
+    private static boolean isClass(String token) {
+      return "IN".equalsIgnoreCase(token) || "CH".equalsIgnoreCase(token)
+          || "HS".equalsIgnoreCase(token) || "CS".equalsIgnoreCase(token);
+    }
+
+    /**
+     * Parse a time to live in seconds, or in BIND units such as {@code 1w2d3h4m5s}.
+     */
+    private int ttl(String token) throws IOException {
+      long seconds = 0;
+      long value = -1;
+
+      for (int i = 0; i < token.length(); i++) {
+        char c = token.charAt(i);
+        if (c >= '0' && c <= '9') {
+          value = Math.max(value, 0) * 10 + (c - '0');
+          if (value > Integer.MAX_VALUE) throw malformed("Invalid TTL " + token);
+          continue;
+        }
+
+        if (value < 0) throw malformed("Invalid TTL " + token);
+        seconds += value * unit(c, token);
+        value = -1;
+      }
+
+      if (value >= 0) seconds += value;
+      if (seconds > Integer.MAX_VALUE) throw malformed("Invalid TTL " + token);
+      return (int) seconds;
+    }
+
+    private long unit(char c, String token) throws IOException {
+      switch (Character.toLowerCase(c)) {
+        case 's':
+          return 1;
+        case 'm':
+          return 60;
+        case 'h':
+          return 3600;
+        case 'd':
+          return 86400;
+        case 'w':
+          return 604800;
+        default:
+          throw malformed("Invalid TTL " + token);
+      }
+    }
+
+    private void preference(String token) throws IOException {
+      try {
+        int preference = Integer.parseInt(token);
+        if (preference >= 0 && preference <= 0xffff) return;
+      } catch (NumberFormatException e) {
+        // Fall through
+      }
+      throw malformed("Invalid MX preference " + token);
+    }
+
+    private IOException malformed(String message) {
+      return new IOException("Line " + recordLine + ": " + message);
+    }
+  }
+
+  /**
+   * The domains of a zone, stored back to back as ASCII bytes, with their status and time to
+   * live in parallel arrays, and an open-addressing hash table of their positions.
+   */
+  private static final class Index {
+    private byte[] names = new byte[1 << 16];
+    // The start of each name, followed by the end of the last one
+    private int[] offsets = new int[1 << 12];
+    private byte[] statuses = new byte[1 << 12];
+    private int[] ttls = new int[1 << 12];
+    // One plus the position of each domain, or zero for an empty slot
+    private int[] slots = new int[1 << 13];
+    private int size;
+
+    int find(String name) {
+      int length = name.length();
+      int mask = slots.length - 1;
+      for (int slot = hash(name, length) & mask; ; slot = slot + 1 & mask) {
+        int i = slots[slot] - 1;
+        if (i < 0) return -1;
+        if (matches(i, name, length)) return i;
+      }
+    }
+
+    void add(String name, byte status, int ttl) {
+      int length = name.length();
+      int mask = slots.length - 1;
+      int slot = hash(name, length) & mask;
+
+      for (; ; slot = slot + 1 & mask) {
+        int i = slots[slot] - 1;
+        if (i < 0) break;
+        if (matches(i, name, length)) {
+          merge(i, status, ttl);
+          return;
+        }
+      }
+
+      ensureCapacity(length);
+      int start = offsets[size];
+      for (int c = 0; c < length; c++) {
+        names[start + c] = (byte) name.charAt(c);
+      }
+
+      offsets[size + 1] = start + length;
+      statuses[size] = status;
+      ttls[size] = ttl;
+      slots[slot] = ++size;
+
+      if (size * 2 > slots.length) rehash();
+    }
+
+    /**
+     * Shrink the arrays to the size of the zone.
+     */
+    Index trim() {
+      names = Arrays.copyOf(names, offsets[size]);
+      offsets = Arrays.copyOf(offsets, size + 1);
+      statuses = Arrays.copyOf(statuses, size);
+      ttls = Arrays.copyOf(ttls, size);
+      return this;
+    }
+
+    private void merge(int i, byte status, int ttl) {
+      if (status == statuses[i]) {
+        // The shortest known time to live of the records wins
+        if (ttls[i] == UNKNOWN_TTL || ttl != UNKNOWN_TTL && ttl < ttls[i]) ttls[i] = ttl;
+      } else if (status == FOUND) {
+        statuses[i] = FOUND;
+        ttls[i] = ttl;
+      }
+    }
+
+    private boolean matches(int i, String name, int length) {
+      int start = offsets[i];
+      if (offsets[i + 1] - start != length) return false;
+      for (int c = 0; c < length; c++) {
+        if (names[start + c] != (byte) name.charAt(c)) return false;
+      }
+      return true;
+    }
+
+    private void ensureCapacity(int length) {
+      int end = offsets[size] + length;
+      if (end > names.length) {
+        names = Arrays.copyOf(names, Math.max(names.length * 2, end));
+      }
+
+      if (size + 1 >= offsets.length) {
+        int capacity = offsets.length * 2;
+        offsets = Arrays.copyOf(offsets, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        ttls = Arrays.copyOf(ttls, capacity);
+      }
+    }
+
+    private void rehash() {
+      int[] rehashed = new int[slots.length * 2];
+      int mask = rehashed.length - 1;
+
+      for (int i = 0; i < size; i++) {
+        int slot = hash(names, offsets[i], offsets[i + 1]) & mask;
+        while (rehashed[slot] != 0) slot = slot + 1 & mask;
+        rehashed[slot] = i + 1;
+      }
+
+      slots = rehashed;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+      int hash = 0x811C9DC5;
+      for (int i = from; i < to; i++) {
+        hash = (hash ^ bytes[i]) * 0x01000193;
+      }
+      return hash ^ hash >>> 16;
+    }
+
+    private static int hash(String name, int length) {
+      int hash = 0x811C9DC5;
+      for (int i = 0; i < length; i++) {
+        hash = (hash ^ (byte) name.charAt(i)) * 0x01000193;
+      }
+      return hash ^ hash >>> 16;
+    }
+  }
+}
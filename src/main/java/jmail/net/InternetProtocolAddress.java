@@ -1,9 +1,8 @@
 package jmail.net;
 
-import java.util.Arrays;
-import java.util.HashSet;
+import jmail.util.CharacterClass;
+
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Provides validation methods for internet protocol (IP) addresses,
@@ -19,12 +18,6 @@ public final class InternetProtocolAddress {
   private InternetProtocolAddress() {
   }
 
-  // Set of allowed characters in a HEX number
-  private static final Set<Character> ALLOWED_HEX_CHARACTERS = new HashSet<>(
-      Arrays.asList(
-          'A', 'B', 'C', 'D', 'E', 'F', 'a', 'b', 'c', 'd', 'e', 'f',
-          '0', '1', '2', '3', '4', '5', '6', '7', '8', '9'));
-
   /**
    * Determines if the given string is a valid IP address.
    *
@@ -89,7 +82,7 @@ public final class InternetProtocolAddress {
         continue;
       }
 
-      if (c < '0' || c > '9') return Optional.empty();
+      if (!CharacterClass.isAsciiDigit(c)) return Optional.empty();
 
       currentPart.append(c);
     }
@@ -172,7 +165,7 @@ public final class InternetProtocolAddress {
         previousColon = false;
       }
 
-      if (!ALLOWED_HEX_CHARACTERS.contains(c)) return Optional.empty();
+      if (!CharacterClass.isHex(c)) return Optional.empty();
 
       currentPart.append(c);
     }
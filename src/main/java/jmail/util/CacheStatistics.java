@@ -0,0 +1,110 @@
+package jmail.util;
+
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of the hit, miss and eviction counts of a cache.
+ */
+public final class CacheStatistics {
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+
+  private CacheStatistics(long hitCount, long missCount, long evictionCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * Create a new snapshot with the given counts.
+   *
+   * @param hitCount the number of lookups that found a cached value
+   * @param missCount the number of lookups that had to compute the value
+   * @return the new {@link CacheStatistics} instance
+   */
+  public static CacheStatistics of(long hitCount, long missCount) {
+    return new CacheStatistics(hitCount, missCount, 0);
+  }
+
+  /**
+   * Create a new snapshot with the given counts.
+   *
+   * @param hitCount the number of lookups that found a cached value
+   * @param missCount the number of lookups that had to compute the value
+   * @param evictionCount the number of values removed to make room for others
+   * @return the new {@link CacheStatistics} instance
+   */
+  public static CacheStatistics of(long hitCount, long missCount, long evictionCount) {
+    return new CacheStatistics(hitCount, missCount, evictionCount);
+  }
+
+  /**
+   * Get the number of lookups that found a cached value.
+   *
+   * @return the hit count
+   */
+  public long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get the number of lookups that had to compute the value.
+   *
+   * @return the miss count
+   */
+  public long missCount() {
+    return missCount;
+  }
+
+  /**
+   * Get the number of values removed to make room for others. Values that expired are not
+   * counted.
+   *
+   * @return the eviction count
+   */
+  public long evictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Get the total number of lookups.
+   *
+   * @return the sum of the hit and miss counts
+   */
+  public long requestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * Get the ratio of lookups that found a cached value.
+   *
+   * @return the hit rate between 0 and 1, or 1 if there were no lookups
+   */
+  public double hitRate() {
+    long requestCount = requestCount();
+
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics[hitCount=" + hitCount + ", missCount=" + missCount
+        + ", evictionCount=" + evictionCount + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof CacheStatistics)) return false;
+    CacheStatistics that = (CacheStatistics) o;
+    return hitCount == that.hitCount
+        && missCount == that.missCount
+        && evictionCount == that.evictionCount;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(hitCount, missCount, evictionCount);
+  }
+}
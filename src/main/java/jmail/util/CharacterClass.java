@@ -0,0 +1,234 @@
+package jmail.util;
+
+/**
+ * Precomputed character classes used by the email address and IP address parsers.
+ *
+ * <p>Each ASCII character maps to a set of bit flags in a lookup table, so classifying a
+ * character is a single array access without boxing or hashing. Characters outside the ASCII
+ * range are classified explicitly by {@link #flags(char)}.
+ */
+public final class CharacterClass {
+
+  /**
+   * Characters that are not allowed in the local-part outside of quotes.
+   */
+  public static final int DISALLOWED_UNQUOTED = 1;
+
+  /**
+   * Characters that are allowed in a domain: letters, digits, {@code '-'}, {@code '.'},
+   * and the space character between domain parts.
+   */
+  public static final int DOMAIN = 1 << 1;
+
+  /**
+   * Characters within local-part quotes that require a backslash escape.
+   */
+  public static final int QUOTED_WITH_ESCAPE = 1 << 2;
+
+  /**
+   * Characters that are allowed in a HEX number.
+   */
+  public static final int HEX = 1 << 3;
+
+  /**
+   * The ASCII digits {@code '0'} through {@code '9'}.
+   */
+  public static final int DIGIT = 1 << 4;
+
+  /**
+   * The whitespace characters allowed in an email address: {@code ' '}, {@code '\r'}
+   * and {@code '\n'}.
+   */
+  public static final int WHITESPACE = 1 << 5;
+
+  /**
+   * The characters allowed in an unquoted atom (RFC 5322 {@code atext}): letters, digits and
+   * {@code !#$%&'*+-/=?^_`{|}~}.
+   */
+  public static final int ATOM = 1 << 6;
+
+  private static final byte[] ASCII = new byte[128];
+
+  static {
+    add(DISALLOWED_UNQUOTED, '\t', '(', ')', ',', ':', ';', '<', '>', '@', '[', ']', '"');
+
+    for (char c = 'a'; c <= 'z'; c++) add(DOMAIN, c);
+    for (char c = 'A'; c <= 'Z'; c++) add(DOMAIN, c);
+    for (char c = '0'; c <= '9'; c++) add(DOMAIN | HEX | DIGIT, c);
+    add(DOMAIN, '-', '.', ' ');
+
+    for (char c = 'a'; c <= 'f'; c++) add(HEX, c);
+    for (char c = 'A'; c <= 'F'; c++) add(HEX, c);
+
+    add(QUOTED_WITH_ESCAPE, '\r', '\n');
+    add(WHITESPACE, ' ', '\r', '\n');
+
+    for (char c = 'a'; c <= 'z'; c++) add(ATOM, c);
+    for (char c = 'A'; c <= 'Z'; c++) add(ATOM, c);
+    for (char c = '0'; c <= '9'; c++) add(ATOM, c);
+    add(ATOM, '!', '#', '$', '%', '&', '\'', '*', '+', '-', '/', '=', '?', '^', '_', '`', '{',
+        '|', '}', '~');
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private CharacterClass() {
+  }
+
+  /**
+   * Get the character class flags of the given character.
+   *
+   * @param c the character to classify
+   * @return the bitwise OR of all classes that the character belongs to
+   */
+  public static int flags(char c) {
+    return c < 128 ? ASCII[c] : nonAsciiFlags(c);
+  }
+
+  /**
+   * Determine if the given character belongs to any of the given classes.
+   *
+   * @param c the character to classify
+   * @param classes the bitwise OR of the classes to check
+   * @return true if the character belongs to at least one of the classes
+   */
+  public static boolean is(char c, int classes) {
+    return (flags(c) & classes) != 0;
+  }
+
+  /**
+   * Determine if the given character must be quoted when it appears in the local-part.
+   *
+   * @param c the character to check
+   * @return true if the character is not allowed outside of quotes
+   */
+  public static boolean isDisallowedUnquoted(char c) {
+    return is(c, DISALLOWED_UNQUOTED);
+  }
+
+  /**
+   * Determine if the given character is allowed in an ASCII domain.
+   *
+   * @param c the character to check
+   * @return true if the character is allowed in a domain
+   */
+  public static boolean isAllowedInDomain(char c) {
+    return is(c, DOMAIN);
+  }
+
+  /**
+   * Determine if the given character requires a backslash escape within local-part quotes.
+   *
+   * @param c the character to check
+   * @return true if the character must be escaped within quotes
+   */
+  public static boolean requiresEscapeInQuotes(char c) {
+    return is(c, QUOTED_WITH_ESCAPE);
+  }
+
+  /**
+   * Determine if the given character is a HEX digit.
+   *
+   * @param c the character to check
+   * @return true if the character is allowed in a HEX number
+   */
+  public static boolean isHex(char c) {
+    return is(c, HEX);
+  }
+
+  /**
+   * Determine if the given character is one of the ASCII digits {@code '0'} through
+   * {@code '9'}.
+   *
+   * @param c the character to check
+   * @return true if the character is an ASCII digit
+   */
+  public static boolean isAsciiDigit(char c) {
+    return is(c, DIGIT);
+  }
+
+  /**
+   * Determine if the given character is a digit. ASCII characters are classified with the
+   * lookup table, any other character according to {@link Character#isDigit(char)}.
+   *
+   * @param c the character to check
+   * @return true if the character is a digit
+   */
+  public static boolean isDigit(char c) {
+    return c < 128 ? (ASCII[c] & DIGIT) != 0 : Character.isDigit(c);
+  }
+
+  /**
+   * Determine if the given character is allowed in an unquoted atom.
+   *
+   * @param c the character to check
+   * @return true if the character is an ASCII {@code atext} character
+   */
+  public static boolean isAtom(char c) {
+    return is(c, ATOM);
+  }
+
+  /**
+   * Determine if the given character is whitespace that is allowed within an email address.
+   *
+   * @param c the character to check
+   * @return true if the character is {@code ' '}, {@code '\r'} or {@code '\n'}
+   */
+  public static boolean isWhitespace(char c) {
+    return is(c, WHITESPACE);
+  }
+
+  /**
+   * Determine if every character of the given sequence is a digit, according to
+   * {@link #isDigit(char)}.
+   *
+   * @param s the sequence to check
+   * @return true if all characters are digits (or the sequence is empty)
+   */
+  public static boolean isNumeric(CharSequence s) {
+    return isNumeric(s, 0, s.length());
+  }
+
+  /**
+   * Determine if every character in the window {@code [start, end)} of the given sequence is
+   * a digit, according to {@link #isDigit(char)}.
+   *
+   * @param s the sequence to check
+   * @param start the index of the first character to check
+   * @param end the index after the last character to check
+   * @return true if all characters in the window are digits (or the window is empty)
+   */
+  public static boolean isNumeric(CharSequence s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isDigit(s.charAt(i))) return false;
+    }
+
+    return true;
+  }
+
+  // The parsers treat the Unicode control pictures (U+2400 - U+241F) as the control characters
+  // they depict: '␀' must be escaped in quotes, and the pictures of control characters
+  // 1-8, 11, 12, 14-29 and 31 must be quoted in the local-part.
+  private static int nonAsciiFlags(char c) {
+    if (c < '␀' || c > '␟') return 0;
+
+    switch (c) {
+      case '␀':
+        return QUOTED_WITH_ESCAPE;
+      case '␉': // horizontal tab
+      case '␊': // line feed
+      case '␍': // carriage return
+      case '␞': // record separator, never part of the disallowed set
+        return 0;
+      default:
+        return DISALLOWED_UNQUOTED;
+    }
+  }
+
+  private static void add(int flag, char... chars) {
+    for (char c : chars) {
+      ASCII[c] |= flag;
+    }
+  }
+}
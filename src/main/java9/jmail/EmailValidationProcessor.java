@@ -0,0 +1,326 @@
+package jmail;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Processor} that validates a stream of email addresses with an
+ * {@link EmailValidator}, for use in reactive pipelines. Requires Java 9 or later.
+ *
+ * <p>Parsing and all rules that do not wait on the network run inline, on the thread that
+ * delivers each address. Rules that block on DNS lookups, such as
+ * {@link RequireValidMXRecordRule}, run on the given executor instead, with at most
+ * {@code concurrency} addresses in flight at once, so that event-loop threads are never
+ * blocked. An {@link AsyncEmailValidationRule} is composed without the executor.
+ *
+ * <p>The processor honours downstream demand: it never requests more addresses from upstream
+ * than downstream has requested results, and never more than {@code bufferSize} ahead. Upstream
+ * requests are made in batches. Results are emitted in the order of the addresses, or, when
+ * unordered, as soon as each one is ready.
+ *
+ * <p>A processor can be subscribed to once, and supports a single subscriber.
+ */
+public final class EmailValidationProcessor
+    implements Flow.Processor<String, EmailValidationResult> {
+  private static final int DEFAULT_BUFFER_SIZE = 256;
+
+  private final EmailValidator validator;
+  private final Executor executor;
+  private final int concurrency;
+  private final boolean ordered;
+  private final int bufferSize;
+
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicLong demand = new AtomicLong();
+  private final AtomicLong outstanding = new AtomicLong();
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  // Addresses that arrived since the last drain
+  private final Queue<Item> incoming = new ConcurrentLinkedQueue<>();
+  // Results ready to emit in unordered mode
+  private final Queue<Item> ready = new ConcurrentLinkedQueue<>();
+
+  // Only accessed by the thread that holds the drain loop
+  private final Queue<Item> order = new ArrayDeque<>();
+  private final Queue<Item> waiting = new ArrayDeque<>();
+  private boolean terminated;
+
+  private volatile Flow.Subscription upstream;
+  private volatile Flow.Subscriber<? super EmailValidationResult> downstream;
+  private volatile boolean upstreamDone;
+  private volatile boolean cancelled;
+  private volatile Throwable error;
+
+  /**
+   * Create a processor that runs every rule inline, including rules that block on the network.
+   * Results are emitted in order.
+   *
+   * @param validator the validator to validate each address with
+   */
+  public EmailValidationProcessor(EmailValidator validator) {
+    this(validator, Runnable::run, 1, true, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a processor that runs the rules that block on the network on the given executor.
+   *
+   * @param validator the validator to validate each address with
+   * @param executor the executor to run blocking rules on
+   * @param concurrency the maximum number of addresses whose blocking rules run at once
+   * @param ordered true to emit results in the order of the addresses, false to emit each
+   *                result as soon as it is ready
+   */
+  public EmailValidationProcessor(EmailValidator validator, Executor executor, int concurrency,
+                                  boolean ordered) {
+    this(validator, executor, concurrency, ordered, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a processor that runs the rules that block on the network on the given executor.
+   *
+   * @param validator the validator to validate each address with
+   * @param executor the executor to run blocking rules on
+   * @param concurrency the maximum number of addresses whose blocking rules run at once
+   * @param ordered true to emit results in the order of the addresses, false to emit each
+   *                result as soon as it is ready
+   * @param bufferSize the maximum number of addresses to request from upstream ahead of
+   *                   emitting their results
+   */
+  public EmailValidationProcessor(EmailValidator validator, Executor executor, int concurrency,
+                                  boolean ordered, int bufferSize) {
+    if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive");
+    if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+
+    this.validator = Objects.requireNonNull(validator, "validator");
+    this.executor = Objects.requireNonNull(executor, "executor");
+    this.concurrency = concurrency;
+    this.ordered = ordered;
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super EmailValidationResult> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+      return;
+    }
+
+    downstream = subscriber;
+    subscriber.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          onError(new IllegalArgumentException("Requested a non-positive number of results"));
+          return;
+        }
+
+        demand.getAndAccumulate(n, (current, added) -> {
+          long sum = current + added;
+          return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+        drain();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) subscription.cancel();
+        drain();
+      }
+    });
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (upstream != null) {
+      subscription.cancel();
+      return;
+    }
+
+    upstream = subscription;
+    if (cancelled) subscription.cancel();
+    drain();
+  }
+
+  @Override
+  public void onNext(String email) {
+    outstanding.decrementAndGet();
+    pending.incrementAndGet();
+
+    Item item = new Item();
+    try {
+      EmailValidationResult result = validator.validateWithoutBlockingRules(email);
+
+      if (result.isSuccess() && validator.hasBlockingRules()) {
+        item.parsed = result;
+      } else {
+        item.result = result;
+      }
+    } catch (RuntimeException e) {
+      onError(e);
+      return;
+    }
+
+    incoming.add(item);
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    if (error == null) error = throwable;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+  /**
+   * Move work forward: start blocking rules, emit the results that are ready, complete, and
+   * request more addresses. Only one thread runs the loop at a time, and a call made while it
+   * runs makes it go around again.
+   */
+  private void drain() {
+    if (wip.getAndIncrement() != 0) return;
+
+    int missed = 1;
+    do {
+      Flow.Subscriber<? super EmailValidationResult> subscriber = downstream;
+
+      if (!terminated && subscriber != null) {
+        if (cancelled) {
+          terminate();
+        } else if (error != null) {
+          Flow.Subscription subscription = upstream;
+          if (subscription != null) subscription.cancel();
+          terminate();
+          subscriber.onError(error);
+        } else {
+          accept();
+          start();
+          emit(subscriber);
+
+          if (upstreamDone && pending.get() == 0) {
+            terminate();
+            subscriber.onComplete();
+          } else {
+            requestMore();
+          }
+        }
+      }
+
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void accept() {
+    Item item;
+    while ((item = incoming.poll()) != null) {
+      if (ordered) order.add(item);
+
+      if (item.result == null) waiting.add(item);
+      else if (!ordered) ready.add(item);
+    }
+  }
+
+  private void start() {
+    while (!waiting.isEmpty() && inFlight.get() < concurrency) {
+      Item item = waiting.poll();
+      inFlight.incrementAndGet();
+
+      validator.applyBlockingRulesAsync(item.parsed, executor)
+          .whenComplete((result, throwable) -> {
+            inFlight.decrementAndGet();
+
+            if (throwable != null) {
+              onError(throwable instanceof CompletionException
+                  ? throwable.getCause() : throwable);
+              return;
+            }
+
+            item.result = result;
+            if (!ordered) ready.add(item);
+            drain();
+          });
+    }
+  }
+
+  private void emit(Flow.Subscriber<? super EmailValidationResult> subscriber) {
+    long requested = demand.get();
+    long emitted = 0;
+
+    while (emitted < requested && !cancelled && error == null) {
+      Item item;
+      if (ordered) {
+        item = order.peek();
+        if (item == null || item.result == null) break;
+        order.poll();
+      } else {
+        item = ready.poll();
+        if (item == null) break;
+      }
+
+      pending.decrementAndGet();
+      emitted++;
+      subscriber.onNext(item.result);
+    }
+
+    if (emitted > 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+  }
+
+  private void requestMore() {
+    Flow.Subscription subscription = upstream;
+    if (subscription == null || upstreamDone) return;
+
+    long limit = Math.min(demand.get(), bufferSize);
+    long missing = limit - pending.get() - outstanding.get();
+
+    // Wait until a batch is worth asking for, unless nothing at all is on its way
+    if (missing > 0 && (missing >= Math.min(limit, bufferSize / 2) || outstanding.get() == 0)) {
+      outstanding.addAndGet(missing);
+      subscription.request(missing);
+    }
+  }
+
+  private void terminate() {
+    terminated = true;
+    incoming.clear();
+    ready.clear();
+    order.clear();
+    waiting.clear();
+  }
+
+  /**
+   * An address on its way through the processor.
+   */
+  private static final class Item {
+    // The result of the non-blocking rules, waiting for the blocking rules
+    private EmailValidationResult parsed;
+    private volatile EmailValidationResult result;
+  }
+}
@@ -0,0 +1,118 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class AddressListParserTest {
+
+  @Test
+  void parsesMixedAddressList() {
+    List<Email> emails = AddressListParser
+        .tryParse("\"A, B\" <a@x.com>, c@y.org (Team), group: d@z.net;")
+        .collect(Collectors.toList());
+
+    assertThat(emails).extracting(Email::localPart)
+        .containsExactly("a", "c", "d");
+    assertThat(emails).extracting(Email::toString)
+        .containsExactly("\"A, B\" <a@x.com>", "c@y.org (Team)", "d@z.net");
+    assertThat(emails.get(0).identifier()).isEqualTo("\"A, B\" ");
+    assertThat(emails.get(1).comments()).containsExactly("Team");
+  }
+
+  @Test
+  void agreesWithSingleAddressParsing() {
+    String[] members = {
+        "\"A, B\" <a@x.com>", "c@y.org (Team)", "Jo\\, B <b@x.com>", "<@relay.net:user@x.com>",
+        "user@[IPv6:2001:db8::1]", "(comment, with comma) e@f.com", "invalid@@x.com"
+    };
+
+    List<EmailValidationResult> results = AddressListParser
+        .validate(String.join(",\r\n ", members))
+        .collect(Collectors.toList());
+
+    assertThat(results).hasSize(members.length);
+    for (int i = 0; i < members.length; i++) {
+      assertThat(results.get(i)).isEqualTo(JMail.validate(members[i]));
+    }
+  }
+
+  @Test
+  void returnsGroupMembers() {
+    assertThat(normalized("friends: a@x.com, b@y.com; c@z.com, family:;, team: d@w.com;"))
+        .containsExactly("a@x.com", "b@y.com", "c@z.com", "d@w.com");
+  }
+
+  @Test
+  void acceptsPhraseGroupNames() {
+    assertThat(normalized("\"The, Team\" (core) Jr.: a@x.com; My.Friends : b@y.com;"))
+        .containsExactly("a@x.com", "b@y.com");
+  }
+
+  @ParameterizedTest(name = "[{index}] {0}")
+  @ValueSource(strings = {"foo@x.com: a@b.com;", "@a.com:user@b.com"})
+  void reportsAddressBeforeColonAsFailure(String header) {
+    List<EmailValidationResult> results = AddressListParser.validate(header)
+        .collect(Collectors.toList());
+
+    assertThat(results).hasSize(2);
+    assertThat(results.get(0).isSuccess()).isFalse();
+    assertThat(results.get(0).getFailureReason())
+        .isEqualTo(FailureReason.DISALLOWED_UNQUOTED_CHARACTER);
+  }
+
+  @ParameterizedTest(name = "[{index}] {0}")
+  @ValueSource(strings = {"", " ", ",,", "undisclosed-recipients:;", " (nobody) , \t"})
+  void skipsEmptyMembers(String header) {
+    assertThat(AddressListParser.validate(header)).isEmpty();
+  }
+
+  @Test
+  void reportsInvalidMembers() {
+    assertThat(AddressListParser.validate("a@x.com, not an address, b@y.com")
+        .map(EmailValidationResult::isSuccess))
+        .containsExactly(true, false, true);
+    assertThat(normalized("a@x.com, not an address, b@y.com"))
+        .containsExactly("a@x.com", "b@y.com");
+  }
+
+  @Test
+  void isLazy() {
+    assertThat(AddressListParser.tryParse("a@x.com, \"unterminated").findFirst())
+        .hasValueSatisfying(e -> assertThat(e.normalized()).isEqualTo("a@x.com"));
+  }
+
+  @Test
+  void handlesNull() {
+    assertThat(AddressListParser.validate(null)).isEmpty();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void parsesEachValidAddressWithinAList(String email) {
+    // Unbracketed source routes and comma escapes in the local-part read as separators
+    if (email.startsWith("@") || email.contains(",") || email.contains(":")
+        || email.contains(";")) {
+      return;
+    }
+
+    List<EmailValidationResult> results = AddressListParser
+        .validate("first@example.com, " + email + ", last@example.com")
+        .collect(Collectors.toList());
+
+    assertThat(results).hasSize(3);
+    assertThat(results.get(1)).isEqualTo(JMail.validate(email.trim()));
+  }
+
+  private static List<String> normalized(String header) {
+    return AddressListParser.tryParse(header)
+        .map(Email::normalized)
+        .collect(Collectors.toList());
+  }
+}
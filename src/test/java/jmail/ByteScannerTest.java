@@ -0,0 +1,84 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jmail.util.CharacterClass;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+class ByteScannerTest {
+
+  // The scalar implementation, to compare the selected one against
+  private static final ByteScanner SCALAR = new ByteScanner();
+
+  @ParameterizedTest(name = "{0}")
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void agreesWithScalarScannerOnValidAddresses(String email) {
+    assertAgreesOnEverySuffix(email.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+  void agreesWithScalarScannerOnInvalidAddresses(String email) {
+    assertAgreesOnEverySuffix(email.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void agreesWithScalarScannerOnRandomBytes() {
+    Random random = new Random(42);
+    byte[] bytes = new byte[4096];
+
+    for (int round = 0; round < 200; round++) {
+      // Mostly atom characters, so that runs are long enough to cross vector boundaries
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = random.nextInt(40) == 0 ? (byte) random.nextInt(256) : (byte) 'a';
+      }
+
+      int from = random.nextInt(64);
+      int to = bytes.length - random.nextInt(64);
+
+      assertThat(ByteScanner.INSTANCE.indexOfSpecial(bytes, from, to))
+          .isEqualTo(SCALAR.indexOfSpecial(bytes, from, to));
+      assertThat(ByteScanner.INSTANCE.indexOfNonAscii(bytes, from, to))
+          .isEqualTo(SCALAR.indexOfNonAscii(bytes, from, to));
+    }
+  }
+
+  @Test
+  void classifiesEveryByte() {
+    byte[] bytes = new byte[256];
+
+    for (int b = 0; b < 256; b++) {
+      // Place the byte after a full vector of atom characters
+      byte[] padded = new byte[130];
+      Arrays.fill(padded, (byte) 'x');
+      padded[100] = (byte) b;
+
+      boolean special = b >= 128 || !CharacterClass.isAtom((char) b);
+      assertThat(ByteScanner.INSTANCE.indexOfSpecial(padded, 0, padded.length))
+          .isEqualTo(special ? 100 : padded.length);
+      assertThat(ByteScanner.INSTANCE.indexOfNonAscii(padded, 0, padded.length))
+          .isEqualTo(b >= 128 ? 100 : padded.length);
+
+      bytes[b] = (byte) b;
+    }
+
+    assertThat(ByteScanner.INSTANCE.indexOfSpecial(bytes, 0, bytes.length)).isZero();
+    assertThat(ByteScanner.INSTANCE.indexOfNonAscii(bytes, 0, bytes.length)).isEqualTo(128);
+  }
+
+  private static void assertAgreesOnEverySuffix(byte[] bytes) {
+    for (int from = 0; from <= bytes.length; from++) {
+      assertThat(ByteScanner.INSTANCE.indexOfSpecial(bytes, from, bytes.length))
+          .isEqualTo(SCALAR.indexOfSpecial(bytes, from, bytes.length));
+      assertThat(ByteScanner.INSTANCE.indexOfNonAscii(bytes, from, bytes.length))
+          .isEqualTo(SCALAR.indexOfNonAscii(bytes, from, bytes.length));
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmailDeduplicatorTest {
+
+  @Test
+  void fingerprintIsMurmurHash3OfUtf16() {
+    // Reference values of MurmurHash3_x64_128 (seed 0) over the UTF-16LE bytes
+    assertThat(EmailDeduplicator.fingerprint("test@example.com"))
+        .containsExactly(-4446667462355720035L, -3069834249703841496L);
+    assertThat(EmailDeduplicator.fingerprint("abcdefgh12345678x"))
+        .containsExactly(-5856860252224222404L, 9132329189924491681L);
+    assertThat(EmailDeduplicator.fingerprint("")).containsExactly(0L, 0L);
+  }
+
+  @Test
+  void findsDuplicatesByNormalizedForm() throws IOException {
+    try (EmailDeduplicator deduplicator = EmailDeduplicator.offHeap(10)) {
+      assertThat(deduplicator.add(parse("test@example.com"))).isTrue();
+      assertThat(deduplicator.add(parse("test(comment)@example.com"))).isFalse();
+      assertThat(deduplicator.add(parse("Name <test@example.com>"))).isFalse();
+      assertThat(deduplicator.add(parse("other@example.com"))).isTrue();
+      assertThat(deduplicator.add("")).isTrue();
+      assertThat(deduplicator.add("")).isFalse();
+      assertThat(deduplicator.size()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void growsBeyondExpectedSize() throws IOException {
+    try (EmailDeduplicator deduplicator = EmailDeduplicator.offHeap(1)) {
+      assertAgreesWithHashSet(deduplicator, 200_000);
+    }
+  }
+
+  @Test
+  void mappedTableAgreesWithHashSet(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("dedup.table");
+
+    try (EmailDeduplicator deduplicator = EmailDeduplicator.mapped(file, 1_000)) {
+      assertAgreesWithHashSet(deduplicator, 100_000);
+    }
+
+    assertThat(Files.exists(file)).isFalse();
+  }
+
+  @Test
+  void concurrentAddsKeepOneOfEachAddress() throws Exception {
+    int distinct = 50_000;
+    List<String> addresses = IntStream.range(0, distinct)
+        .mapToObj(i -> "user" + i + "@example.com")
+        .collect(Collectors.toList());
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try (EmailDeduplicator deduplicator = EmailDeduplicator.offHeap(1_000)) {
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          int added = 0;
+          for (String address : addresses) {
+            if (deduplicator.add(address)) added++;
+          }
+          return added;
+        }));
+      }
+
+      int added = 0;
+      for (Future<Integer> future : futures) added += future.get();
+
+      assertThat(added).isEqualTo(distinct);
+      assertThat(deduplicator.size()).isEqualTo(distinct);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void streamsDistinctAndDuplicateAddresses() throws IOException {
+    List<String> addresses = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) addresses.add("user" + (i % 300) + "@example.com");
+
+    try (EmailDeduplicator deduplicator = EmailDeduplicator.offHeap(300)) {
+      List<Email> unique = deduplicator.distinct(addresses.stream()
+              .map(JMail::tryParse)
+              .filter(Optional::isPresent)
+              .map(Optional::get))
+          .collect(Collectors.toList());
+
+      assertThat(unique).hasSize(300);
+      assertThat(deduplicator.duplicates(unique.stream()).count()).isEqualTo(300);
+    }
+  }
+
+  private static void assertAgreesWithHashSet(EmailDeduplicator deduplicator, int count) {
+    Set<String> seen = new HashSet<>();
+
+    for (int i = 0; i < count; i++) {
+      String address = "user" + (i * 7919 % (count / 2)) + "@example" + (i % 13) + ".com";
+      assertThat(deduplicator.add(address)).isEqualTo(seen.add(address));
+    }
+
+    assertThat(deduplicator.size()).isEqualTo(seen.size());
+  }
+
+  private static Email parse(String email) {
+    return JMail.tryParse(email).get();
+  }
+}
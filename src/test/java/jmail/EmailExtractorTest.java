@@ -0,0 +1,155 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+class EmailExtractorTest {
+
+  @Test
+  void extractsAddressesWithOffsets() {
+    String text = "Contact test@example.com or <first.last@sub.example.org>, not @nobody.";
+
+    List<ExtractedEmail> found = EmailExtractor.extract(text).collect(Collectors.toList());
+
+    assertThat(found).extracting(e -> e.getEmail().toString())
+        .containsExactly("test@example.com", "first.last@sub.example.org");
+    assertThat(found).allSatisfy(e -> assertThat(text.substring((int) e.getStart(), (int) e.getEnd()))
+        .isEqualTo(e.getEmail().toString()));
+  }
+
+  @Test
+  void ignoresTrailingPunctuationAndLeadingDots() {
+    assertThat(addresses("Write to ..test@example.com. Or test2@example-one.net-!"))
+        .containsExactly("test@example.com", "test2@example-one.net");
+  }
+
+  @Test
+  void skipsInvalidCandidates() {
+    assertThat(addresses("a..b@example.com x@-example.com @example.com a@ te@st@example.com"))
+        .isEmpty();
+  }
+
+  @Test
+  void rejectsLocalPartsThatAreTooLong() {
+    String local = Stream.generate(() -> "a").limit(65).collect(Collectors.joining());
+
+    assertThat(addresses(local + "@example.com")).isEmpty();
+    assertThat(addresses(local.substring(1) + "@example.com")).hasSize(1);
+  }
+
+  @Test
+  void appliesTheGivenValidator() {
+    String text = "user@localhost user@example.com user@[1.2.3.4]";
+
+    assertThat(addresses(text)).containsExactly("user@localhost", "user@example.com");
+    assertThat(EmailExtractor.extract(text, JMail.strictValidator())
+        .map(e -> e.getEmail().toString()))
+        .containsExactly("user@example.com");
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void extractsPlainValidAddresses(String email) {
+    // Only dot-atom addresses have boundaries that can be told apart from the text
+    if (!email.matches("[A-Za-z0-9!#$%&'*+/=?^_`{|}~.-]+@[A-Za-z0-9.-]+")) return;
+
+    assertThat(addresses("Before " + email + " after")).containsExactly(email);
+  }
+
+  @Test
+  void readerAgreesWithCharSequenceAcrossWindows() {
+    String text = randomText(new Random(7), 200_000);
+
+    List<ExtractedEmail> expected = EmailExtractor.extract(text).collect(Collectors.toList());
+
+    assertThat(expected).hasSizeGreaterThan(1000);
+    assertThat(EmailExtractor.extract(new StringReader(text))).containsExactlyElementsOf(expected);
+    assertThat(EmailExtractor.extract(new TrickleReader(text))).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void mappedFileAgreesWithCharSequence(@TempDir Path directory) throws IOException {
+    String text = randomText(new Random(11), 50_000);
+    Path file = directory.resolve("text.txt");
+    Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+    List<ExtractedEmail> expected = EmailExtractor.extract(text).collect(Collectors.toList());
+
+    try (Stream<ExtractedEmail> found = EmailExtractor.extract(file)) {
+      assertThat(found).containsExactlyElementsOf(expected);
+    }
+
+    // Small regions split multi-byte characters between mappings
+    try (Stream<ExtractedEmail> found = EmailExtractor.extract(file, JMail.validator(), 7)) {
+      assertThat(found).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void streamIsLazy() {
+    Reader reader = new TrickleReader("a@example.com " + randomText(new Random(3), 100_000));
+
+    assertThat(EmailExtractor.extract(reader).findFirst())
+        .hasValueSatisfying(e -> assertThat(e.getStart()).isZero());
+  }
+
+  private static List<String> addresses(String text) {
+    return EmailExtractor.extract(text)
+        .map(e -> e.getEmail().toString())
+        .collect(Collectors.toList());
+  }
+
+  private static String randomText(Random random, int words) {
+    String[] pieces = {"the", "mail", "to:", "(", ")", "<", ">", ",", ".", "\n", "é", "ü", "@", "--",
+        "test@example.com", "first.last@sub.example.org", "ø@ü.de", "a@b", "x@-y.com", "very.long"};
+    StringBuilder builder = new StringBuilder();
+
+    for (int i = 0; i < words; i++) {
+      builder.append(pieces[random.nextInt(pieces.length)]);
+      if (random.nextInt(3) > 0) builder.append(' ');
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * A reader that returns only a few characters per call.
+   */
+  private static final class TrickleReader extends Reader {
+    private final String text;
+    private int position;
+
+    TrickleReader(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (position == text.length()) return -1;
+
+      int count = Math.min(Math.min(length, 3), text.length() - position);
+      text.getChars(position, position + count, buffer, offset);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
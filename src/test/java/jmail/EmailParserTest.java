@@ -0,0 +1,82 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class EmailParserTest {
+
+  // Shared on purpose, so that every address is parsed with state left over from the last one
+  private static final EmailParser PARSER = new EmailParser();
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideValidEmails",
+      "jmail.AdditionalEmailProvider#provideValidWhitespaceEmails"})
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void reusedParserAgreesOnValidAddresses(String email) {
+    assertReusedParserAgrees(email);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideInvalidEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidWhitespaceEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidControlEmails"})
+  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+  void reusedParserAgreesOnInvalidAddresses(String email) {
+    assertReusedParserAgrees(email);
+  }
+
+  private void assertReusedParserAgrees(String email) {
+    EmailValidationResult expected = new EmailParser().validate(email);
+
+    assertThat(PARSER.validate(email)).isEqualTo(expected);
+    assertThat(PARSER.isValid(email)).isEqualTo(expected.isSuccess());
+    assertThat(JMail.validate(email)).isEqualTo(expected);
+  }
+
+  @Test
+  void pooledParsingIsSafeAcrossThreads() throws Exception {
+    List<String> emails = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      emails.add("user" + i + "(c" + i + ")@sub" + i + ".example.com");
+      emails.add("\"quoted " + i + "\"@example.org");
+      emails.add("Name " + i + " <@relay" + i + ".net:user" + i + "@example.com>");
+      emails.add("invalid" + i + "@@example.com");
+    }
+
+    List<EmailValidationResult> expected = new ArrayList<>();
+    for (String email : emails) expected.add(new EmailParser().validate(email));
+
+    ExecutorService executor = Executors.newFixedThreadPool(32);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 64; t++) {
+        futures.add(executor.submit(() -> {
+          for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < emails.size(); i++) {
+              if (!JMail.validate(emails.get(i)).equals(expected.get(i))) return false;
+            }
+          }
+          return true;
+        }));
+      }
+
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+class EmailValidatorTest {
+
+  private static final List<EmailValidator> VALIDATORS = Arrays.asList(
+      JMail.validator(),
+      JMail.strictValidator(),
+      JMail.validator().withRule(email -> !email.localPart().startsWith("a")));
+
+  @Test
+  void validateAllAgreesWithValidate() {
+    List<String> emails = emails(5_000);
+
+    for (EmailValidator validator : VALIDATORS) {
+      EmailValidationResult[] results = validator.validateAll(emails);
+
+      assertThat(results).hasSize(emails.size());
+      for (int i = 0; i < emails.size(); i++) {
+        assertThat(results[i]).isEqualTo(validator.validate(emails.get(i)));
+      }
+
+      assertThat(validator.validateAll(emails.toArray(new String[0]))).containsExactly(results);
+      assertThat(validator.validateAll(new LinkedList<>(emails))).containsExactly(results);
+      assertThat(validator.validateAll(emails.parallelStream()).collect(Collectors.toList()))
+          .containsExactly(results);
+    }
+  }
+
+  @Test
+  void isValidAllAgreesWithIsValid() {
+    List<String> emails = emails(5_000);
+
+    for (EmailValidator validator : VALIDATORS) {
+      BitSet valid = validator.isValidAll(emails);
+
+      for (int i = 0; i < emails.size(); i++) {
+        assertThat(valid.get(i)).as(emails.get(i)).isEqualTo(validator.isValid(emails.get(i)));
+      }
+
+      assertThat(validator.isValidAll(emails.toArray(new String[0]))).isEqualTo(valid);
+    }
+  }
+
+  @Test
+  void handlesEmptyAndNullInput() {
+    EmailValidator validator = JMail.strictValidator();
+
+    assertThat(validator.validateAll(Collections.emptyList())).isEmpty();
+    assertThat(validator.isValidAll(new String[0]).isEmpty()).isTrue();
+    assertThat(validator.validateAll(new String[] {null}))
+        .containsExactly(EmailValidationResult.failure(FailureReason.NULL_ADDRESS));
+  }
+
+  @Test
+  void validateAllLooksUpEachDomainOnce() {
+    Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    EmailValidator validator = JMail.validator()
+        .withRule(new RequireValidMXRecordRule() {
+          @Override
+          public boolean validate(Email email) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+              String domain = email.domainWithoutComments().toLowerCase();
+              lookups.computeIfAbsent(domain, d -> new AtomicInteger()).incrementAndGet();
+              return !domain.endsWith(".org");
+            } finally {
+              running.decrementAndGet();
+            }
+          }
+        });
+
+    List<String> emails = new ArrayList<>();
+    for (int i = 0; i < 3_000; i++) {
+      emails.add("user" + i + "@" + (i % 2 == 0 ? "Example.COM" : "domain" + (i % 50) + ".org"));
+    }
+    emails.add("invalid@@example.com");
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      EmailValidationResult[] results = validator.validateAll(emails, executor, 3);
+
+      assertThat(lookups).hasSize(26);
+      assertThat(lookups.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+      assertThat(maxRunning.get()).isLessThanOrEqualTo(3);
+
+      lookups.clear();
+      for (int i = 0; i < emails.size(); i++) {
+        assertThat(results[i]).isEqualTo(validator.validate(emails.get(i)));
+      }
+      assertThat(validator.isValidAll(emails).cardinality()).isEqualTo(1_500);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void validateAsyncAgreesWithValidate() throws Exception {
+    EmailValidator validator = JMail.validator()
+        .withRule(new RequireValidMXRecordRule() {
+          @Override
+          public boolean validate(Email email) {
+            return !email.domainWithoutComments().endsWith(".org");
+          }
+        });
+    List<String> emails = emails(200);
+
+    ExecutorService executor = ValidationExecutors.newVirtualThreadExecutor();
+    try {
+      for (String email : emails) {
+        EmailValidationResult expected = validator.validate(email);
+
+        assertThat(validator.validateAsync(email).get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+        assertThat(validator.validateAsync(email, executor).get(5, TimeUnit.SECONDS))
+            .isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void validateAsyncComposesAsyncRules() throws Exception {
+    CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+    EmailValidator validator = JMail.strictValidator()
+        .withRule((AsyncEmailValidationRule) email -> verdict);
+
+    CompletableFuture<EmailValidationResult> result = validator.validateAsync("test@example.com");
+    assertThat(result).isNotDone();
+
+    verdict.complete(false);
+    assertThat(result.get(5, TimeUnit.SECONDS))
+        .isEqualTo(EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION));
+
+    // Syntax failures complete at once, without waiting on the rule
+    assertThat(validator.validateAsync("invalid@@example.com")).isDone();
+    assertThat(validator.isValid("test@example.com")).isFalse();
+  }
+
+  @Test
+  void validateAllComposesAsyncRulesWithinConcurrency() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    AsyncEmailValidationRule rule = new AsyncEmailValidationRule() {
+      @Override
+      public CompletionStage<Boolean> validateAsync(Email email) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+          inFlight.decrementAndGet();
+          verdict.complete(!email.localPart().startsWith("u"));
+        }, 1, TimeUnit.MILLISECONDS);
+        return verdict;
+      }
+
+      @Override
+      public boolean validate(Email email) {
+        throw new AssertionError("Waited for an asynchronous rule");
+      }
+    };
+
+    EmailValidator validator = JMail.validator().withRule(rule);
+    List<String> emails = emails(2_500);
+
+    try {
+      EmailValidationResult[] results = validator.validateAll(emails, Runnable::run, 4);
+
+      assertThat(maxInFlight.get()).isBetween(1, 4);
+      for (int i = 0; i < emails.size(); i++) {
+        EmailValidationResult expected = JMail.validate(emails.get(i));
+        if (expected.isSuccess() && expected.getEmail().get().localPart().startsWith("u")) {
+          expected = EmailValidationResult.failure(FailureReason.FAILED_CUSTOM_VALIDATION);
+        }
+        assertThat(results[i]).isEqualTo(expected);
+      }
+
+      assertThat(validator.validateAll(emails)).containsExactly(results);
+      assertThat(validator.isValidAll(emails).cardinality())
+          .isEqualTo(Arrays.stream(results).filter(EmailValidationResult::isSuccess).count());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  void virtualThreadExecutorRunsTasks() throws Exception {
+    ExecutorService executor = ValidationExecutors.newVirtualThreadExecutor();
+    try {
+      assertThat(executor.submit(() -> Thread.currentThread().isDaemon()).get(5, TimeUnit.SECONDS))
+          .isTrue();
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(ValidationExecutors.usesVirtualThreads())
+        .isEqualTo(javaVersion() >= 21);
+  }
+
+  @Test
+  void platformThreadFallbackIsBounded() throws Exception {
+    Assumptions.assumeFalse(ValidationExecutors.usesVirtualThreads());
+
+    int limit = JmailProperties.platformThreads();
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    ExecutorService executor = ValidationExecutors.newVirtualThreadExecutor();
+    try {
+      List<Future<?>> tasks = new ArrayList<>();
+      for (int i = 0; i < limit * 3; i++) {
+        tasks.add(executor.submit(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+        }));
+      }
+      for (Future<?> task : tasks) task.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(maxRunning.get()).isBetween(1, limit);
+  }
+
+  private static int javaVersion() {
+    String version = System.getProperty("java.specification.version");
+    return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+  }
+
+  private static List<String> emails(int count) {
+    List<String> corpus = new ArrayList<>();
+    corpus.add("test@example.com");
+    corpus.add("alice@example.org");
+    corpus.add("\"quoted\"@example.com");
+    corpus.add("user@[1.2.3.4]");
+    corpus.add("user@localhost");
+    corpus.add("invalid@@example.com");
+    corpus.add("Name <a@b.co>");
+    corpus.add("ø@ü.de");
+
+    List<String> emails = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      emails.add(i % 3 == 0 ? "u" + i + "." + corpus.get(i % corpus.size())
+          : corpus.get(i % corpus.size()));
+    }
+    return emails;
+  }
+}
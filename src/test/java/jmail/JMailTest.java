@@ -5,6 +5,10 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 //import static org.junit.jupiter.api.Assertions.*;
 
+import jmail.util.CacheStatistics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -128,6 +132,23 @@ class JMailTest {
 	        .returns(false, Email::containsWhitespace);
 	  }
 
+	  @Test
+	  void parsedPartsAreDerivedOnceAndCompared() {
+	    String email = "\"ab\".\"c d\"(x)@(y)my.example.com";
+
+	    Email first = JMail.tryParse(email).orElseThrow(IllegalStateException::new);
+	    Email second = JMail.tryParse(email).orElseThrow(IllegalStateException::new);
+
+	    assertThat(first.domainParts()).isSameAs(first.domainParts())
+	        .containsExactly("my", "example", "com");
+	    assertThat(first.localPartWithoutComments()).isSameAs(first.localPartWithoutComments())
+	        .isEqualTo("\"ab\".\"c d\"");
+	    assertThat(first.normalized(true)).isEqualTo("ab.\"c d\"@my.example.com");
+
+	    assertThat(first).isEqualTo(second).hasSameHashCodeAs(second);
+	    assertThat(first).isNotEqualTo(JMail.tryParse("ab.\"c d\"@my.example.com").get());
+	  }
+
 	  @Test
 	  void strictValidatorRejects() {
 	    String dotlessEmail = "test@example";
@@ -205,6 +226,178 @@ class JMailTest {
 	        .isNull();
 	  }
 
+	  @Test
+	  void ensureIdentifiersAreParsedWithSourceRoutes() {
+	    String routed = "\"Joe\" <@1st.relay,@2nd.relay:joe(work)@te.ex>";
+
+	    assertThat(JMail.tryParse(routed)).isPresent().get()
+	        .returns("\"Joe\" ", Email::identifier)
+	        .returns(Arrays.asList("1st.relay", "2nd.relay"), Email::explicitSourceRoutes)
+	        .returns(Collections.singletonList("work"), Email::comments)
+	        .returns("joe@te.ex", Email::normalized);
+
+	    // With nested angle brackets, the outermost identifier is kept
+	    assertThat(JMail.tryParse("Outer <Inner <a@te.ex>>")).isPresent().get()
+	        .returns("Outer ", Email::identifier)
+	        .returns("a@te.ex", Email::normalized);
+	  }
+
+	  @ParameterizedTest(name = "{0}")
+	  @ValueSource(strings = {"@a.", "@1st.relay:", "a@\"..x.com", "a@b.co- "})
+	  void ensureMalformedAddressesFailWithoutThrowing(String email) {
+	    assertThat(JMail.validate(email).isFailure()).isTrue();
+	    assertThat(email).is(invalid);
+	  }
+
+	  @ParameterizedTest(name = "{0}")
+	  @MethodSource({
+	      "jmail.AdditionalEmailProvider#provideValidEmails",
+	      "jmail.AdditionalEmailProvider#provideValidWhitespaceEmails"})
+	  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+	  void scannerAgreesWithParserOnValidAddresses(String email) {
+	    assertScannerAgreesWithParser(email);
+	  }
+
+	  @ParameterizedTest(name = "{0}")
+	  @MethodSource({
+	      "jmail.AdditionalEmailProvider#provideInvalidEmails",
+	      "jmail.AdditionalEmailProvider#provideInvalidWhitespaceEmails",
+	      "jmail.AdditionalEmailProvider#provideInvalidControlEmails"})
+	  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+	  void scannerAgreesWithParserOnInvalidAddresses(String email) {
+	    assertScannerAgreesWithParser(email);
+	  }
+
+	  private void assertScannerAgreesWithParser(String email) {
+	    FailureReason scanned = EmailScanner.scan(email);
+
+	    // The scanner leaves non-ASCII domains to the full parser
+	    if (scanned != null) {
+	      assertThat(scanned).isEqualTo(JMail.validate(email).getFailureReason());
+	    }
+
+	    assertThat(JMail.check(email)).isEqualTo(JMail.validate(email).getFailureReason());
+	  }
+
+	  @Test
+	  void failureResultsAreShared() {
+	    EmailValidationResult missingAt = JMail.validate("test.example.com");
+
+	    assertThat(missingAt.getFailureReason()).isEqualTo(FailureReason.MISSING_AT_SYMBOL);
+	    assertThat(JMail.validate("other.example.com")).isSameAs(missingAt);
+	    assertThat(missingAt.getEmail()).isSameAs(missingAt.getEmail()).isEmpty();
+
+	    EmailValidationResult success = JMail.validate("test@example.com");
+	    assertThat(success.getEmail()).isSameAs(success.getEmail()).isPresent();
+
+	    assertThat(JMail.check("test@example.com")).isEqualTo(FailureReason.NONE);
+	    assertThat(JMail.check(null)).isEqualTo(FailureReason.NULL_ADDRESS);
+	    assertThat(JMail.check(new StringBuilder("test@@example.com")))
+	        .isEqualTo(FailureReason.MULTIPLE_AT_SYMBOLS);
+	  }
+
+	  @ParameterizedTest(name = "{0}")
+	  @MethodSource({
+	      "jmail.AdditionalEmailProvider#provideValidEmails",
+	      "jmail.AdditionalEmailProvider#provideValidWhitespaceEmails"})
+	  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+	  void bytesAgreeWithStringOnValidAddresses(String email) {
+	    assertBytesAgreeWithString(email);
+	  }
+
+	  @ParameterizedTest(name = "{0}")
+	  @MethodSource({
+	      "jmail.AdditionalEmailProvider#provideInvalidEmails",
+	      "jmail.AdditionalEmailProvider#provideInvalidWhitespaceEmails",
+	      "jmail.AdditionalEmailProvider#provideInvalidControlEmails"})
+	  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+	  void bytesAgreeWithStringOnInvalidAddresses(String email) {
+	    assertBytesAgreeWithString(email);
+	  }
+
+	  private void assertBytesAgreeWithString(String email) {
+	    EmailValidationResult expected = JMail.validate(email);
+	    byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+
+	    assertThat(JMail.validate(bytes, 0, bytes.length)).isEqualTo(expected);
+	    assertThat(JMail.isValid(bytes, 0, bytes.length)).isEqualTo(expected.isSuccess());
+	    assertThat(JMail.validate(ByteBuffer.wrap(bytes))).isEqualTo(expected);
+	  }
+
+	  @Test
+	  void validatesBytesInPlace() {
+	    byte[] record = "id=7;to=test@example.com;".getBytes(StandardCharsets.UTF_8);
+
+	    assertThat(JMail.validate(record, 8, 16).getEmail()).isPresent().get()
+	        .returns("test@example.com", Email::normalized);
+	    assertThat(JMail.isValid(record, 8, 17)).isFalse();
+
+	    ByteBuffer direct = ByteBuffer.allocateDirect(64);
+	    direct.put("jörg@bücher.example".getBytes(StandardCharsets.UTF_8)).flip();
+
+	    assertThat(JMail.isValid(direct)).isTrue();
+	    assertThat(JMail.validate(direct).getEmail()).isPresent().get()
+	        .returns("bücher.example", Email::domain)
+	        .returns(false, Email::isAscii);
+	    assertThat(direct.position()).isZero();
+
+	    // Malformed UTF-8 is decoded the same way as the String constructor does
+	    byte[] malformed = {'a', (byte) 0xC3, '@', 'b', '.', 'c', 'o'};
+	    assertThat(JMail.validate(malformed, 0, malformed.length))
+	        .isEqualTo(JMail.validate(new String(malformed, StandardCharsets.UTF_8)));
+
+	    assertThat(JMail.validate((ByteBuffer) null).getFailureReason())
+	        .isEqualTo(FailureReason.NULL_ADDRESS);
+	    assertThat(JMail.isValid((byte[]) null, 0, 0)).isFalse();
+	  }
+
+	  @Test
+	  void internationalizedDomainsAreMemoized() {
+	    String email = "test@memo-" + System.nanoTime() + ".bücher.example";
+
+	    CacheStatistics before = JMail.idnCacheStatistics();
+	    assertThat(email).is(valid);
+	    assertThat(JMail.idnCacheStatistics().missCount()).isEqualTo(before.missCount() + 1);
+
+	    assertThat(JMail.tryParse(email)).isPresent();
+	    assertThat(JMail.idnCacheStatistics().hitCount()).isGreaterThan(before.hitCount());
+
+	    // ASCII domains and routes never need IDN conversion
+	    CacheStatistics ascii = JMail.idnCacheStatistics();
+	    assertThat("@relay.example:test@example.com").is(valid);
+	    assertThat(JMail.idnCacheStatistics()).isEqualTo(ascii);
+	  }
+
+	  @Test
+	  void nestedCommentsAreLimitedInDepth() {
+	    String withinLimit = "test" + nestedComment(32) + "@example.com";
+	    String tooDeep = "test" + nestedComment(33) + "@example.com";
+
+	    assertThat(JMail.tryParse(withinLimit))
+	        .isPresent().get()
+	        .returns("test", Email::localPartWithoutComments);
+
+	    assertThat(JMail.validate(tooDeep).getFailureReason()).isEqualTo(FailureReason.INVALID_COMMENT);
+	    assertThat(tooDeep).is(invalid);
+
+	    System.setProperty("jmail.comment.max.depth", "2");
+	    try {
+	      assertThat("a(b(c))@example.com").is(valid);
+	      assertThat("a(b(c(d)))@example.com").is(invalid);
+	    } finally {
+	      System.clearProperty("jmail.comment.max.depth");
+	    }
+
+	    assertThat("a(b(c(d)))@example.com").is(valid);
+	  }
+
+	  private static String nestedComment(int depth) {
+	    StringBuilder comment = new StringBuilder();
+	    for (int i = 0; i < depth; i++) comment.append('(');
+	    for (int i = 0; i < depth; i++) comment.append(')');
+	    return comment.toString();
+	  }
+
 	  @Test
 	  void isInvalidCanValidate() {
 	    assertThat(JMail.isInvalid("test@test.com")).isFalse();
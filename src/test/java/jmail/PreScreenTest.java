@@ -0,0 +1,55 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PreScreenTest {
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideValidEmails",
+      "jmail.AdditionalEmailProvider#provideValidWhitespaceEmails"})
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void passesValidAddresses(String email) {
+    assertThat(PreScreen.screen(email)).isNull();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideInvalidEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidWhitespaceEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidControlEmails"})
+  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+  void agreesWithParserOnInvalidAddresses(String email) {
+    FailureReason screened = PreScreen.screen(email);
+
+    if (screened != null) {
+      assertThat(screened).isEqualTo(parse(email));
+    }
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {
+      "ab",
+      "plainaddress",
+      "first..last",
+      "first..last@example.com",
+      ".test@example.com",
+      "test@example.com.",
+      "test@example-",
+      "some.name.without.at.sign",
+  })
+  void decidesObviouslyInvalidAddresses(String email) {
+    assertThat(PreScreen.screen(email))
+        .isNotNull()
+        .isEqualTo(parse(email));
+  }
+
+  private static FailureReason parse(String email) {
+    return JMail.parse(email, new EmailParsingContext()).getFailureReason();
+  }
+}
@@ -0,0 +1,83 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StrictAddressAutomatonTest {
+
+  private static final EmailValidator STRICT = JMail.strictValidator();
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideValidEmails",
+      "jmail.AdditionalEmailProvider#provideValidWhitespaceEmails"})
+  @CsvFileSource(resources = "/valid-addresses.csv", numLinesToSkip = 1)
+  void agreesWithStrictValidatorOnValidAddresses(String email) {
+    assertAgrees(email);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource({
+      "jmail.AdditionalEmailProvider#provideInvalidEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidWhitespaceEmails",
+      "jmail.AdditionalEmailProvider#provideInvalidControlEmails"})
+  @CsvFileSource(resources = "/invalid-addresses.csv", delimiterString = " ;", numLinesToSkip = 1)
+  void agreesWithStrictValidatorOnInvalidAddresses(String email) {
+    assertAgrees(email);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {
+      "test@example.com",
+      "test@123.com",
+      "first.last@sub-domain.example.co.uk",
+      "test@example.123",
+      "test@example.1a",
+      "test@example",
+      "test@-example.com",
+      "test@example-.com",
+      "test@example.com-",
+      "test@example..com",
+      "test.@example.com",
+      "@example.com",
+      "te@st@example.com",
+      "test@exa_mple.com",
+  })
+  void decidesPlainAddresses(String email) {
+    assertThat(StrictAddressAutomaton.test(email)).isNotEqualTo(StrictAddressAutomaton.UNDECIDED);
+    assertAgrees(email);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @ValueSource(strings = {
+      "test@[1.2.3.4]",
+      "\"quoted\"@example.com",
+      "test(comment)@example.com",
+      "Name <test@example.com>",
+      "test..test<test@example.com>",
+      "tést@example.com",
+  })
+  void leavesOtherAddressesToTheParser(String email) {
+    assertThat(StrictAddressAutomaton.test(email)).isEqualTo(StrictAddressAutomaton.UNDECIDED);
+    assertAgrees(email);
+  }
+
+  private static void assertAgrees(String email) {
+    boolean expected = JMail.tryParse(email)
+        .filter(e -> !e.isIpAddress())
+        .filter(e -> !e.topLevelDomain().equals(TopLevelDomain.NONE))
+        .filter(e -> e.explicitSourceRoutes().isEmpty())
+        .isPresent();
+
+    int decision = StrictAddressAutomaton.test(email);
+    if (decision != StrictAddressAutomaton.UNDECIDED) {
+      assertThat(decision == StrictAddressAutomaton.ACCEPT).isEqualTo(expected);
+    }
+
+    assertThat(STRICT.isValid(email)).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,51 @@
+package jmail.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the addresses of the test CSV files, for use as benchmark input.
+ */
+final class BenchmarkCorpus {
+
+  private BenchmarkCorpus() {
+  }
+
+  /**
+   * Load the addresses of both {@code valid-addresses.csv} and {@code invalid-addresses.csv}.
+   *
+   * @return the list of addresses
+   */
+  static List<String> addresses() {
+    List<String> addresses = new ArrayList<>();
+    addresses.addAll(load("/valid-addresses.csv", ","));
+    addresses.addAll(load("/invalid-addresses.csv", " ;"));
+    return addresses;
+  }
+
+  private static List<String> load(String resource, String delimiter) {
+    List<String> addresses = new ArrayList<>();
+
+    try (InputStream in = BenchmarkCorpus.class.getResourceAsStream(resource);
+         BufferedReader reader = new BufferedReader(
+             new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      reader.readLine(); // skip the header
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int end = line.indexOf(delimiter);
+        addresses.add(end < 0 ? line : line.substring(0, end));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return addresses;
+  }
+}
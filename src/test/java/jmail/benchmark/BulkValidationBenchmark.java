@@ -0,0 +1,63 @@
+package jmail.benchmark;
+
+import jmail.EmailValidationResult;
+import jmail.EmailValidator;
+import jmail.JMail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@link EmailValidator#validateAll(List)} and {@link EmailValidator#isValidAll(List)}
+ * against a parallel stream of {@link EmailValidator#validate(String)} calls, using the strict
+ * validator over the test corpora repeated to one million addresses.
+ *
+ * <p>Run with {@code java -cp target/classes:target/test-classes
+ * jmail.benchmark.BulkValidationBenchmark}.
+ */
+public final class BulkValidationBenchmark {
+  private static final int SIZE = 1_000_000;
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int MEASURED_ROUNDS = 10;
+
+  private static final EmailValidator VALIDATOR = JMail.strictValidator();
+
+  private static long sink;
+
+  private BulkValidationBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    List<String> corpus = BenchmarkCorpus.addresses();
+    List<String> addresses = new ArrayList<>(SIZE);
+    for (int i = 0; i < SIZE; i++) addresses.add(corpus.get(i % corpus.size()));
+
+    System.out.printf("Addresses: %d, processors: %d%n", addresses.size(),
+        Runtime.getRuntime().availableProcessors());
+
+    System.out.printf("parallelStream().map(validate): %.1f ns/address%n",
+        measure(() -> sink += addresses.parallelStream()
+            .map(VALIDATOR::validate)
+            .collect(Collectors.toList())
+            .size()));
+    System.out.printf("validateAll:                    %.1f ns/address%n",
+        measure(() -> {
+          EmailValidationResult[] results = VALIDATOR.validateAll(addresses);
+          sink += results.length;
+        }));
+    System.out.printf("isValidAll:                     %.1f ns/address%n",
+        measure(() -> sink += VALIDATOR.isValidAll(addresses).cardinality()));
+    System.out.println(sink == 42 ? "" : "done");
+  }
+
+  private static double measure(Runnable run) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) run.run();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ROUNDS; i++) run.run();
+    long elapsed = System.nanoTime() - start;
+
+    return (double) elapsed / MEASURED_ROUNDS / SIZE;
+  }
+}
@@ -0,0 +1,111 @@
+package jmail.benchmark;
+
+import jmail.util.CharacterClass;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compares the per-character cost of the {@link CharacterClass} lookup tables against the
+ * {@code HashSet<Character>} lookups they replaced, over the characters of the test corpora.
+ *
+ * <p>Run with {@code java -cp target/classes:target/test-classes
+ * jmail.benchmark.CharacterClassBenchmark}.
+ */
+public final class CharacterClassBenchmark {
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 50;
+  private static final int PASSES_PER_ROUND = 2_000;
+
+  // The sets previously used by JMail and InternetProtocolAddress
+  private static final Set<Character> DISALLOWED_UNQUOTED_CHARACTERS = new HashSet<>(
+      Arrays.asList('\t', '(', ')', ',', ':', ';', '<', '>', '@', '[', ']', '"',
+          '␁', '␂', '␃', '␄', '␅', '␆', '␇', '␈', '␋', '␌', '␎', '␏', '␐', '␑',
+          '␒', '␓', '␔', '␕', '␖', '␗', '␘', '␙', '␚', '␛', '␜', '␝', '␟'));
+
+  private static final Set<Character> ALLOWED_DOMAIN_CHARACTERS = new HashSet<>(
+      Arrays.asList(
+          'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R',
+          'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z',
+          'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r',
+          's', 't', 'u', 'v', 'w', 'x', 'y', 'z',
+          '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '-', '.', ' '));
+
+  private static final Set<Character> ALLOWED_QUOTED_WITH_ESCAPE = new HashSet<>(
+      Arrays.asList('\r', '␀', '\n'));
+
+  private static final Set<Character> ALLOWED_HEX_CHARACTERS = new HashSet<>(
+      Arrays.asList(
+          'A', 'B', 'C', 'D', 'E', 'F', 'a', 'b', 'c', 'd', 'e', 'f',
+          '0', '1', '2', '3', '4', '5', '6', '7', '8', '9'));
+
+  private CharacterClassBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    List<String> addresses = BenchmarkCorpus.addresses();
+    char[] chars = String.join("", addresses).toCharArray();
+
+    // Make sure both implementations agree before timing them
+    for (char c : chars) {
+      if (hashSetFlags(c) != tableFlags(c)) {
+        throw new IllegalStateException("Lookups disagree on character " + (int) c);
+      }
+    }
+
+    System.out.printf("Corpus: %d addresses, %d characters%n", addresses.size(), chars.length);
+
+    double hashSet = measure(chars, true);
+    double table = measure(chars, false);
+
+    System.out.printf("HashSet<Character>: %.3f ns/char%n", hashSet);
+    System.out.printf("CharacterClass:     %.3f ns/char%n", table);
+    System.out.printf("Speedup:            %.1fx%n", hashSet / table);
+  }
+
+  private static double measure(char[] chars, boolean hashSet) {
+    long sink = 0;
+
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      sink += run(chars, hashSet);
+    }
+
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      sink += run(chars, hashSet);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    if (sink == 42) System.out.println(); // keep the results alive
+
+    return (double) elapsed / ((long) MEASURED_ROUNDS * PASSES_PER_ROUND * chars.length);
+  }
+
+  private static long run(char[] chars, boolean hashSet) {
+    long sum = 0;
+
+    for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+      for (char c : chars) {
+        sum += hashSet ? hashSetFlags(c) : tableFlags(c);
+      }
+    }
+
+    return sum;
+  }
+
+  private static int hashSetFlags(char c) {
+    int flags = 0;
+    if (DISALLOWED_UNQUOTED_CHARACTERS.contains(c)) flags |= CharacterClass.DISALLOWED_UNQUOTED;
+    if (ALLOWED_DOMAIN_CHARACTERS.contains(c)) flags |= CharacterClass.DOMAIN;
+    if (ALLOWED_QUOTED_WITH_ESCAPE.contains(c)) flags |= CharacterClass.QUOTED_WITH_ESCAPE;
+    if (ALLOWED_HEX_CHARACTERS.contains(c)) flags |= CharacterClass.HEX;
+    return flags;
+  }
+
+  private static int tableFlags(char c) {
+    return CharacterClass.flags(c) & (CharacterClass.DISALLOWED_UNQUOTED | CharacterClass.DOMAIN
+        | CharacterClass.QUOTED_WITH_ESCAPE | CharacterClass.HEX);
+  }
+}
@@ -0,0 +1,94 @@
+package jmail.benchmark;
+
+import jmail.Email;
+import jmail.EmailParser;
+import jmail.JMail;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures the bytes allocated per {@link JMail#tryParse(String)} call over the test corpora,
+ * both for the parse alone and for a parse followed by {@link Email#normalized()}, which is
+ * what most callers read. The parse alone is also measured with a reused {@link EmailParser}.
+ *
+ * <p>Run with {@code java -cp target/classes:target/test-classes
+ * jmail.benchmark.TryParseAllocationBenchmark}. Requires a JVM that supports thread
+ * allocation accounting, such as HotSpot.
+ */
+public final class TryParseAllocationBenchmark {
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 20;
+
+  private static final EmailParser PARSER = new EmailParser();
+
+  private static long sink;
+
+  private TryParseAllocationBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    List<String> addresses = BenchmarkCorpus.addresses();
+
+    System.out.printf("Corpus: %d addresses%n", addresses.size());
+
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      parse(addresses, false);
+      parse(addresses, true);
+      parseWithParser(addresses);
+    }
+
+    System.out.printf("tryParse:              %.1f bytes/address%n",
+        measure(addresses, false));
+    System.out.printf("tryParse + normalized: %.1f bytes/address%n",
+        measure(addresses, true));
+    System.out.printf("EmailParser.tryParse:  %.1f bytes/address%n",
+        measureParser(addresses));
+    System.out.println(sink == 42 ? "" : "done");
+  }
+
+  private static double measure(List<String> addresses, boolean normalize) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      parse(addresses, normalize);
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    return (double) allocated / MEASURED_ROUNDS / addresses.size();
+  }
+
+  private static double measureParser(List<String> addresses) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      parseWithParser(addresses);
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    return (double) allocated / MEASURED_ROUNDS / addresses.size();
+  }
+
+  private static void parseWithParser(List<String> addresses) {
+    for (String address : addresses) {
+      if (PARSER.tryParse(address).isPresent()) sink++;
+    }
+  }
+
+  private static void parse(List<String> addresses, boolean normalize) {
+    for (String address : addresses) {
+      Optional<Email> email = JMail.tryParse(address);
+
+      if (email.isPresent()) {
+        sink += normalize ? email.get().normalized().length() : 1;
+      }
+    }
+  }
+}
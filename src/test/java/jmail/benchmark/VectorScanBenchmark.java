@@ -0,0 +1,82 @@
+package jmail.benchmark;
+
+import jmail.JMail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Measures {@link JMail#isValid(byte[], int, int)} over the test corpora, as UTF-8 bytes. Run
+ * it once with the scalar byte scanner and once with the Vector API scanner to compare the two:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes jmail.benchmark.VectorScanBenchmark
+ * java --add-modules jdk.incubator.vector -Djmail.scan.vector=true \
+ *     -cp target/classes/META-INF/versions/17:target/classes:target/test-classes \
+ *     jmail.benchmark.VectorScanBenchmark
+ * </pre>
+ *
+ * <p>The corpus is measured as is, and with every local-part padded to 64 characters, which is
+ * where scanning more than one character per step pays off.
+ */
+public final class VectorScanBenchmark {
+  private static final int WARMUP_ROUNDS = 200;
+  private static final int MEASURED_ROUNDS = 500;
+
+  private static long sink;
+
+  private VectorScanBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    List<String> addresses = BenchmarkCorpus.addresses();
+
+    System.out.printf("Corpus: %d addresses, vector scanning %s%n", addresses.size(),
+        System.getProperty("jmail.scan.vector", "false"));
+
+    byte[][] corpus = encode(addresses, false);
+    byte[][] padded = encode(addresses, true);
+
+    System.out.printf("Corpus:             %.1f ns/address%n", measure(corpus));
+    System.out.printf("Padded local-parts: %.1f ns/address%n", measure(padded));
+    System.out.println(sink == 42 ? "" : "done");
+  }
+
+  private static byte[][] encode(List<String> addresses, boolean pad) {
+    byte[][] encoded = new byte[addresses.size()][];
+
+    for (int i = 0; i < encoded.length; i++) {
+      String address = addresses.get(i);
+
+      if (pad) {
+        StringBuilder builder = new StringBuilder(address);
+        for (int j = address.indexOf('@'); j >= 0 && j < 64; j++) builder.insert(0, 'x');
+        address = builder.toString();
+      }
+
+      encoded[i] = address.getBytes(StandardCharsets.UTF_8);
+    }
+
+    return encoded;
+  }
+
+  private static double measure(byte[][] corpus) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      run(corpus);
+    }
+
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      run(corpus);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    return (double) elapsed / MEASURED_ROUNDS / corpus.length;
+  }
+
+  private static void run(byte[][] corpus) {
+    for (byte[] address : corpus) {
+      if (JMail.isValid(address, 0, address.length)) sink++;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package jmail.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jmail.EmailValidationResult;
+import jmail.EmailValidator;
+import jmail.JMail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkFileValidatorTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void validatesCsvFilesInOrder() throws IOException {
+    for (String resource : new String[] {"/valid-addresses.csv", "/invalid-addresses.csv"}) {
+      String delimiter = resource.startsWith("/valid") ? "," : " ;";
+      Path input = copy(resource);
+
+      // Tiny segments, so that the file is split into many parts across threads
+      for (long segmentSize : new long[] {1, 100, 1 << 20}) {
+        assertOutputs(JMail.validator(), input, delimiter, segmentSize);
+        assertOutputs(JMail.strictValidator(), input, delimiter, segmentSize);
+      }
+    }
+  }
+
+  @Test
+  void handlesLineEndingsAndBlankLines() throws IOException {
+    Path input = directory.resolve("lines.txt");
+    Files.write(input, "a@b.com\r\n\r\ninvalid\nø@ü.de".getBytes(StandardCharsets.UTF_8));
+
+    BulkFileValidator.Report report = new BulkFileValidator(JMail.validator(), null, false, 2, 4)
+        .run(input, directory.resolve("out"));
+
+    assertThat(report.valid()).isEqualTo(2);
+    assertThat(report.rejected()).isEqualTo(1);
+    assertThat(read("out/" + BulkFileValidator.VALID)).containsExactly("a@b.com", "ø@ü.de");
+    assertThat(read("out/" + BulkFileValidator.REJECTED)).containsExactly("invalid ;MISSING_AT_SYMBOL");
+    try (Stream<Path> files = Files.list(directory.resolve("out"))) {
+      assertThat(files).hasSize(3);
+    }
+  }
+
+  private void assertOutputs(EmailValidator validator, Path input, String delimiter,
+                             long segmentSize) throws IOException {
+    Path output = directory.resolve("out");
+
+    BulkFileValidator.Report report = new BulkFileValidator(validator, delimiter, true, 4,
+        segmentSize).run(input, output);
+
+    List<String> valid = new ArrayList<>();
+    List<String> normalized = new ArrayList<>();
+    List<String> rejected = new ArrayList<>();
+
+    List<String> lines = Files.readAllLines(input, StandardCharsets.UTF_8);
+    for (String line : lines.subList(1, lines.size())) {
+      int end = line.indexOf(delimiter);
+      String address = end < 0 ? line : line.substring(0, end);
+      if (address.isEmpty()) continue;
+
+      EmailValidationResult result = validator.validate(address);
+      if (result.isSuccess()) {
+        valid.add(address);
+        normalized.add(result.getEmail().get().normalized());
+      } else {
+        rejected.add(address + " ;" + result.getFailureReason());
+      }
+    }
+
+    assertThat(read("out/" + BulkFileValidator.VALID)).containsExactlyElementsOf(valid);
+    assertThat(read("out/" + BulkFileValidator.NORMALIZED)).containsExactlyElementsOf(normalized);
+    assertThat(read("out/" + BulkFileValidator.REJECTED)).containsExactlyElementsOf(rejected);
+    assertThat(report.valid()).isEqualTo(valid.size());
+    assertThat(report.rejected()).isEqualTo(rejected.size());
+  }
+
+  private Path copy(String resource) throws IOException {
+    Path file = directory.resolve(resource.substring(1));
+    try (InputStream in = BulkFileValidatorTest.class.getResourceAsStream(resource)) {
+      Files.copy(in, file);
+    }
+    return file;
+  }
+
+  private List<String> read(String name) throws IOException {
+    return Files.readAllLines(directory.resolve(name), StandardCharsets.UTF_8);
+  }
+}
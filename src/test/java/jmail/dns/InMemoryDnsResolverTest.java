@@ -0,0 +1,86 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jmail.EmailValidationResult;
+import jmail.EmailValidator;
+import jmail.JMail;
+import jmail.RequireValidMXRecordRule;
+import jmail.RequireValidMXRecordWithTimeoutRule;
+import jmail.util.CacheStatistics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class InMemoryDnsResolverTest {
+
+  @Test
+  void answersFromMapIgnoringCase() {
+    InMemoryDnsResolver resolver = new InMemoryDnsResolver()
+        .putMX("Example.com")
+        .put("nomx.com", MXLookupResult.noMX(300));
+
+    assertThat(resolver.lookupMX("EXAMPLE.COM.").status())
+        .isEqualTo(MXLookupResult.Status.FOUND);
+    assertThat(resolver.lookupMX("nomx.com")).isEqualTo(MXLookupResult.noMX(300));
+    assertThat(resolver.lookupMX("missing.com").status())
+        .isEqualTo(MXLookupResult.Status.NXDOMAIN);
+    assertThat(resolver.hasMXRecord("example.com")).isTrue();
+    assertThat(resolver.lookupMXAsync("example.com").toCompletableFuture().join().hasMXRecord())
+        .isTrue();
+    assertThat(resolver.size()).isEqualTo(2);
+
+    resolver.remove("EXAMPLE.com");
+
+    assertThat(resolver.hasMXRecord("example.com")).isFalse();
+    assertThat(resolver.size()).isEqualTo(1);
+  }
+
+  @Test
+  void answersAbsentDomainsWithGivenResult() {
+    InMemoryDnsResolver resolver =
+        new InMemoryDnsResolver(MXLookupResult.found(MXLookupResult.UNKNOWN_TTL));
+
+    assertThat(resolver.hasMXRecord("anything.com")).isTrue();
+  }
+
+  @Test
+  void validatesOfflineThroughRules() {
+    InMemoryDnsResolver resolver = new InMemoryDnsResolver().putMX("gmail.com");
+
+    EmailValidator validator = JMail.validator().withRule(new RequireValidMXRecordRule(resolver));
+    EmailValidator timeoutValidator = JMail.validator()
+        .withRule(new RequireValidMXRecordWithTimeoutRule(10, 0, resolver));
+
+    assertThat(validator.isValid("test@gmail.com")).isTrue();
+    assertThat(validator.isValid("test@nowhere-at-all.com")).isFalse();
+    assertThat(timeoutValidator.isValid("test@gmail.com")).isTrue();
+    assertThat(timeoutValidator.isValid("test@nowhere-at-all.com")).isFalse();
+  }
+
+  @Test
+  void cachesAnyResolver() {
+    AtomicInteger lookups = new AtomicInteger();
+    InMemoryDnsResolver answers = new InMemoryDnsResolver().putMX("gmail.com");
+    DnsResolver counting = domain -> {
+      lookups.incrementAndGet();
+      return answers.lookupMX(domain);
+    };
+
+    MXRecordCache cache = new MXRecordCache();
+    EmailValidator validator = JMail.validator()
+        .withRule(new RequireValidMXRecordRule(counting, cache));
+
+    assertThat(validator.validateAll(Arrays.asList("a@gmail.com", "b@other.com")))
+        .extracting(EmailValidationResult::isSuccess)
+        .containsExactly(true, false);
+    assertThat(validator.isValid("c@GMAIL.com")).isTrue();
+    assertThat(cache.wrap(counting).lookupMXAsync("other.com").toCompletableFuture().join()
+        .hasMXRecord()).isFalse();
+
+    assertThat(lookups.get()).isEqualTo(2);
+    assertThat(cache.statistics()).isEqualTo(CacheStatistics.of(2, 2, 0));
+  }
+}
@@ -0,0 +1,148 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jmail.EmailValidator;
+import jmail.JMail;
+import jmail.RequireValidMXRecordRule;
+import jmail.RequireValidMXRecordWithTimeoutRule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class JndiMXResolverTest {
+  private final StubDnsServer server = new StubDnsServer()
+      .mx("example.com", 300, "mx1.example.com", "mx2.example.com")
+      .nullMX("nomail.com", 300)
+      .rcode("empty.com", 0)
+      .rcode("broken.com", 2)
+      .silent("slow.com")
+      .delayed("signup.com", 300, 300, "mx.signup.com");
+
+  JndiMXResolverTest() throws IOException {
+  }
+
+  @AfterAll
+  void stopServer() {
+    server.close();
+  }
+
+  @Test
+  void classifiesAnswers() {
+    try (JndiMXResolver resolver = resolver(4)) {
+      assertThat(resolver.lookupMX("example.com").status()).isEqualTo(MXLookupResult.Status.FOUND);
+      assertThat(resolver.lookupMX("nomail.com").status()).isEqualTo(MXLookupResult.Status.NO_MX);
+      assertThat(resolver.lookupMX("empty.com").status()).isEqualTo(MXLookupResult.Status.NO_MX);
+      assertThat(resolver.lookupMX("missing.com").status())
+          .isEqualTo(MXLookupResult.Status.NXDOMAIN);
+      assertThat(resolver.lookupMX("broken.com", 50, 0).status())
+          .isEqualTo(MXLookupResult.Status.TRANSIENT_FAILURE);
+      assertThat(resolver.lookupMX("slow.com", 50, 0).status())
+          .isEqualTo(MXLookupResult.Status.TRANSIENT_FAILURE);
+
+      assertThat(resolver.hasMXRecord("example.com")).isTrue();
+      assertThat(resolver.hasMXRecord("nomail.com")).isFalse();
+    }
+  }
+
+  @Test
+  void reusesContexts() {
+    try (JndiMXResolver resolver = resolver(4)) {
+      for (int i = 0; i < 20; i++) {
+        assertThat(resolver.hasMXRecord("example.com")).isTrue();
+      }
+
+      assertThat(resolver.idleContexts()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void boundsContextsUnderConcurrentLookups() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try (JndiMXResolver resolver = resolver(2)) {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        results.add(executor.submit(() -> resolver.hasMXRecord("example.com")));
+      }
+
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+
+      assertThat(resolver.idleContexts()).isBetween(1, 2);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void closesContexts() {
+    JndiMXResolver resolver = resolver(4);
+    resolver.hasMXRecord("example.com");
+
+    resolver.close();
+
+    assertThat(resolver.idleContexts()).isZero();
+    assertThatThrownBy(() -> resolver.lookupMX("example.com"))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void isSharedByRules() {
+    try (JndiMXResolver resolver = resolver(4)) {
+      assertThat(JMail.validator()
+          .withRule(new RequireValidMXRecordRule(resolver))
+          .withRule(new RequireValidMXRecordWithTimeoutRule(100, 1, resolver))
+          .isValid("test@example.com")).isTrue();
+
+      assertThat(JMail.validator()
+          .withRule(new RequireValidMXRecordRule(resolver))
+          .isValid("test@nomail.com")).isFalse();
+    }
+  }
+
+  @Test
+  void coalescesConcurrentValidationsOfOneDomain() throws Exception {
+    int count = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(count);
+
+    try (JndiMXResolver resolver = resolver(count)) {
+      EmailValidator validator = JMail.validator()
+          .withRule(new RequireValidMXRecordWithTimeoutRule(5_000, 1, resolver));
+      CountDownLatch start = new CountDownLatch(1);
+
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        String email = "user" + i + "@signup.com";
+        results.add(executor.submit(() -> {
+          start.await();
+          return validator.isValid(email);
+        }));
+      }
+
+      start.countDown();
+      for (Future<Boolean> result : results) {
+        assertThat(result.get()).isTrue();
+      }
+
+      assertThat(server.queries("signup.com")).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private JndiMXResolver resolver(int poolSize) {
+    return new JndiMXResolver(poolSize, Collections.singletonList("127.0.0.1:" + server.port()));
+  }
+}
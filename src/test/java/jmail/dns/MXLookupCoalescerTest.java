@@ -0,0 +1,128 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class MXLookupCoalescerTest {
+  private static final MXLookupResult FOUND = MXLookupResult.found(300);
+
+  @Test
+  void sharesOneBlockingLookupBetweenConcurrentCallers() throws Exception {
+    MXLookupCoalescer coalescer = new MXLookupCoalescer();
+    AtomicInteger lookups = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(33);
+    try {
+      Future<MXLookupResult> leader = executor.submit(() -> coalescer.lookup("example.com", () -> {
+        lookups.incrementAndGet();
+        started.countDown();
+        await(release);
+        return FOUND;
+      }));
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+      List<Thread> waiting = new ArrayList<>();
+      List<Future<MXLookupResult>> followers = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        followers.add(executor.submit(() -> {
+          synchronized (waiting) {
+            waiting.add(Thread.currentThread());
+          }
+          return coalescer.lookup("example.com", () -> {
+            lookups.incrementAndGet();
+            return MXLookupResult.transientFailure();
+          });
+        }));
+      }
+
+      awaitParked(waiting, 32);
+      release.countDown();
+
+      assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(FOUND);
+      for (Future<MXLookupResult> follower : followers) {
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(FOUND);
+      }
+      assertThat(lookups.get()).isEqualTo(1);
+      assertThat(coalescer.inFlight()).isZero();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void sharesOneAsyncLookupBetweenCallers() {
+    MXLookupCoalescer coalescer = new MXLookupCoalescer();
+    AtomicInteger lookups = new AtomicInteger();
+    CompletableFuture<MXLookupResult> query = new CompletableFuture<>();
+
+    List<CompletableFuture<MXLookupResult>> results = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      results.add(coalescer.lookupAsync("example.com", () -> {
+        lookups.incrementAndGet();
+        return query;
+      }));
+    }
+
+    // Cancelling one caller's future leaves the others waiting
+    results.get(0).cancel(false);
+    assertThat(coalescer.inFlight()).isEqualTo(1);
+
+    query.complete(FOUND);
+
+    assertThat(lookups.get()).isEqualTo(1);
+    assertThat(results.subList(1, results.size()))
+        .allSatisfy(result -> assertThat(result.join()).isEqualTo(FOUND));
+    assertThat(coalescer.inFlight()).isZero();
+  }
+
+  @Test
+  void looksUpAgainOnceCompleted() {
+    MXLookupCoalescer coalescer = new MXLookupCoalescer();
+    AtomicInteger lookups = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      coalescer.lookup("example.com", () -> {
+        lookups.incrementAndGet();
+        return FOUND;
+      });
+    }
+
+    assertThat(lookups.get()).isEqualTo(3);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Wait until every follower is blocked on the lookup in flight
+  private static void awaitParked(List<Thread> threads, int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+    while (System.nanoTime() < deadline) {
+      synchronized (threads) {
+        if (threads.size() == count
+            && threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+          return;
+        }
+      }
+      Thread.sleep(1);
+    }
+  }
+}
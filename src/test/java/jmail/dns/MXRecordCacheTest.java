@@ -0,0 +1,166 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jmail.util.CacheStatistics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MXRecordCacheTest {
+  private final AtomicLong now = new AtomicLong();
+  private final Map<String, MXLookupResult> answers = new HashMap<>();
+  private final List<String> queries = new ArrayList<>();
+  private final Function<String, MXLookupResult> resolver = domain -> {
+    queries.add(domain);
+    return answers.getOrDefault(domain, MXLookupResult.transientFailure());
+  };
+
+  @BeforeEach
+  void setUp() {
+    now.set(0);
+    answers.clear();
+    queries.clear();
+  }
+
+  @Test
+  void cachesByLowerCasedDomain() {
+    MXRecordCache cache = cache(100);
+    answers.put("example.com", MXLookupResult.found(MXLookupResult.UNKNOWN_TTL));
+
+    assertThat(cache.lookup("Example.COM", resolver).hasMXRecord()).isTrue();
+    assertThat(cache.lookup("example.com", resolver).hasMXRecord()).isTrue();
+    assertThat(cache.lookup("EXAMPLE.com.", resolver).hasMXRecord()).isTrue();
+
+    assertThat(queries).containsExactly("example.com");
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.statistics()).isEqualTo(CacheStatistics.of(2, 1, 0));
+  }
+
+  @Test
+  void expiresPositiveAnswersByRecordTtl() {
+    MXRecordCache cache = cache(100);
+    answers.put("short.com", MXLookupResult.found(30));
+    answers.put("long.com", MXLookupResult.found(TimeUnit.DAYS.toSeconds(7)));
+    answers.put("unknown.com", MXLookupResult.found(MXLookupResult.UNKNOWN_TTL));
+
+    cache.lookup("short.com", resolver);
+    cache.lookup("long.com", resolver);
+    cache.lookup("unknown.com", resolver);
+
+    advance(Duration.ofSeconds(31));
+    lookupAll(cache, "short.com", "long.com", "unknown.com");
+    assertThat(queries).containsExactly("short.com", "long.com", "unknown.com", "short.com");
+
+    // Known and unknown TTLs alike are capped at the positive TTL of one hour
+    advance(Duration.ofHours(1));
+    queries.clear();
+    lookupAll(cache, "long.com", "unknown.com");
+    assertThat(queries).containsExactly("long.com", "unknown.com");
+  }
+
+  @Test
+  void keepsNegativeAnswersForTheirOwnTtl() {
+    MXRecordCache cache = new MXRecordCache(100, Duration.ofHours(1), Duration.ofMinutes(10),
+        Duration.ofMinutes(2), Duration.ZERO, now::get);
+    answers.put("nomx.com", MXLookupResult.noMX(MXLookupResult.UNKNOWN_TTL));
+    answers.put("missing.com", MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+    answers.put("null.com", MXLookupResult.noMX(60));
+
+    lookupAll(cache, "nomx.com", "missing.com", "null.com");
+    assertThat(cache.lookup("nomx.com", resolver).status()).isEqualTo(MXLookupResult.Status.NO_MX);
+    assertThat(cache.lookup("missing.com", resolver).status())
+        .isEqualTo(MXLookupResult.Status.NXDOMAIN);
+    assertThat(queries).hasSize(3);
+
+    advance(Duration.ofMinutes(3));
+    queries.clear();
+    lookupAll(cache, "nomx.com", "missing.com", "null.com");
+    assertThat(queries).containsExactly("missing.com", "null.com");
+  }
+
+  @Test
+  void doesNotCacheTransientFailuresByDefault() {
+    MXRecordCache cache = cache(100);
+
+    assertThat(cache.lookup("timeout.com", resolver).status())
+        .isEqualTo(MXLookupResult.Status.TRANSIENT_FAILURE);
+    assertThat(cache.lookup("timeout.com", resolver).hasMXRecord()).isFalse();
+
+    assertThat(queries).containsExactly("timeout.com", "timeout.com");
+    assertThat(cache.size()).isZero();
+
+    MXRecordCache brief = new MXRecordCache(100, Duration.ofHours(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(5), Duration.ofSeconds(5), now::get);
+    queries.clear();
+    lookupAll(brief, "timeout.com", "timeout.com");
+    advance(Duration.ofSeconds(6));
+    lookupAll(brief, "timeout.com");
+    assertThat(queries).containsExactly("timeout.com", "timeout.com");
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedDomains() {
+    MXRecordCache cache = cache(2);
+    answers.put("a.com", MXLookupResult.found(300));
+    answers.put("b.com", MXLookupResult.found(300));
+    answers.put("c.com", MXLookupResult.found(300));
+
+    lookupAll(cache, "a.com", "b.com", "a.com", "c.com");
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.statistics().evictionCount()).isEqualTo(1);
+
+    queries.clear();
+    lookupAll(cache, "a.com", "c.com", "b.com");
+    assertThat(queries).containsExactly("b.com");
+  }
+
+  @Test
+  void invalidatesAndClears() {
+    MXRecordCache cache = cache(100);
+    answers.put("a.com", MXLookupResult.found(300));
+    answers.put("b.com", MXLookupResult.found(300));
+
+    lookupAll(cache, "a.com", "b.com");
+    cache.invalidate("A.com");
+    assertThat(cache.size()).isEqualTo(1);
+
+    cache.clear();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void keepsNothingWhenSizeIsZero() {
+    MXRecordCache cache = cache(0);
+    answers.put("a.com", MXLookupResult.found(300));
+
+    lookupAll(cache, "a.com", "a.com");
+    assertThat(queries).hasSize(2);
+    assertThat(cache.size()).isZero();
+    assertThat(cache.statistics().evictionCount()).isZero();
+  }
+
+  private MXRecordCache cache(int maximumSize) {
+    return new MXRecordCache(maximumSize, Duration.ofHours(1), Duration.ofMinutes(5),
+        Duration.ofMinutes(5), Duration.ZERO, now::get);
+  }
+
+  private void lookupAll(MXRecordCache cache, String... domains) {
+    for (String domain : domains) {
+      cache.lookup(domain, resolver);
+    }
+  }
+
+  private void advance(Duration duration) {
+    now.addAndGet(duration.toNanos());
+  }
+}
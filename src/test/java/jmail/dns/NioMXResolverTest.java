@@ -0,0 +1,210 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jmail.EmailValidationResult;
+import jmail.EmailValidator;
+import jmail.FailureReason;
+import jmail.JMail;
+import jmail.RequireValidMXRecordRule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class NioMXResolverTest {
+  private final StubDnsServer server = new StubDnsServer()
+      .mx("example.com", 300, "mx1.example.com", "mx2.example.com")
+      .nullMX("nomail.com", 120)
+      .nxDomain("missing.com", 60)
+      .rcode("empty.com", 0)
+      .rcode("broken.com", 2)
+      .silent("slow.com")
+      .truncated("large.com", 600, "mx.large.com")
+      .delayed("signup.com", 200, 300, "mx.signup.com");
+
+  NioMXResolverTest() throws IOException {
+  }
+
+  @AfterAll
+  void stopServer() {
+    server.close();
+  }
+
+  @Test
+  void classifiesAnswersWithTheirTtl() throws IOException {
+    try (NioMXResolver resolver = resolver(50, 1)) {
+      assertThat(resolver.lookupMX("example.com")).isEqualTo(MXLookupResult.found(300));
+      assertThat(resolver.lookupMX("EXAMPLE.com.")).isEqualTo(MXLookupResult.found(300));
+      assertThat(resolver.lookupMX("nomail.com")).isEqualTo(MXLookupResult.noMX(120));
+      assertThat(resolver.lookupMX("missing.com")).isEqualTo(MXLookupResult.nxDomain(60));
+      assertThat(resolver.lookupMX("unknown.com"))
+          .isEqualTo(MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+      assertThat(resolver.lookupMX("empty.com"))
+          .isEqualTo(MXLookupResult.noMX(MXLookupResult.UNKNOWN_TTL));
+      assertThat(resolver.lookupMX("broken.com")).isEqualTo(MXLookupResult.transientFailure());
+
+      assertThat(resolver.hasMXRecord("example.com")).isTrue();
+      assertThat(resolver.hasMXRecord("nomail.com")).isFalse();
+    }
+  }
+
+  @Test
+  void retriesAndTimesOut() throws IOException {
+    try (NioMXResolver resolver = resolver(50, 2)) {
+      int before = server.queries("slow.com");
+
+      assertThat(resolver.lookupMX("slow.com")).isEqualTo(MXLookupResult.transientFailure());
+      assertThat(server.queries("slow.com") - before).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void fallsBackToTcpWhenTruncated() throws IOException {
+    try (NioMXResolver resolver = resolver(500, 1)) {
+      int before = server.tcpQueries();
+
+      assertThat(resolver.lookupMX("large.com")).isEqualTo(MXLookupResult.found(600));
+      assertThat(server.tcpQueries() - before).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void rejectsImpossibleDomainsWithoutQuerying() throws IOException {
+    try (NioMXResolver resolver = resolver(50, 0)) {
+      int before = server.totalQueries();
+
+      assertThat(resolver.lookupMX(".")).isEqualTo(MXLookupResult.nxDomain(-1));
+      assertThat(resolver.lookupMX("a..com")).isEqualTo(MXLookupResult.nxDomain(-1));
+      assertThat(resolver.lookupMX(repeat('a', 64) + ".com"))
+          .isEqualTo(MXLookupResult.nxDomain(-1));
+      assertThat(server.totalQueries()).isEqualTo(before);
+    }
+  }
+
+  @Test
+  void multiplexesThousandsOfOutstandingQueries() throws Exception {
+    int count = 1_000;
+    for (int i = 0; i < count; i++) {
+      server.delayed("host" + i + ".test", 200, 30, "mx.host" + i + ".test");
+    }
+
+    try (NioMXResolver resolver = resolver(1_000, 2)) {
+      long start = System.nanoTime();
+
+      List<CompletableFuture<MXLookupResult>> results = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        results.add(resolver.lookupMXAsync("host" + i + ".test"));
+      }
+
+      CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+          .get(20, TimeUnit.SECONDS);
+
+      // Far below the 200 seconds the lookups would take one after another
+      assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(10));
+      for (CompletableFuture<MXLookupResult> result : results) {
+        assertThat(result.join()).isEqualTo(MXLookupResult.found(30));
+      }
+    }
+  }
+
+  @Test
+  void skipsSocketsWithEveryTransactionIdInFlight() throws Exception {
+    // Queries alternate between the two sockets, so the unanswered ones fill the first socket
+    // while the answered ones keep freeing the IDs of the second
+    try (NioMXResolver resolver = new NioMXResolver(server.address(), 2, 60_000, 0, 16)) {
+      List<CompletableFuture<MXLookupResult>> silent = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        server.silent("silent" + i + ".test");
+        silent.add(resolver.lookupMXAsync("silent" + i + ".test"));
+        resolver.lookupMXAsync("answered" + i + ".test").get(5, TimeUnit.SECONDS);
+      }
+
+      for (int i = 0; i < 3; i++) {
+        assertThat(resolver.lookupMXAsync("next" + i + ".test").get(5, TimeUnit.SECONDS))
+            .isEqualTo(MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL));
+      }
+      assertThat(silent).noneMatch(CompletableFuture::isDone);
+    }
+  }
+
+  @Test
+  void failsQueriesWhenEveryTransactionIdIsInFlight() throws Exception {
+    try (NioMXResolver resolver = new NioMXResolver(server.address(), 2, 60_000, 0, 4)) {
+      for (int i = 0; i < 8; i++) {
+        server.silent("full" + i + ".test");
+        resolver.lookupMXAsync("full" + i + ".test");
+      }
+
+      assertThat(resolver.lookupMXAsync("overflow.test").get(5, TimeUnit.SECONDS))
+          .isEqualTo(MXLookupResult.transientFailure());
+    }
+  }
+
+  @Test
+  void coalescesConcurrentLookupsOfOneDomain() throws IOException {
+    try (NioMXResolver resolver = resolver(1_000, 0)) {
+      List<CompletableFuture<MXLookupResult>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        results.add(resolver.lookupMXAsync(i % 2 == 0 ? "signup.com" : "SIGNUP.COM."));
+      }
+
+      for (CompletableFuture<MXLookupResult> result : results) {
+        assertThat(result.join()).isEqualTo(MXLookupResult.found(300));
+      }
+      assertThat(server.queries("signup.com")).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void composesMXRecordRulesWithoutAnExecutor() throws Exception {
+    Executor unused = command -> {
+      throw new AssertionError("The lookup should not need an executor");
+    };
+
+    try (NioMXResolver resolver = resolver(1_000, 0)) {
+      EmailValidator validator = JMail.validator()
+          .withRule(new RequireValidMXRecordRule(resolver, new MXRecordCache()));
+
+      assertThat(validator.validateAsync("test@example.com", unused).get(5, TimeUnit.SECONDS)
+          .isSuccess()).isTrue();
+      assertThat(validator.validateAsync("test@nomail.com", unused).get(5, TimeUnit.SECONDS)
+          .getFailureReason()).isEqualTo(FailureReason.FAILED_CUSTOM_VALIDATION);
+
+      EmailValidationResult[] results = validator.validateAll(
+          Arrays.asList("a@example.com", "b@missing.com", "c@EXAMPLE.com"), unused, 2);
+      assertThat(results).extracting(EmailValidationResult::isSuccess)
+          .containsExactly(true, false, true);
+    }
+  }
+
+  @Test
+  void failsOutstandingQueriesWhenClosed() throws IOException {
+    NioMXResolver resolver = resolver(10_000, 0);
+    CompletableFuture<MXLookupResult> pending = resolver.lookupMXAsync("slow.com");
+
+    resolver.close();
+
+    assertThat(pending.join()).isEqualTo(MXLookupResult.transientFailure());
+    assertThatThrownBy(() -> resolver.lookupMXAsync("example.com"))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  private NioMXResolver resolver(int initialTimeout, int numRetries) throws IOException {
+    return new NioMXResolver(server.address(), 2, initialTimeout, numRetries);
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) builder.append(c);
+    return builder.toString();
+  }
+}
@@ -0,0 +1,324 @@
+package jmail.dns;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DNS server on localhost that answers MX queries from a map of domains, over UDP and TCP on
+ * the same port, for tests that must not depend on the network.
+ */
+final class StubDnsServer implements AutoCloseable {
+  private static final int TYPE_MX = 15;
+  private static final int TYPE_SOA = 6;
+  private static final Answer UNKNOWN = new Answer(3, 0, -1, 0, false);
+
+  private final DatagramSocket socket;
+  private final ServerSocket serverSocket;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> queries = new ConcurrentHashMap<>();
+  private final AtomicInteger tcpQueries = new AtomicInteger();
+
+  StubDnsServer() throws IOException {
+    socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    socket.setReceiveBufferSize(1 << 20);
+    serverSocket = new ServerSocket(socket.getLocalPort(), 50, InetAddress.getLoopbackAddress());
+
+    start(this::serveUdp, "stub-dns-udp");
+    start(this::serveTcp, "stub-dns-tcp");
+  }
+
+  /**
+   * Answer MX queries for the given domain with one MX record per exchange.
+   */
+  StubDnsServer mx(String domain, int ttl, String... exchanges) {
+    return answer(domain, new Answer(0, ttl, -1, 0, false, exchanges));
+  }
+
+  /**
+   * Answer MX queries for the given domain with a null MX record (RFC 7505).
+   */
+  StubDnsServer nullMX(String domain, int ttl) {
+    return mx(domain, ttl, "");
+  }
+
+  /**
+   * Answer MX queries for the given domain with NXDOMAIN and an SOA record whose minimum is
+   * the given negative time to live.
+   */
+  StubDnsServer nxDomain(String domain, int negativeTtl) {
+    return answer(domain, new Answer(3, 0, negativeTtl, 0, false));
+  }
+
+  /**
+   * Answer MX queries for the given domain with the given response code and no records.
+   */
+  StubDnsServer rcode(String domain, int rcode) {
+    return answer(domain, new Answer(rcode, 0, -1, 0, false));
+  }
+
+  /**
+   * Never answer queries for the given domain.
+   */
+  StubDnsServer silent(String domain) {
+    return answer(domain, new Answer(-1, 0, -1, 0, false));
+  }
+
+  /**
+   * Answer MX queries for the given domain after the given delay.
+   */
+  StubDnsServer delayed(String domain, int delayMillis, int ttl, String... exchanges) {
+    return answer(domain, new Answer(0, ttl, -1, delayMillis, false, exchanges));
+  }
+
+  /**
+   * Answer MX queries for the given domain with a truncated response over UDP, and in full
+   * over TCP.
+   */
+  StubDnsServer truncated(String domain, int ttl, String... exchanges) {
+    return answer(domain, new Answer(0, ttl, -1, 0, true, exchanges));
+  }
+
+  int port() {
+    return socket.getLocalPort();
+  }
+
+  InetSocketAddress address() {
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), port());
+  }
+
+  int queries(String domain) {
+    AtomicInteger count = queries.get(domain.toLowerCase(Locale.ROOT));
+    return count == null ? 0 : count.get();
+  }
+
+  int totalQueries() {
+    return queries.values().stream().mapToInt(AtomicInteger::get).sum();
+  }
+
+  int tcpQueries() {
+    return tcpQueries.get();
+  }
+
+  @Override
+  public void close() {
+    socket.close();
+    scheduler.shutdownNow();
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      // Already closed
+    }
+  }
+
+  private StubDnsServer answer(String domain, Answer answer) {
+    answers.put(domain.toLowerCase(Locale.ROOT), answer);
+    return this;
+  }
+
+  private static void start(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void serveUdp() {
+    byte[] buffer = new byte[512];
+
+    while (!socket.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+        SocketAddress client = packet.getSocketAddress();
+        Query query = Query.parse(packet.getData(), packet.getLength());
+        Answer answer = lookup(query);
+        if (answer.rcode < 0) continue;
+
+        byte[] response = respond(query, answer, !answer.truncated);
+        if (answer.delayMillis > 0) {
+          scheduler.schedule(() -> send(response, client), answer.delayMillis,
+              TimeUnit.MILLISECONDS);
+        } else {
+          send(response, client);
+        }
+      } catch (IOException e) {
+        // Closed
+      }
+    }
+  }
+
+  private void send(byte[] response, SocketAddress client) {
+    try {
+      socket.send(new DatagramPacket(response, response.length, client));
+    } catch (IOException e) {
+      // Closed
+    }
+  }
+
+  private void serveTcp() {
+    while (!serverSocket.isClosed()) {
+      try (Socket client = serverSocket.accept()) {
+        DataInputStream in = new DataInputStream(client.getInputStream());
+        DataOutputStream out = new DataOutputStream(client.getOutputStream());
+
+        byte[] request = new byte[in.readUnsignedShort()];
+        in.readFully(request);
+        tcpQueries.incrementAndGet();
+
+        Query query = Query.parse(request, request.length);
+        byte[] response = respond(query, lookup(query), true);
+        out.writeShort(response.length);
+        out.write(response);
+        out.flush();
+      } catch (IOException e) {
+        // Closed
+      }
+    }
+  }
+
+  private Answer lookup(Query query) {
+    queries.computeIfAbsent(query.name, d -> new AtomicInteger()).incrementAndGet();
+    return answers.getOrDefault(query.name, UNKNOWN);
+  }
+
+  private static byte[] respond(Query query, Answer answer, boolean complete) {
+    String[] exchanges = query.type == TYPE_MX && complete ? answer.exchanges : new String[0];
+    boolean soa = answer.negativeTtl >= 0;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeShort(out, query.id);
+    out.write(0x80 | (complete ? 0 : 0x02) | query.flags >>> 8 & 0x01);
+    out.write(0x80 | Math.max(answer.rcode, 0));
+    writeShort(out, 1);
+    writeShort(out, exchanges.length);
+    writeShort(out, soa ? 1 : 0);
+    writeShort(out, 0);
+    out.write(query.question, 0, query.question.length);
+
+    for (int i = 0; i < exchanges.length; i++) {
+      byte[] exchange = encodeName(exchanges[i]);
+      writeShort(out, 0xC00C);
+      writeShort(out, TYPE_MX);
+      writeShort(out, 1);
+      writeInt(out, answer.ttl + i);
+      writeShort(out, exchange.length + 2);
+      writeShort(out, exchanges[i].isEmpty() ? 0 : 10 * (i + 1));
+      out.write(exchange, 0, exchange.length);
+    }
+
+    if (soa) {
+      byte[] mname = encodeName("ns.example.net");
+      byte[] rname = encodeName("hostmaster.example.net");
+      writeShort(out, 0xC00C);
+      writeShort(out, TYPE_SOA);
+      writeShort(out, 1);
+      writeInt(out, 3600);
+      writeShort(out, mname.length + rname.length + 20);
+      out.write(mname, 0, mname.length);
+      out.write(rname, 0, rname.length);
+      writeInt(out, 1);
+      writeInt(out, 7200);
+      writeInt(out, 900);
+      writeInt(out, 1209600);
+      writeInt(out, answer.negativeTtl);
+    }
+
+    return out.toByteArray();
+  }
+
+  private static byte[] encodeName(String name) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (!name.isEmpty()) {
+      for (String label : name.split("\\.")) {
+        out.write(label.length());
+        for (char c : label.toCharArray()) out.write(c);
+      }
+    }
+    out.write(0);
+    return out.toByteArray();
+  }
+
+  private static void writeShort(ByteArrayOutputStream out, int value) {
+    out.write(value >>> 8 & 0xff);
+    out.write(value & 0xff);
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    writeShort(out, value >>> 16);
+    writeShort(out, value);
+  }
+
+  private static final class Query {
+    private final int id;
+    private final int flags;
+    private final String name;
+    private final int type;
+    private final byte[] question;
+
+    private Query(int id, int flags, String name, int type, byte[] question) {
+      this.id = id;
+      this.flags = flags;
+      this.name = name;
+      this.type = type;
+      this.question = question;
+    }
+
+    static Query parse(byte[] message, int length) {
+      int offset = 12;
+      StringBuilder name = new StringBuilder();
+      while (offset < length && message[offset] != 0) {
+        int labelLength = message[offset++];
+        if (name.length() > 0) name.append('.');
+        name.append(new String(message, offset, labelLength, StandardCharsets.US_ASCII));
+        offset += labelLength;
+      }
+      offset++;
+
+      byte[] question = new byte[offset + 4 - 12];
+      System.arraycopy(message, 12, question, 0, question.length);
+
+      return new Query(
+          (message[0] & 0xff) << 8 | message[1] & 0xff,
+          (message[2] & 0xff) << 8 | message[3] & 0xff,
+          name.toString().toLowerCase(Locale.ROOT),
+          (message[offset] & 0xff) << 8 | message[offset + 1] & 0xff,
+          question);
+    }
+  }
+
+  private static final class Answer {
+    private final int rcode;
+    private final int ttl;
+    private final int negativeTtl;
+    private final int delayMillis;
+    private final boolean truncated;
+    private final String[] exchanges;
+
+    private Answer(int rcode, int ttl, int negativeTtl, int delayMillis, boolean truncated,
+                   String... exchanges) {
+      this.rcode = rcode;
+      this.ttl = ttl;
+      this.negativeTtl = negativeTtl;
+      this.delayMillis = delayMillis;
+      this.truncated = truncated;
+      this.exchanges = exchanges;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package jmail.dns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import jmail.EmailValidator;
+import jmail.JMail;
+import jmail.RequireValidMXRecordRule;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZoneFileDnsResolverTest {
+  private static final MXLookupResult ABSENT =
+      MXLookupResult.nxDomain(MXLookupResult.UNKNOWN_TTL);
+
+  @Test
+  void readsMasterFileSyntax() throws IOException {
+    ZoneFileDnsResolver resolver = parse(
+        "$ORIGIN example.com.\n"
+            + "$TTL 1h\n"
+            + "@ IN SOA ns1 hostmaster (\n"
+            + "      2024010101 ; serial\n"
+            + "      7200 900 1209600 300 )\n"
+            + "@ MX 10 mail ; relative exchange\n"
+            + "  300 IN MX 20 backup.example.net.\n"
+            + "sub IN 60 MX 10 mail.example.com.\n"
+            + "www A 192.0.2.1\n"
+            + "www TXT \"v=spf1 -all; (not a comment)\"\n"
+            + "nullmx 600 MX 0 .\n"
+            + "Upper.Example.NET. 1d2h MX 5 mx.example.net.\n");
+
+    assertThat(resolver.lookupMX("example.com")).isEqualTo(MXLookupResult.found(300));
+    assertThat(resolver.lookupMX("SUB.example.com.")).isEqualTo(MXLookupResult.found(60));
+    assertThat(resolver.lookupMX("www.example.com"))
+        .isEqualTo(MXLookupResult.noMX(MXLookupResult.UNKNOWN_TTL));
+    assertThat(resolver.lookupMX("nullmx.example.com")).isEqualTo(MXLookupResult.noMX(600));
+    assertThat(resolver.lookupMX("upper.example.net")).isEqualTo(MXLookupResult.found(93600));
+    assertThat(resolver.lookupMX("missing.example.com")).isSameAs(ABSENT);
+    assertThat(resolver.size()).isEqualTo(5);
+  }
+
+  @Test
+  void readsPlainListWithoutOrigin() throws IOException {
+    ZoneFileDnsResolver resolver = parse(
+        "gmail.com MX 5 gmail-smtp-in.l.google.com\n"
+            + "gmail.com MX 10 alt1.gmail-smtp-in.l.google.com\n"
+            + "\n"
+            + "; a comment\n"
+            + "bücher.de MX 10 mx.bücher.de\n");
+
+    assertThat(resolver.hasMXRecord("gmail.com")).isTrue();
+    assertThat(resolver.hasMXRecord("xn--bcher-kva.de")).isTrue();
+    assertThat(resolver.hasMXRecord("BÜCHER.de")).isTrue();
+    assertThat(resolver.lookupMX("gmail.com").ttlSeconds()).isEqualTo(MXLookupResult.UNKNOWN_TTL);
+    assertThat(resolver.size()).isEqualTo(2);
+  }
+
+  @Test
+  void foundWinsOverNullMXAndOtherRecords() throws IOException {
+    ZoneFileDnsResolver resolver = parse(
+        "mixed.com 100 A 192.0.2.1\n"
+            + "mixed.com 200 MX 0 .\n"
+            + "mixed.com 300 MX 10 mx.mixed.com\n"
+            + "mixed.com 50 A 192.0.2.2\n");
+
+    assertThat(resolver.lookupMX("mixed.com")).isEqualTo(MXLookupResult.found(300));
+  }
+
+  @Test
+  void rejectsMalformedRecords() {
+    assertThatThrownBy(() -> parse("a.com MX 10\n"))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("Line 1");
+    assertThatThrownBy(() -> parse("a.com A 192.0.2.1\nb.com MX ten mx.b.com\n"))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("Line 2");
+    assertThatThrownBy(() -> parse("a.com 1x MX 10 mx.a.com\n"))
+        .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> parse("  MX 10 mx.a.com\n"))
+        .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> parse("$INCLUDE other.zone\n"))
+        .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> parse("@ SOA ns hostmaster ( 1 2 3 4 5\n"))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void loadsLargeZoneFile(@TempDir Path directory) throws IOException {
+    int domains = 200_000;
+    Path zone = directory.resolve("large.zone");
+
+    try (BufferedWriter writer = Files.newBufferedWriter(zone, StandardCharsets.UTF_8)) {
+      writer.write("$TTL 3600\n");
+      for (int i = 0; i < domains; i++) {
+        if (i % 10 == 0) {
+          writer.write("domain" + i + ".com MX 0 .\n");
+        } else {
+          writer.write("domain" + i + ".com MX 10 mx" + i + ".example.net.\n");
+        }
+      }
+    }
+
+    ZoneFileDnsResolver resolver = ZoneFileDnsResolver.load(zone);
+
+    assertThat(resolver.size()).isEqualTo(domains);
+    for (int i = 0; i < domains; i += 997) {
+      assertThat(resolver.hasMXRecord("domain" + i + ".com")).isEqualTo(i % 10 != 0);
+    }
+    assertThat(resolver.lookupMX("domain1.com")).isEqualTo(MXLookupResult.found(3600));
+    assertThat(resolver.lookupMX("domain" + domains + ".com")).isEqualTo(ABSENT);
+  }
+
+  @Test
+  void validatesOfflineThroughRule(@TempDir Path directory) throws IOException {
+    Path zone = directory.resolve("mx.zone");
+    Files.write(zone, "gmail.com. 3600 IN MX 5 gmail-smtp-in.l.google.com.\n"
+        .getBytes(StandardCharsets.UTF_8));
+
+    ZoneFileDnsResolver resolver = ZoneFileDnsResolver.load(zone);
+    EmailValidator validator = JMail.validator()
+        .withRule(new RequireValidMXRecordRule(resolver, new MXRecordCache()));
+
+    assertThat(validator.isValid("test@gmail.com")).isTrue();
+    assertThat(validator.isValid("test@gmail.co")).isFalse();
+  }
+
+  private static ZoneFileDnsResolver parse(String zone) throws IOException {
+    return ZoneFileDnsResolver.load(new StringReader(zone), ABSENT);
+  }
+}
@@ -0,0 +1,289 @@
+package jmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EmailValidationProcessorTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void validatesInlineInOrder() throws InterruptedException {
+    EmailValidator validator = JMail.strictValidator();
+    List<String> emails = emails(1_000);
+
+    EmailValidationProcessor processor = new EmailValidationProcessor(validator);
+    Collector collector = run(processor, emails, Long.MAX_VALUE);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(collector.error).isNull();
+    assertThat(collector.results).containsExactlyElementsOf(expected(validator, emails));
+  }
+
+  @Test
+  void runsBlockingRulesOnExecutorInOrder() throws InterruptedException {
+    FakeMXRecordRule rule = new FakeMXRecordRule();
+    EmailValidator validator = JMail.validator().withRule(rule);
+    List<String> emails = emails(500);
+
+    EmailValidationProcessor processor =
+        new EmailValidationProcessor(validator, executor, 4, true, 32);
+    Collector collector = run(processor, emails, Long.MAX_VALUE);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(new ArrayList<>(rule.threads)).doesNotContain(Thread.currentThread().getName());
+    assertThat(collector.error).isNull();
+    assertThat(collector.results).containsExactlyElementsOf(expected(validator, emails));
+  }
+
+  @Test
+  void emitsUnorderedResults() throws InterruptedException {
+    EmailValidator validator = JMail.validator().withRule(new FakeMXRecordRule());
+    List<String> emails = emails(500);
+
+    EmailValidationProcessor processor =
+        new EmailValidationProcessor(validator, executor, 4, false, 32);
+    Collector collector = run(processor, emails, Long.MAX_VALUE);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(collector.error).isNull();
+    assertThat(collector.results).containsExactlyInAnyOrderElementsOf(expected(validator, emails));
+  }
+
+  @Test
+  void boundsConcurrencyOfBlockingRules() throws InterruptedException {
+    FakeMXRecordRule rule = new FakeMXRecordRule();
+    EmailValidator validator = JMail.validator().withRule(rule);
+
+    EmailValidationProcessor processor =
+        new EmailValidationProcessor(validator, executor, 2, false, 64);
+    Collector collector = run(processor, emails(200), Long.MAX_VALUE);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(rule.maxRunning.get()).isBetween(1, 2);
+  }
+
+  @Test
+  void honoursDownstreamDemand() throws InterruptedException {
+    EmailValidator validator = JMail.validator().withRule(new FakeMXRecordRule());
+    ListPublisher publisher = new ListPublisher(emails(1_000));
+
+    EmailValidationProcessor processor =
+        new EmailValidationProcessor(validator, executor, 4, true, 16);
+    Collector collector = new Collector(5);
+    publisher.subscribe(processor);
+    processor.subscribe(collector);
+
+    assertThat(collector.awaitResults(5)).isTrue();
+    Thread.sleep(100);
+
+    assertThat(collector.results).hasSize(5);
+    assertThat(collector.completed.getCount()).isEqualTo(1);
+    assertThat(publisher.requested.get()).isLessThanOrEqualTo(16);
+
+    collector.subscription.request(Long.MAX_VALUE);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(collector.results).hasSize(1_000);
+  }
+
+  @Test
+  void rejectsSecondSubscriber() throws InterruptedException {
+    EmailValidationProcessor processor = new EmailValidationProcessor(JMail.validator());
+    processor.subscribe(new Collector(0));
+
+    Collector second = new Collector(0);
+    processor.subscribe(second);
+
+    assertThat(second.await()).isTrue();
+    assertThat(second.error).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void rejectsNonPositiveRequest() throws InterruptedException {
+    ListPublisher publisher = new ListPublisher(emails(10));
+    EmailValidationProcessor processor = new EmailValidationProcessor(JMail.validator());
+    Collector collector = new Collector(0);
+    publisher.subscribe(processor);
+    processor.subscribe(collector);
+
+    collector.subscription.request(0);
+
+    assertThat(collector.await()).isTrue();
+    assertThat(collector.error).isInstanceOf(IllegalArgumentException.class);
+    assertThat(publisher.cancelled).isTrue();
+  }
+
+  private static Collector run(EmailValidationProcessor processor, List<String> emails,
+                               long request) {
+    Collector collector = new Collector(request);
+    new ListPublisher(emails).subscribe(processor);
+    processor.subscribe(collector);
+    return collector;
+  }
+
+  private static List<EmailValidationResult> expected(EmailValidator validator,
+                                                      List<String> emails) {
+    return emails.stream().map(validator::validate).collect(Collectors.toList());
+  }
+
+  private static List<String> emails(int count) {
+    List<String> emails = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      switch (i % 4) {
+        case 0:
+          emails.add("user" + i + "@example.com");
+          break;
+        case 1:
+          emails.add("user" + i + "@nomx" + i + ".org");
+          break;
+        case 2:
+          emails.add("invalid" + i + "@@example.com");
+          break;
+        default:
+          emails.add("user" + i + "@[1.2.3.4]");
+      }
+    }
+    return emails;
+  }
+
+  /**
+   * Stands in for an MX lookup: slow, and true unless the domain starts with "nomx".
+   */
+  private static final class FakeMXRecordRule extends RequireValidMXRecordRule {
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public boolean validate(Email email) {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      threads.add(Thread.currentThread().getName());
+      try {
+        Thread.sleep(email.localPart().length() % 3);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        running.decrementAndGet();
+      }
+      return !email.domainWithoutComments().startsWith("nomx");
+    }
+  }
+
+  /**
+   * A synchronous publisher of a list that honours demand.
+   */
+  private static final class ListPublisher implements Flow.Publisher<String> {
+    private final List<String> items;
+    private final AtomicLong requested = new AtomicLong();
+    private volatile boolean cancelled;
+
+    ListPublisher(List<String> items) {
+      this.items = items;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+      AtomicLong demand = new AtomicLong();
+      AtomicInteger wip = new AtomicInteger();
+      int[] index = new int[1];
+
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          requested.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+          demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+          if (wip.getAndIncrement() != 0) return;
+
+          do {
+            while (demand.get() > 0 && index[0] < items.size() && !cancelled) {
+              demand.decrementAndGet();
+              subscriber.onNext(items.get(index[0]++));
+            }
+            if (index[0] == items.size() && !cancelled) {
+              index[0]++;
+              subscriber.onComplete();
+            }
+          } while (wip.decrementAndGet() != 0);
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  private static final class Collector implements Flow.Subscriber<EmailValidationResult> {
+    private final long initialRequest;
+    private final List<EmailValidationResult> results =
+        Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+
+    Collector(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest > 0) subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(EmailValidationResult item) {
+      results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      completed.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed.countDown();
+    }
+
+    boolean await() throws InterruptedException {
+      return completed.await(10, TimeUnit.SECONDS);
+    }
+
+    boolean awaitResults(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (results.size() < count && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      return results.size() >= count;
+    }
+  }
+}